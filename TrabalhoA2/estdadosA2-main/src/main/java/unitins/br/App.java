@@ -56,6 +56,7 @@ public class App {
                     break;
                 case "0":
                     continuar = false;
+                    Logger.registrarResumoConsultas();
                     System.out.println("\nEncerrando aplicação...");
                     break;
                 default:
@@ -74,6 +75,7 @@ public class App {
         System.out.println("AC, AL, AM, AP, BA, CE, DF, ES, GO, MA, MG, MS, MT,");
         System.out.println("PA, PB, PE, PI, PR, RJ, RN, RO, RR, RS, SC, SE, SP, TO");
         System.out.println("ZZ = Exterior");
+        System.out.println("BR = Todos os estados (consultas somam o país)");
         System.out.print("\nDigite a sigla do estado: ");
 
         String estado = scanner.nextLine().trim().toUpperCase();
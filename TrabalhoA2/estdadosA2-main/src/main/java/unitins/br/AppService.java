@@ -1,12 +1,22 @@
 package unitins.br;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -20,18 +30,50 @@ import java.util.Map;
  */
 public class AppService {
 
-    // Array simples para armazenar os dados (implementação base)
-    private PerfilEleitor[] eleitores;
+    // Bases carregadas, uma por UF: cada uma tem tabela colunar (um int[] por
+    // coluna, textos codificados por dicionário) e índices próprios. Carregar
+    // outra UF não descarta as anteriores enquanto couberem no orçamento de
+    // heap; passando dele, as menos usadas (fora das consultadas) saem.
+    private final CacheBases bases = new CacheBases((long) (Runtime.getRuntime().maxMemory() * FRACAO_HEAP_BASES));
+
+    // Abrangência das consultas: a UF carregada por último, ou "BR" para
+    // todas as bases carregadas
+    private String estadoSelecionado = "";
+    private BaseEstado[] selecionadas = new BaseEstado[0];
     private int totalRegistros = 0;
 
-    // Tamanho inicial e fator de crescimento do array
+    // Parte do heap máximo (-Xmx) que as bases podem ocupar por padrão; o
+    // resto fica para a carga em andamento e as consultas
+    private static final double FRACAO_HEAP_BASES = 0.6;
+
+    // Tamanho inicial da tabela quando o tamanho do CSV não é conhecido (cresce sob demanda)
     private static final int TAMANHO_INICIAL = 100000;
-    private static final double FATOR_CRESCIMENTO = 1.5;
+
+    // Linhas lidas entre duas atualizações dos índices durante a leitura
+    private static final int LINHAS_POR_LOTE = 65536;
+
+    // Estados carregados ao mesmo tempo na carga nacional (cada carga já usa
+    // rede, disco e, no modo PARALELA, todos os núcleos)
+    private static final int CARGAS_SIMULTANEAS = 4;
+
+    // De onde vêm os ZIPs de cada UF e onde ficam ZIP, CSV e snapshot
+    private String enderecoOrigem = "https://cdn.tse.jus.br/estatistica/sead/odsele/perfil_eleitor_secao/";
+    private String diretorioDados = "dados";
+
+    // Forma de leitura do CSV (ver ModoCarga)
+    private ModoCarga modoCarga = ModoCarga.PARALELA;
+
+    // Colunas guardadas nas próximas cargas; as outras são puladas na leitura
+    // do CSV. Por padrão todas, para listarRegistros() poder montar registros.
+    private EnumSet<Coluna> colunasCarga = Coluna.todas();
 
     // TODO: Adicionar aqui a instância da árvore binária
     // private ArvoreBinariaADT<Integer> arvorePorCidade;
     // ↓↓↓ MODIFICAÇÃO 1: Adicionar atributo da árvore ↓↓↓
-    private ArvoreBinariaADT<Integer> arvorePorCidade;
+    // Cada BaseEstado traz o índice estático por cidade (layout de Eytzinger,
+    // chave int primitiva, sem autoboxing do código da cidade) e os índices
+    // por chave composta (cidade, zona, local) e (cidade, zona, seção),
+    // construídos durante a leitura do CSV.
 
     // Estados brasileiros válidos
     private static final String[] ESTADOS = {
@@ -40,10 +82,16 @@ public class AppService {
         "RO", "RR", "RS", "SC", "SE", "SP", "TO", "ZZ"
     };
 
+    // Sigla que carrega e consulta todos os estados (inclusive ZZ, exterior)
+    private static final String NACIONAL = "BR";
+
     /**
-     * Verifica se um estado é válido.
+     * Verifica se um estado é válido ("BR" = todos os estados).
      */
     public boolean estadoValido(String estado) {
+        if (NACIONAL.equals(estado.toUpperCase())) {
+            return true;
+        }
         for (String uf : ESTADOS) {
             if (uf.equals(estado.toUpperCase())) {
                 return true;
@@ -63,17 +111,46 @@ public class AppService {
      * Verifica se há dados carregados.
      */
     public boolean temDados() {
-        return eleitores != null && totalRegistros > 0;
+        return selecionadas.length > 0 && totalRegistros > 0;
     }
 
     /**
-     * Retorna o estado dos dados carregados.
+     * Retorna o estado dos dados consultados ("BR" na carga nacional).
      */
     public String getEstadoCarregado() {
-        if (temDados()) {
-            return eleitores[0].estado();
-        }
-        return "";
+        return temDados() ? estadoSelecionado : "";
+    }
+
+    /**
+     * Retorna as UFs com dados em memória, em ordem alfabética.
+     */
+    public String[] getEstadosCarregados() {
+        return bases.ufs().toArray(new String[0]);
+    }
+
+    /**
+     * Retorna o heap estimado ocupado pelas bases em memória, em bytes.
+     */
+    public long getMemoriaOcupada() {
+        return bases.ocupado();
+    }
+
+    /**
+     * Retorna o orçamento de heap das bases em memória, em bytes.
+     */
+    public long getOrcamentoMemoria() {
+        return bases.orcamento();
+    }
+
+    /**
+     * Define o orçamento de heap das bases em memória. Se o total passar dele,
+     * as UFs usadas há mais tempo são descartadas (as consultadas no momento
+     * ficam, mesmo acima do orçamento).
+     *
+     * @param bytes Orçamento em bytes
+     */
+    public void setOrcamentoMemoria(long bytes) {
+        bases.setOrcamento(bytes);
     }
 
     /**
@@ -83,29 +160,227 @@ public class AppService {
         return totalRegistros;
     }
 
+    /**
+     * Retorna a forma de leitura do CSV em uso.
+     */
+    public ModoCarga getModoCarga() {
+        return modoCarga;
+    }
+
+    /**
+     * Define a forma de leitura do CSV usada nas próximas cargas.
+     */
+    public void setModoCarga(ModoCarga modoCarga) {
+        this.modoCarga = modoCarga;
+    }
+
+    /**
+     * Troca a origem dos arquivos (usado nos testes, com um servidor local).
+     *
+     * @param endereco URL terminada em "/" onde estão os perfil_eleitor_secao_ATUAL_UF.zip
+     * @param diretorio Pasta onde ZIP, CSV e snapshot são gravados
+     */
+    void setOrigem(String endereco, String diretorio) {
+        this.enderecoOrigem = endereco;
+        this.diretorioDados = diretorio;
+    }
+
+    /**
+     * Retorna as colunas guardadas pelas próximas cargas.
+     */
+    public Set<Coluna> getColunasCarga() {
+        return EnumSet.copyOf(colunasCarga);
+    }
+
+    /**
+     * Define quais colunas as próximas cargas guardam (ex.: Coluna.consultas()
+     * para só contar eleitores). As colunas dos índices são sempre incluídas.
+     * Consultas que usarem uma coluna fora da carga lançam IllegalStateException.
+     */
+    public void setColunasCarga(Set<Coluna> colunas) {
+        EnumSet<Coluna> projecao = Coluna.indices();
+        projecao.addAll(colunas);
+        this.colunasCarga = projecao;
+    }
+
     /**
      * Carrega os dados de um estado específico.
      *
-     * @param estado Sigla do estado (ex: "AC", "SP")
+     * Com "BR", carrega todos os estados ainda não carregados, vários ao mesmo
+     * tempo, e as consultas passam a somar todas as bases.
+     *
+     * @param estado Sigla do estado (ex: "AC", "SP") ou "BR"
      * @return true se carregou com sucesso
      */
     public boolean carregarDados(String estado) {
         estado = estado.toUpperCase();
 
+        if (NACIONAL.equals(estado)) {
+            return carregarNacional();
+        }
+
+        // Ainda em memória (e com as colunas pedidas): só trocar a seleção
+        BaseEstado emMemoria = bases.obter(estado);
+        if (emMemoria != null && emMemoria.tabela().colunasCarregadas().containsAll(colunasCarga)) {
+            long inicio = System.currentTimeMillis();
+            selecionar(estado);
+            Logger.registrar(String.format("Estado %s já em memória (%,d registros)", estado, totalRegistros),
+                    System.currentTimeMillis() - inicio);
+            return true;
+        }
+
+        BaseEstado base = carregarEstado(estado);
+        if (base == null) {
+            return false;
+        }
+        registrarBase(estado, base);
+        return true;
+    }
+
+    /**
+     * Carrega em paralelo os estados que ainda não estão em memória e
+     * seleciona todas as bases.
+     *
+     * @return true se todos os estados foram carregados
+     */
+    private boolean carregarNacional() {
+        Logger.info("Iniciando carregamento nacional (" + ESTADOS.length + " estados)");
+        long inicio = System.currentTimeMillis();
+
+        // Nenhuma UF sai da memória durante a carga nacional
+        bases.fixar(Arrays.asList(ESTADOS));
+
+        List<String> faltando = new ArrayList<>();
+        for (String uf : ESTADOS) {
+            if (!bases.contem(uf)) {
+                faltando.add(uf);
+            }
+        }
+
+        int falhas = 0;
+        if (!faltando.isEmpty()) {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(CARGAS_SIMULTANEAS, faltando.size()));
+            try {
+                Map<String, Future<BaseEstado>> cargas = new LinkedHashMap<>();
+                for (String uf : faltando) {
+                    cargas.put(uf, pool.submit(() -> carregarEstado(uf)));
+                }
+                for (Map.Entry<String, Future<BaseEstado>> carga : cargas.entrySet()) {
+                    BaseEstado base = aguardar(carga.getValue());
+                    if (base == null) {
+                        Logger.erro("Estado " + carga.getKey() + " não carregado");
+                        falhas++;
+                    } else {
+                        bases.guardar(carga.getKey(), base);
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        selecionar(NACIONAL);
+        long tempo = System.currentTimeMillis() - inicio;
+        Logger.registrar(String.format("Carga nacional concluída (%d estados, %,d registros)",
+                selecionadas.length, totalRegistros), tempo);
+        return falhas == 0;
+    }
+
+    private static BaseEstado aguardar(Future<BaseEstado> carga) {
+        try {
+            return carga.get();
+        } catch (ExecutionException e) {
+            Logger.erro("Erro na carga: " + e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Guarda a base de uma UF (substituindo a anterior da mesma UF) e passa
+     * a consultar só ela.
+     */
+    private void registrarBase(String uf, BaseEstado base) {
+        bases.guardar(uf, base);
+        selecionar(uf);
+    }
+
+    /**
+     * Define a abrangência das consultas: uma UF carregada ou "BR". As bases
+     * selecionadas ficam fixadas no cache; as outras podem ser descartadas.
+     */
+    private void selecionar(String estado) {
+        if (NACIONAL.equals(estado)) {
+            selecionadas = bases.bases().toArray(new BaseEstado[0]);
+            bases.fixar(bases.ufs());
+        } else {
+            selecionadas = new BaseEstado[]{bases.obter(estado)};
+            bases.fixar(List.of(estado));
+        }
+        estadoSelecionado = estado;
+        totalRegistros = 0;
+        for (BaseEstado base : selecionadas) {
+            totalRegistros += base.tabela().quantidade();
+        }
+    }
+
+    /**
+     * Carrega uma UF sem alterar as bases já carregadas (pode rodar em
+     * paralelo com a carga de outras UFs).
+     *
+     * @return Base pronta para consulta, ou null se a carga falhou
+     */
+    private BaseEstado carregarEstado(String estado) {
         Logger.info("Iniciando carregamento de dados do estado: " + estado);
 
         // 1. Download do arquivo
-        String url = "https://cdn.tse.jus.br/estatistica/sead/odsele/perfil_eleitor_secao/perfil_eleitor_secao_ATUAL_" + estado + ".zip";
-        String arquivoZip = "dados/perfil_eleitor_secao_" + estado + ".zip";
-        String arquivoCsv = "dados/perfil_eleitor_secao_ATUAL_" + estado + ".csv";
+        String url = enderecoOrigem + "perfil_eleitor_secao_ATUAL_" + estado + ".zip";
+        String arquivoZip = diretorioDados + "/perfil_eleitor_secao_" + estado + ".zip";
+        String arquivoCsv = diretorioDados + "/perfil_eleitor_secao_ATUAL_" + estado + ".csv";
+        String arquivoSnapshot = diretorioDados + "/perfil_eleitor_secao_" + estado + ".snap";
+
+        // Snapshot binário de uma carga anterior: sem download, CSV nem índices
+        if (Snapshot.atualizado(arquivoSnapshot, arquivoZip)) {
+            BaseEstado base = lerSnapshot(arquivoSnapshot);
+            if (base != null && base.tabela().colunasCarregadas().containsAll(colunasCarga)) {
+                return base;
+            }
+            if (base != null) {
+                Logger.info("Snapshot sem todas as colunas pedidas, recarregando do CSV");
+            }
+        }
+
+        BaseEstado base = carregarDaOrigem(url, arquivoZip, arquivoCsv);
+        if (base != null) {
+            gravarSnapshot(arquivoSnapshot, base);
+        }
+        return base;
+    }
+
+    /**
+     * Baixa o ZIP e lê o CSV conforme o modo de carga.
+     */
+    private BaseEstado carregarDaOrigem(String url, String arquivoZip, String arquivoCsv) {
+        // Download, descompactação, leitura e índices ao mesmo tempo
+        if (modoCarga == ModoCarga.PIPELINE) {
+            return carregarEmPipeline(url, arquivoZip);
+        }
 
         if (!Arquivo.baixarArquivo(url, arquivoZip)) {
-            return false;
+            return null;
+        }
+
+        // Sem extração: o CSV é lido direto do ZIP, sem gravar o arquivo
+        // descompactado no disco e sem lê-lo de volta
+        if (modoCarga == ModoCarga.DIRETO_DO_ZIP) {
+            return lerArquivoCsv(arquivoZip);
         }
 
         // 2. Extrair arquivo ZIP
-        if (!Arquivo.extrairZip(arquivoZip, "dados")) {
-            return false;
+        if (!Arquivo.extrairZip(arquivoZip, diretorioDados)) {
+            return null;
         }
 
         // 3. Ler arquivo CSV
@@ -114,54 +389,37 @@ public class AppService {
 
     /**
      * Lê o arquivo CSV e carrega os dados em memória.
+     *
+     * @param arquivo CSV extraído, ou o próprio ZIP no modo DIRETO_DO_ZIP
+     * @return Base lida, ou null em caso de erro
      */
-    private boolean lerArquivoCsv(String arquivo) {
+    BaseEstado lerArquivoCsv(String arquivo) {
         System.out.println("\nLendo arquivo CSV...");
         System.out.println("(Arquivos grandes podem levar vários minutos)");
 
         long inicio = System.currentTimeMillis();
 
         try {
-            eleitores = new PerfilEleitor[TAMANHO_INICIAL];
-            totalRegistros = 0;
-
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(
-                            new FileInputStream(arquivo), "ISO-8859-1"), 131072)) {
-
-                br.readLine(); // Pular cabeçalho
-                String linha;
-
-                while ((linha = br.readLine()) != null) {
-                    try {
-                        String[] campos = linha.split(";");
-                        if (campos.length >= 31) {
-                            if (totalRegistros >= eleitores.length) {
-                                expandirArray();
-                            }
-
-                            eleitores[totalRegistros] = PerfilEleitor.fromCsv(campos);
-                            totalRegistros++;
-                        }
-                    } catch (Exception e) {
-                        // Ignorar linhas com erro
-                    }
-
-                    if (totalRegistros % 1000000 == 0 && totalRegistros > 0) {
-                        System.out.printf("  Processados: %,d registros...%n", totalRegistros);
-                    }
-                }
-            }
-
-            // Compactar array
-            if (totalRegistros < eleitores.length) {
-                PerfilEleitor[] arrayCompacto = new PerfilEleitor[totalRegistros];
-                System.arraycopy(eleitores, 0, arrayCompacto, 0, totalRegistros);
-                eleitores = arrayCompacto;
+            // A tabela é reservada pelo tamanho do CSV, e os índices são
+            // preparados durante a leitura (ver ConstrutorIndices)
+            BaseEstado base;
+            switch (modoCarga) {
+                case PARALELA:
+                    // Arquivo mapeado em memória e lido em blocos por todas as threads
+                    base = CargaParalela.carregar(arquivo, colunasCarga);
+                    break;
+                case DIRETO_DO_ZIP:
+                    base = lerSequencial(Arquivo.abrirCsvDoZip(arquivo), Arquivo.tamanhoCsvNoZip(arquivo));
+                    break;
+                default:
+                    base = lerSequencial(new FileInputStream(arquivo), Arquivo.tamanho(arquivo));
+                    break;
             }
 
             long tempo = System.currentTimeMillis() - inicio;
-            Logger.registrar(String.format("Leitura do CSV concluída (%,d registros)", totalRegistros), tempo);
+            Logger.registrar(String.format("Leitura do CSV e construção das árvores concluídas (%s, %,d registros)",
+                    arquivo, base.tabela().quantidade()), tempo);
+            exibirResumoTabela(base);
 
             // TODO: Após carregar os dados, popular a árvore binária aqui
             // arvorePorCidade = new SuaArvore<>();
@@ -170,44 +428,168 @@ public class AppService {
             // }
             // ↓↓↓ MODIFICAÇÃO 2: Popular a árvore binária ↓↓↓
             
-            // Popular a árvore binária com os dados carregados
-            System.out.println("\nConstruindo árvore binária...");
-            long inicioArvore = System.currentTimeMillis();
-            
-            arvorePorCidade = new ArvoreBinaria();
-            for (int i = 0; i < totalRegistros; i++) {
-                arvorePorCidade.inserir(eleitores[i].codCidade(), eleitores[i]);
-            }
-            
-            long tempoArvore = System.currentTimeMillis() - inicioArvore;
-            Logger.registrar("Construção da árvore binária", tempoArvore);
-            System.out.printf("Árvore construída: %,d cidades, %,d registros%n", 
-                             arvorePorCidade.tamanho(), arvorePorCidade.totalRegistros());
+            // Os índices já foram montados durante a leitura (ConstrutorIndices):
+            // a cidade num ArvoreEytzinger (árvore implícita num int[], sem nós
+            // nem rotações, pois os dados só são lidos depois da carga) e local
+            // e seção em IndiceComposto (chave empacotada em long, busca
+            // binária). Todos guardam índices de linhas da tabela, não registros.
+            exibirResumoArvores(base);
 
-            return true;
+            return base;
 
         } catch (IOException e) {
             Logger.erro("Erro ao ler CSV: " + e.getMessage());
-            return false;
+            return null;
         }
     }
 
     /**
-     * Expande o array de eleitores.
+     * Baixa e carrega em pipeline (ver CargaEmPipeline): a leitura começa
+     * enquanto o ZIP ainda chega e os índices são preparados durante a leitura.
      */
-    private void expandirArray() {
-        int novoTamanho = (int) (eleitores.length * FATOR_CRESCIMENTO);
-        System.out.printf("  Expandindo array: %,d -> %,d%n", eleitores.length, novoTamanho);
+    private BaseEstado carregarEmPipeline(String url, String arquivoZip) {
+        long inicio = System.currentTimeMillis();
+
+        BaseEstado base;
+        try {
+            base = CargaEmPipeline.carregar(url, arquivoZip, colunasCarga);
+        } catch (IOException e) {
+            Logger.erro("Erro na carga em pipeline: " + e.getMessage());
+            return null;
+        }
 
-        PerfilEleitor[] novoArray = new PerfilEleitor[novoTamanho];
-        System.arraycopy(eleitores, 0, novoArray, 0, totalRegistros);
-        eleitores = novoArray;
+        base.tabela().compactar();
+
+        long tempo = System.currentTimeMillis() - inicio;
+        Logger.registrar(String.format("Carga em pipeline concluída (%s, %,d registros)",
+                arquivoZip, base.tabela().quantidade()), tempo);
+        exibirResumoTabela(base);
+        exibirResumoArvores(base);
+        return base;
+    }
+
+    /**
+     * Carrega tabela e índices de um snapshot gravado por uma carga anterior.
+     * Um snapshot de outra versão ou corrompido é apagado, e a carga segue
+     * pelo caminho normal (que grava um novo).
+     *
+     * @return Base lida, ou null se o snapshot não era válido
+     */
+    private BaseEstado lerSnapshot(String arquivoSnapshot) {
+        System.out.println("\nLendo snapshot " + arquivoSnapshot + "...");
+        long inicio = System.currentTimeMillis();
+
+        BaseEstado base;
+        try {
+            base = Snapshot.ler(arquivoSnapshot);
+        } catch (IOException e) {
+            Logger.erro("Snapshot descartado, recarregando do CSV: " + e.getMessage());
+            try {
+                Files.deleteIfExists(Paths.get(arquivoSnapshot));
+            } catch (IOException ignorada) {
+                // Será sobrescrito pela próxima gravação
+            }
+            return null;
+        }
+
+        long tempo = System.currentTimeMillis() - inicio;
+        Logger.registrar(String.format("Snapshot carregado (%s, %,d registros)",
+                arquivoSnapshot, base.tabela().quantidade()), tempo);
+        exibirResumoTabela(base);
+        exibirResumoArvores(base);
+        return base;
+    }
+
+    /**
+     * Grava o snapshot dos dados carregados. Uma falha aqui não impede o uso
+     * dos dados: a próxima carga só não terá o snapshot.
+     */
+    private void gravarSnapshot(String arquivoSnapshot, BaseEstado base) {
+        long inicio = System.currentTimeMillis();
+        try {
+            Snapshot.gravar(arquivoSnapshot, base);
+            Logger.registrar("Snapshot gravado em " + arquivoSnapshot, System.currentTimeMillis() - inicio);
+        } catch (IOException e) {
+            Logger.erro("Não foi possível gravar o snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mostra a memória ocupada pela tabela e a economia dos dicionários.
+     */
+    private void exibirResumoTabela(BaseEstado base) {
+        TabelaEleitores tabela = base.tabela();
+        System.out.printf("Tabela colunar: ~%,d KB em memória%n", tabela.bytesEstimados() / 1024);
+
+        // Cada texto distinto existe uma única vez (nos dicionários da tabela)
+        long semDicionario = tabela.bytesTextoSemDicionario();
+        long comDicionario = tabela.bytesTextoComDicionario();
+        String economia = String.format("Dicionários de texto: ~%,d KB (uma String por linha: ~%,d KB, economia de ~%,d KB)",
+                comDicionario / 1024, semDicionario / 1024, (semDicionario - comDicionario) / 1024);
+        System.out.println(economia);
+        Logger.info(economia);
+    }
+
+    /**
+     * Mostra o tamanho dos índices construídos.
+     */
+    private void exibirResumoArvores(BaseEstado base) {
+        System.out.printf("Árvore construída: %,d cidades, %,d registros, altura %d%n", 
+                         base.porCidade().tamanho(), base.porCidade().totalRegistros(),
+                         base.porCidade().altura());
+        System.out.printf("Índices compostos: %,d locais de votação, %,d seções%n",
+                         base.porLocal().tamanho(), base.porSecao().tamanho());
+    }
+
+    /**
+     * Lê o CSV numa única thread, do início ao fim, preparando os índices
+     * a cada lote de linhas lidas.
+     *
+     * @param entrada Conteúdo do CSV (arquivo ou entrada do ZIP); é fechada no fim
+     * @param tamanho Tamanho do CSV em bytes, para reservar a tabela (-1 se desconhecido)
+     */
+    private BaseEstado lerSequencial(InputStream entrada, long tamanho) throws IOException {
+        TabelaEleitores lida;
+        ConstrutorIndices indices;
+        int registros = 0;
+
+        // Leitura direta dos bytes: sem String por linha nem por campo
+        try (LeitorCsv leitor = new LeitorCsv(entrada)) {
+
+            leitor.proximaLinha(); // Pular cabeçalho
+
+            // Reservar a tabela uma única vez, pelo tamanho do CSV
+            int estimativa = tamanho > 0 ? leitor.estimarLinhas(tamanho) : -1;
+            int capacidade = estimativa > 0 ? estimativa : TAMANHO_INICIAL;
+            lida = new TabelaEleitores(capacidade, colunasCarga);
+            indices = new ConstrutorIndices(capacidade);
+
+            while (leitor.proximaLinha()) {
+                if (leitor.adicionarEm(lida)) {
+                    registros++;
+                }
+
+                if (registros % LINHAS_POR_LOTE == 0 && registros > 0) {
+                    // Linhas recém-escritas, ainda no cache
+                    indices.acumular(lida);
+                }
+
+                if (registros % 1000000 == 0 && registros > 0) {
+                    System.out.printf("  Processados: %,d registros...%n", registros);
+                }
+            }
+        }
+
+        lida.compactar();
+        indices.acumular(lida);
+        indices.construir(lida);
+        return indices.base(lida);
     }
 
     /**
      * Retorna as cidades disponíveis no estado carregado.
      *
-     * ATENÇÃO ALUNOS: Esta implementação é propositalmente didática e ineficiente.
+     * ATENÇÃO ALUNOS: A implementação original era propositalmente didática e ineficiente.
      * Ela usa um array de tamanho fixo e uma busca linear aninhada para encontrar
      * cidades únicas, além de um Bubble Sort para ordenar.
      *
@@ -263,52 +645,25 @@ public class AppService {
     public String[][] getCidadesDisponiveis() {
         if (!temDados()) return new String[0][0];
 
-        // Array simples para guardar cidades (máx 1000 por estado)
-        int[] codigos = new int[1000];
-        String[] nomes = new String[1000];
-        int qtd = 0;
-
-        for (int i = 0; i < totalRegistros && qtd < 1000; i++) {
-            int cod = eleitores[i].codCidade();
-            boolean existe = false;
-
-            for (int j = 0; j < qtd; j++) {
-                if (codigos[j] == cod) {
-                    existe = true;
-                    break;
-                }
-            }
-
-            if (!existe) {
-                codigos[qtd] = cod;
-                nomes[qtd] = eleitores[i].nomeCidade();
-                qtd++;
-            }
-        }
-
-        // Ordenar por código (bubble sort simples)
-        for (int i = 0; i < qtd - 1; i++) {
-            for (int j = i + 1; j < qtd; j++) {
-                if (codigos[i] > codigos[j]) {
-                    int tempCod = codigos[i];
-                    codigos[i] = codigos[j];
-                    codigos[j] = tempCod;
-
-                    String tempNome = nomes[i];
-                    nomes[i] = nomes[j];
-                    nomes[j] = tempNome;
-                }
+        // ↓↓↓ MODIFICAÇÃO 4: Cidades pelo percurso em ordem da árvore ↓↓↓
+        // A busca linear com bubble sort não escala para a carga nacional
+        // (~5.600 municípios). O percurso em ordem da árvore por cidade já dá
+        // os códigos ordenados, e o nome vem da primeira linha de cada cidade.
+        // Códigos de município são únicos no país: com várias bases, basta
+        // ordenar a junção das listas por código.
+        List<String[]> cidades = new ArrayList<>();
+        for (BaseEstado base : selecionadas) {
+            ArvoreEytzinger arvore = base.porCidade();
+            for (int codigo : arvore.chavesEmOrdem()) {
+                String nome = base.tabela().texto(Coluna.NM_MUNICIPIO, arvore.primeiraLinha(codigo));
+                cidades.add(new String[]{String.valueOf(codigo), nome});
             }
         }
-
-        // Criar resultado
-        String[][] resultado = new String[qtd][2];
-        for (int i = 0; i < qtd; i++) {
-            resultado[i][0] = String.valueOf(codigos[i]);
-            resultado[i][1] = nomes[i];
+        if (selecionadas.length > 1) {
+            cidades.sort(Comparator.comparingInt(cidade -> Integer.parseInt(cidade[0])));
         }
 
-        return resultado;
+        return cidades.toArray(new String[0][]);
     }
 
     /**
@@ -328,156 +683,105 @@ public class AppService {
             int numeroSecao, int numeroLocal,
             String filtroPerfil, String valorPerfil) {
 
-        long inicio = System.currentTimeMillis();
+        long inicio = System.nanoTime();
         long total = 0;
 
-        // ↓↓↓ MODIFICAÇÃO 3: Usar a árvore para buscas por CIDADE ↓↓↓
-        // SE a busca é por CIDADE, usar a ÁRVORE BINÁRIA (muito mais rápido!)
-        if (filtroAbrangencia.equals("CIDADE")) {
-            PerfilEleitor[] registrosCidade = arvorePorCidade.buscar(codigoCidade);
-            
-            System.out.printf("Árvore: encontrados %,d registros para cidade %d%n", 
-                             registrosCidade.length, codigoCidade);
-            
-            for (int i = 0; i < registrosCidade.length; i++) {
-                PerfilEleitor e = registrosCidade[i];
-                
-                // Aplicar filtro de perfil (mesma lógica do código original)
-                switch (filtroPerfil) {
-                    case "TODOS":
-                        total += e.qtEleitoresPerfil();
-                        break;
-
-                    case "OBRIGATORIEDADE":
-                        if (e.tpObrigatoriedadeVoto().equalsIgnoreCase(valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "GENERO":
-                        if (e.dsGenero().equalsIgnoreCase(valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "FAIXA_ETARIA":
-                        if (verificarFaixaEtaria(e.cdFaixaEtaria(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "ESCOLARIDADE":
-                        if (verificarEscolaridade(e.cdGrauEscolaridade(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "ESTADO_CIVIL":
-                        if (verificarEstadoCivil(e.cdEstadoCivil(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "RACA_COR":
-                        if (verificarRacaCor(e.cdRacaCor(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "DEFICIENCIA":
-                        total += e.qtEleitoresDeficiencia();
-                        break;
-
-                    case "BIOMETRIA":
-                        total += e.qtEleitoresBiometria();
-                        break;
-                }
-            }
-        } else {
-            // PARA OUTROS FILTROS (ESTADO, LOCAL, SEÇÃO), usar o ARRAY ORIGINAL
-            for (int i = 0; i < totalRegistros; i++) {
-                PerfilEleitor e = eleitores[i];
-
-                // Verificar abrangência
-                boolean passaAbrangencia = false;
-
-                switch (filtroAbrangencia) {
-                    case "ESTADO":
-                        passaAbrangencia = true;
-                        break;
-                    case "LOCAL":
-                        passaAbrangencia = (e.codCidade() == codigoCidade &&
-                                           e.nrZona() == numeroZona &&
-                                           e.nrLocalVotacao() == numeroLocal);
-                        break;
-                    case "SECAO":
-                        passaAbrangencia = (e.codCidade() == codigoCidade &&
-                                           e.nrZona() == numeroZona &&
-                                           e.nrSecao() == numeroSecao);
-                        break;
-                }
-
-                if (!passaAbrangencia) continue;
-
-                // Verificar perfil e somar eleitores
-                switch (filtroPerfil) {
-                    case "TODOS":
-                        total += e.qtEleitoresPerfil();
-                        break;
-
-                    case "OBRIGATORIEDADE":
-                        if (e.tpObrigatoriedadeVoto().equalsIgnoreCase(valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "GENERO":
-                        if (e.dsGenero().equalsIgnoreCase(valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "FAIXA_ETARIA":
-                        if (verificarFaixaEtaria(e.cdFaixaEtaria(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "ESCOLARIDADE":
-                        if (verificarEscolaridade(e.cdGrauEscolaridade(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "ESTADO_CIVIL":
-                        if (verificarEstadoCivil(e.cdEstadoCivil(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "RACA_COR":
-                        if (verificarRacaCor(e.cdRacaCor(), valorPerfil)) {
-                            total += e.qtEleitoresPerfil();
-                        }
-                        break;
-
-                    case "DEFICIENCIA":
-                        total += e.qtEleitoresDeficiencia();
-                        break;
-
-                    case "BIOMETRIA":
-                        total += e.qtEleitoresBiometria();
-                        break;
-                }
+        // ↓↓↓ MODIFICAÇÃO 3: Usar as árvores para CIDADE, LOCAL e SEÇÃO ↓↓↓
+        // CIDADE usa a árvore por código de cidade; LOCAL e SEÇÃO usam as
+        // árvores de chave composta. Cada nó já traz os totais por perfil
+        // calculados na inserção, então a resposta sai dos contadores, sem
+        // percorrer registros. Só ESTADO percorre a tabela inteira.
+        // Com várias bases selecionadas ("BR"), cada consulta é feita em todas
+        // e os totais somados; ESTADO percorre as bases em paralelo.
+        // O filtro de perfil é resolvido uma vez aqui, não a cada linha
+        FiltroCompilado filtro = FiltroCompilado.compilar(filtroPerfil, valorPerfil);
+        if (filtro != null) {
+            switch (filtroAbrangencia) {
+                case "CIDADE":
+                    for (BaseEstado base : selecionadas) {
+                        total += filtro.somar(base.porCidade().contadores(codigoCidade));
+                    }
+                    break;
+                case "LOCAL":
+                    ChaveComposta local = new ChaveComposta(codigoCidade, numeroZona, numeroLocal);
+                    for (BaseEstado base : selecionadas) {
+                        total += filtro.somar(base.porLocal().contadores(local));
+                    }
+                    break;
+                case "SECAO":
+                    ChaveComposta secao = new ChaveComposta(codigoCidade, numeroZona, numeroSecao);
+                    for (BaseEstado base : selecionadas) {
+                        total += filtro.somar(base.porSecao().contadores(secao));
+                    }
+                    break;
+                case "ESTADO":
+                    total = Arrays.stream(selecionadas).parallel()
+                            .mapToLong(filtro::somar)
+                            .sum();
+                    break;
             }
         }
 
-        long tempo = System.currentTimeMillis() - inicio;
-        Logger.registrar("Consulta de eleitores (" + filtroAbrangencia + "/" + filtroPerfil + ")", tempo);
+        // Consultas por cidade levam microssegundos: o log só monta a
+        // mensagem das lentas, e o resto da consulta não aloca
+        Logger.registrarConsulta(filtroAbrangencia, filtroPerfil, System.nanoTime() - inicio);
+
+        return total;
+    }
+
+    /**
+     * Calcula a quantidade de eleitores de uma consulta com vários filtros
+     * de perfil combinados (ver Consulta). Com várias bases selecionadas, a
+     * consulta roda em todas, em paralelo, e os totais são somados.
+     */
+    public long calcularEleitores(Consulta consulta) {
+        long inicio = System.nanoTime();
+
+        long total = Arrays.stream(selecionadas).parallel()
+                .mapToLong(consulta::somar)
+                .sum();
+
+        Logger.registrarConsulta(consulta, null, System.nanoTime() - inicio);
 
         return total;
     }
 
+    /**
+     * Histograma de eleitores, biometria e deficiência por valor de uma
+     * dimensão, nas linhas que atendem à consulta.
+     *
+     * Exemplo: eleitores por faixa etária numa cidade:
+     *   agrupar(Consulta.cidade(1392), Dimensao.FAIXA_ETARIA)
+     */
+    public TabelaCruzada agrupar(Consulta consulta, Dimensao linhas) {
+        return agrupar(consulta, linhas, null);
+    }
+
+    /**
+     * Tabela cruzada de eleitores, biometria e deficiência por par de valores
+     * de duas dimensões, nas linhas que atendem à consulta.
+     *
+     * Todos os grupos saem de uma única passada pelas linhas de cada base
+     * (em paralelo), em vez de uma consulta por combinação de valores.
+     *
+     * @param colunas Segunda dimensão, ou null para um histograma
+     */
+    public TabelaCruzada agrupar(Consulta consulta, Dimensao linhas, Dimensao colunas) {
+        long inicio = System.currentTimeMillis();
+
+        List<TabelaCruzada> parciais = Arrays.stream(selecionadas).parallel()
+                .map(base -> TabelaCruzada.calcular(consulta, base, linhas, colunas))
+                .toList();
+        TabelaCruzada resultado = TabelaCruzada.juntar(parciais, linhas, colunas);
+
+        long tempo = System.currentTimeMillis() - inicio;
+        Logger.registrar(String.format("Agrupamento de eleitores (%s) por %s%s: %d x %d grupos",
+                consulta, linhas, colunas != null ? " e " + colunas : "",
+                resultado.linhas(), resultado.colunas()), tempo);
+
+        return resultado;
+    }
+
     /**
      * Calcula estatísticas gerais dos dados carregados.
      *
@@ -488,88 +792,56 @@ public class AppService {
 
         long inicio = System.currentTimeMillis();
 
-        long totalEleitores = 0;
-        long totalBiometria = 0;
-        long totalDeficiencia = 0;
-        long totalNomeSocial = 0;
-
-        for (int i = 0; i < totalRegistros; i++) {
-            totalEleitores += eleitores[i].qtEleitoresPerfil();
-            totalBiometria += eleitores[i].qtEleitoresBiometria();
-            totalDeficiencia += eleitores[i].qtEleitoresDeficiencia();
-            totalNomeSocial += eleitores[i].qtEleitoresIncNmSocial();
+        // Uma soma por base, em paralelo, juntadas no fim
+        long[][] parciais = Arrays.stream(selecionadas).parallel()
+                .map(base -> estatisticas(base.tabela()))
+                .toArray(long[][]::new);
+        long[] totais = new long[4];
+        for (long[] parcial : parciais) {
+            for (int k = 0; k < totais.length; k++) {
+                totais[k] += parcial[k];
+            }
         }
 
         long tempo = System.currentTimeMillis() - inicio;
         Logger.registrar("Cálculo de estatísticas gerais", tempo);
 
-        return new long[]{totalEleitores, totalBiometria, totalDeficiencia, totalNomeSocial};
+        return totais;
+    }
+
+    private static long[] estatisticas(TabelaEleitores tabela) {
+        // As quatro colunas somadas juntas, com as linhas divididas entre threads
+        return SomaParalela.somar(new int[][] {
+                tabela.coluna(Coluna.QT_ELEITORES_PERFIL),
+                tabela.coluna(Coluna.QT_ELEITORES_BIOMETRIA),
+                tabela.coluna(Coluna.QT_ELEITORES_DEFICIENCIA),
+                tabela.coluna(Coluna.QT_ELEITORES_INC_NM_SOCIAL)
+        }, tabela.quantidade());
     }
 
     /**
-     * Retorna os primeiros N registros.
+     * Retorna os primeiros N registros (na carga nacional, na ordem das UFs).
+     *
+     * @throws IllegalStateException se a carga não guardou todas as colunas
      */
     public PerfilEleitor[] listarRegistros(int quantidade) {
         if (!temDados()) return new PerfilEleitor[0];
 
         long inicio = System.currentTimeMillis();
 
-        int limite = Math.min(quantidade, totalRegistros);
+        int limite = Math.max(0, Math.min(quantidade, totalRegistros));
         PerfilEleitor[] resultado = new PerfilEleitor[limite];
-        System.arraycopy(eleitores, 0, resultado, 0, limite);
+        int preenchidos = 0;
+        for (BaseEstado base : selecionadas) {
+            TabelaEleitores tabela = base.tabela();
+            for (int i = 0; i < tabela.quantidade() && preenchidos < limite; i++) {
+                resultado[preenchidos++] = tabela.materializar(i);
+            }
+        }
 
         long tempo = System.currentTimeMillis() - inicio;
         Logger.registrar("Listagem de " + limite + " registros", tempo);
 
         return resultado;
     }
-
-    // ========== Métodos auxiliares de verificação ==========
-
-    // Códigos das faixas etárias conforme padrão do TSE
-    // Índice 0 = opção 1 (16 anos), índice 1 = opção 2 (17 anos), etc.
-    private static final int[] CODIGOS_FAIXA_ETARIA = {
-        1600, 1700, 1800, 2100, 2500, 3000, 3500, 4000, 4500,
-        5000, 5500, 6000, 6500, 7000, 7500, 8000, 8500, 9000, 9500, 10000
-    };
-
-    private boolean verificarFaixaEtaria(int codigo, String opcao) {
-        try {
-            int opcaoNum = Integer.parseInt(opcao);
-            if (opcaoNum < 1 || opcaoNum > CODIGOS_FAIXA_ETARIA.length) {
-                return false;
-            }
-            return codigo == CODIGOS_FAIXA_ETARIA[opcaoNum - 1];
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
-    private boolean verificarEscolaridade(int codigo, String opcao) {
-        try {
-            int opcaoNum = Integer.parseInt(opcao);
-            return codigo == opcaoNum;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
-    private boolean verificarEstadoCivil(int codigo, String opcao) {
-        try {
-            int opcaoNum = Integer.parseInt(opcao);
-            int[] mapa = {0, 1, 3, 9, 5, 7};
-            return codigo == mapa[opcaoNum];
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    private boolean verificarRacaCor(int codigo, String opcao) {
-        try {
-            int opcaoNum = Integer.parseInt(opcao);
-            return codigo == opcaoNum;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-}
\ No newline at end of file
+}
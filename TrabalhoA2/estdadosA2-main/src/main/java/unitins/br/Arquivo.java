@@ -1,12 +1,13 @@
 package unitins.br;
 
 import java.io.*;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.util.Enumeration;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 /**
@@ -18,12 +19,22 @@ public class Arquivo {
     // Tamanho do buffer para operações de I/O (64KB)
     private static final int TAMANHO_BUFFER = 65536;
 
+    // Assinaturas dos registros do diretório central do ZIP
+    private static final int ENTRADA_DIRETORIO_CENTRAL = 0x02014b50;
+    private static final int FIM_DIRETORIO_CENTRAL = 0x06054b50;
+    private static final int FIM_DIRETORIO_CENTRAL_ZIP64 = 0x06064b50;
+    private static final int LOCALIZADOR_ZIP64 = 0x07064b50;
+
     /**
      * Baixa um arquivo de uma URL e salva no destino especificado.
      *
+     * O download usa várias conexões quando o servidor aceita Range, continua
+     * de onde parou se uma tentativa anterior foi interrompida e não baixa de
+     * novo um arquivo que não mudou no servidor (ver DownloadSegmentado).
+     *
      * @param url URL do arquivo a ser baixado
      * @param destino Caminho local onde o arquivo será salvo
-     * @return true se o download foi bem sucedido, false caso contrário
+     * @return true se o download foi bem sucedido (ou o arquivo já estava atualizado), false caso contrário
      */
     public static boolean baixarArquivo(String url, String destino) {
         System.out.println("\nBaixando arquivo do TSE...");
@@ -32,59 +43,16 @@ public class Arquivo {
         long inicio = System.currentTimeMillis();
 
         try {
-            // Criar cliente HTTP com redirecionamento automático
-            HttpClient client = HttpClient.newBuilder()
-                    .followRedirects(HttpClient.Redirect.ALWAYS)
-                    .build();
-
-            // Criar requisição GET
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .build();
-
-            // Enviar requisição e obter resposta como stream
-            HttpResponse<InputStream> response = client.send(request,
-                    HttpResponse.BodyHandlers.ofInputStream());
-
-            // Verificar código de resposta
-            if (response.statusCode() != 200) {
-                Logger.erro("Falha no download. Código HTTP: " + response.statusCode());
-                return false;
-            }
-
-            // Criar diretório de destino se não existir
-            Path caminhoDestino = Paths.get(destino);
-            if (caminhoDestino.getParent() != null) {
-                Files.createDirectories(caminhoDestino.getParent());
-            }
-
-            // Salvar arquivo com buffer grande para melhor performance
-            try (InputStream in = response.body();
-                 BufferedOutputStream out = new BufferedOutputStream(
-                         new FileOutputStream(destino), TAMANHO_BUFFER)) {
-
-                byte[] buffer = new byte[TAMANHO_BUFFER];
-                int bytesLidos;
-                long totalBytes = 0;
-                long ultimoProgresso = 0;
-
-                while ((bytesLidos = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, bytesLidos);
-                    totalBytes += bytesLidos;
-
-                    // Mostrar progresso a cada 10MB
-                    if (totalBytes - ultimoProgresso >= 10485760) {
-                        System.out.printf("  Baixado: %.1f MB%n", totalBytes / 1048576.0);
-                        ultimoProgresso = totalBytes;
-                    }
-                }
-
-                long tempo = System.currentTimeMillis() - inicio;
-                Logger.registrar(String.format("Download concluído (%.2f MB)", totalBytes / 1048576.0), tempo);
+            if (!DownloadSegmentado.baixar(url, destino)) {
+                System.out.println("  Arquivo não mudou no servidor, usando " + destino);
+                Logger.info("Download dispensado: " + destino + " já está atualizado");
                 return true;
             }
 
+            long tempo = System.currentTimeMillis() - inicio;
+            Logger.registrar(String.format("Download concluído (%.2f MB)", tamanho(destino) / 1048576.0), tempo);
+            return true;
+
         } catch (Exception e) {
             Logger.erro("Erro no download: " + e.getMessage());
             return false;
@@ -160,6 +128,69 @@ public class Arquivo {
         }
     }
 
+    /**
+     * Abre o CSV de dentro do ZIP para leitura direta, sem extrair para o disco.
+     * O fluxo devolvido já está posicionado na primeira entrada ".csv" do ZIP;
+     * quem chama deve fechá-lo.
+     *
+     * @param arquivoZip Caminho do arquivo ZIP
+     * @return Fluxo com o conteúdo descompactado do CSV
+     * @throws IOException se o ZIP não puder ser lido ou não tiver CSV
+     */
+    public static InputStream abrirCsvDoZip(String arquivoZip) throws IOException {
+        return abrirCsvDoZip(new FileInputStream(arquivoZip), arquivoZip);
+    }
+
+    /**
+     * Mesmo que abrirCsvDoZip(String), para um ZIP que chega por um fluxo
+     * (por exemplo, enquanto ainda está sendo baixado).
+     *
+     * @param zip Conteúdo do ZIP
+     * @param nome Nome do ZIP, usado só na mensagem de erro
+     * @return Fluxo com o conteúdo descompactado do CSV
+     * @throws IOException se o ZIP não puder ser lido ou não tiver CSV
+     */
+    public static InputStream abrirCsvDoZip(InputStream zip, String nome) throws IOException {
+        return localizarCsvNoZip(zip, nome).conteudo();
+    }
+
+    /**
+     * CSV localizado num ZIP lido como fluxo.
+     *
+     * @param conteudo Fluxo posicionado no conteúdo descompactado do CSV
+     * @param tamanho Tamanho descompactado informado no cabeçalho local da
+     *                entrada, ou -1 se o ZIP só o informa depois dos dados
+     */
+    public record CsvNoZip(InputStream conteudo, long tamanho) {
+    }
+
+    /**
+     * Mesmo que abrirCsvDoZip(InputStream, String), devolvendo também o
+     * tamanho do CSV quando o cabeçalho local da entrada o traz.
+     *
+     * @param zip Conteúdo do ZIP
+     * @param nome Nome do ZIP, usado só na mensagem de erro
+     * @throws IOException se o ZIP não puder ser lido ou não tiver CSV
+     */
+    public static CsvNoZip localizarCsvNoZip(InputStream zip, String nome) throws IOException {
+        ZipInputStream zis = new ZipInputStream(new BufferedInputStream(zip, TAMANHO_BUFFER));
+        try {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".csv")) {
+                    System.out.println("  Lendo direto do ZIP: " + entry.getName());
+                    return new CsvNoZip(zis, entry.getSize());
+                }
+                zis.closeEntry();
+            }
+        } catch (IOException e) {
+            zis.close();
+            throw e;
+        }
+        zis.close();
+        throw new IOException("Nenhum arquivo CSV encontrado em " + nome);
+    }
+
     /**
      * Verifica se um arquivo existe.
      *
@@ -184,6 +215,99 @@ public class Arquivo {
         }
     }
 
+    /**
+     * Retorna o tamanho descompactado da primeira entrada ".csv" de um ZIP,
+     * lido do diretório central (sem descompactar nada).
+     *
+     * @param arquivoZip Caminho do arquivo ZIP
+     * @return Tamanho em bytes, ou -1 se não for possível saber
+     */
+    public static long tamanhoCsvNoZip(String arquivoZip) {
+        try (ZipFile zip = new ZipFile(arquivoZip)) {
+            Enumeration<? extends ZipEntry> entradas = zip.entries();
+            while (entradas.hasMoreElements()) {
+                ZipEntry entry = entradas.nextElement();
+                if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".csv")) {
+                    return entry.getSize();
+                }
+            }
+            return -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Retorna o tamanho descompactado da primeira entrada ".csv" do diretório
+     * central de um ZIP, tendo só os últimos bytes do arquivo (por exemplo,
+     * pedidos com Range enquanto o ZIP ainda é baixado).
+     *
+     * @param fimDoZip Últimos bytes do ZIP, com o diretório central inteiro
+     * @return Tamanho em bytes, ou -1 se não for possível saber
+     */
+    public static long tamanhoCsvNoFimDoZip(byte[] fimDoZip) {
+        ByteBuffer fim = ByteBuffer.wrap(fimDoZip).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Registro de fim do diretório central: 22 bytes mais o comentário do ZIP
+        int registro = -1;
+        for (int i = fimDoZip.length - 22; i >= 0 && i >= fimDoZip.length - 22 - 0xFFFF; i--) {
+            if (fim.getInt(i) == FIM_DIRETORIO_CENTRAL) {
+                registro = i;
+                break;
+            }
+        }
+        if (registro < 0) {
+            return -1;
+        }
+        long tamanhoDiretorio = fim.getInt(registro + 12) & 0xFFFFFFFFL;
+        int fimDiretorio = registro;
+        // ZIP64: o tamanho do diretório está no registro ZIP64, antes do localizador
+        int localizador = registro - 20;
+        if (localizador >= 56 && fim.getInt(localizador) == LOCALIZADOR_ZIP64
+                && fim.getInt(localizador - 56) == FIM_DIRETORIO_CENTRAL_ZIP64) {
+            fimDiretorio = localizador - 56;
+            tamanhoDiretorio = fim.getLong(fimDiretorio + 40);
+        }
+        if (tamanhoDiretorio > fimDiretorio) {
+            return -1; // Diretório maior que os bytes recebidos
+        }
+
+        int i = fimDiretorio - (int) tamanhoDiretorio;
+        while (i + 46 <= fimDiretorio && fim.getInt(i) == ENTRADA_DIRETORIO_CENTRAL) {
+            long tamanho = fim.getInt(i + 24) & 0xFFFFFFFFL;
+            int tamanhoNome = fim.getShort(i + 28) & 0xFFFF;
+            int tamanhoExtra = fim.getShort(i + 30) & 0xFFFF;
+            int tamanhoComentario = fim.getShort(i + 32) & 0xFFFF;
+            int nome = i + 46;
+            int extra = nome + tamanhoNome;
+            int proxima = extra + tamanhoExtra + tamanhoComentario;
+            if (proxima > fimDiretorio) {
+                return -1;
+            }
+            String nomeEntrada = new String(fimDoZip, nome, tamanhoNome, StandardCharsets.ISO_8859_1).toLowerCase();
+            if (nomeEntrada.endsWith(".csv")) {
+                return tamanho != 0xFFFFFFFFL ? tamanho : tamanhoZip64(fim, extra, extra + tamanhoExtra);
+            }
+            i = proxima;
+        }
+        return -1;
+    }
+
+    /**
+     * Tamanho descompactado no campo extra ZIP64 (id 0x0001) de uma entrada.
+     */
+    private static long tamanhoZip64(ByteBuffer fim, int inicio, int limite) {
+        for (int i = inicio; i + 4 <= limite; ) {
+            int id = fim.getShort(i) & 0xFFFF;
+            int tamanho = fim.getShort(i + 2) & 0xFFFF;
+            if (id == 0x0001 && tamanho >= 8 && i + 12 <= limite) {
+                return fim.getLong(i + 4);
+            }
+            i += 4 + tamanho;
+        }
+        return -1;
+    }
+
     /**
      * Cria um diretório se não existir.
      *
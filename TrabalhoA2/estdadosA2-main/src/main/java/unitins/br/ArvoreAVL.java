@@ -0,0 +1,268 @@
+package unitins.br;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Implementação de Árvore AVL (árvore binária de busca auto-balanceada).
+ *
+ * Os arquivos do TSE chegam ordenados por código de município, e inserir
+ * chaves em ordem crescente numa BST comum gera uma "lista ligada" (altura
+ * igual ao número de cidades). A AVL faz rotações a cada inserção para manter
+ * a diferença de altura entre as subárvores de qualquer nó em no máximo 1,
+ * garantindo altura O(log n) e buscas O(log n) em qualquer ordem de entrada.
+ *
+ * @param <T> Tipo da chave de busca (ex: Integer para código de cidade)
+ */
+public class ArvoreAVL<T extends Comparable<T>> implements ArvoreBinariaADT<T> {
+    private final Class<T> tipoChave; // Usado para criar o array de emOrdem()
+    private No<T> raiz;
+    private int tamanho;          // Quantidade de nós (chaves distintas)
+    private int totalRegistros;   // Quantidade total de registros
+
+    /**
+     * Construtor da árvore AVL.
+     * @param tipoChave Classe da chave (ex: Integer.class)
+     */
+    public ArvoreAVL(Class<T> tipoChave) {
+        this.tipoChave = tipoChave;
+        this.raiz = null;
+        this.tamanho = 0;
+        this.totalRegistros = 0;
+    }
+
+    @Override
+    public void inserir(T chave, PerfilEleitor registro) {
+        raiz = inserirRecursivo(raiz, chave, registro);
+    }
+
+    /**
+     * Insere recursivamente e rebalanceia o caminho de volta até a raiz.
+     * A recursão é limitada pela altura da AVL (~1,44 log n).
+     */
+    private No<T> inserirRecursivo(No<T> no, T chave, PerfilEleitor registro) {
+        if (no == null) {
+            No<T> novoNo = new No<>(chave, 100); // Capacidade inicial 100
+            novoNo.adicionarRegistro(registro);
+            tamanho++;
+            totalRegistros++;
+            return novoNo;
+        }
+
+        int comparacao = chave.compareTo(no.chave);
+
+        if (comparacao == 0) {
+            // Chave já existe: nenhuma mudança estrutural, não precisa rebalancear
+            no.adicionarRegistro(registro);
+            totalRegistros++;
+            return no;
+        } else if (comparacao < 0) {
+            no.esquerda = inserirRecursivo(no.esquerda, chave, registro);
+        } else {
+            no.direita = inserirRecursivo(no.direita, chave, registro);
+        }
+
+        return balancear(no);
+    }
+
+    /**
+     * Atualiza a altura do nó e aplica a rotação necessária (LL, RR, LR ou RL).
+     */
+    private No<T> balancear(No<T> no) {
+        atualizarAltura(no);
+        int fator = fatorBalanceamento(no);
+
+        if (fator > 1) {
+            // Pesado à esquerda
+            if (fatorBalanceamento(no.esquerda) < 0) {
+                no.esquerda = rotacionarEsquerda(no.esquerda); // Caso LR
+            }
+            return rotacionarDireita(no);                      // Caso LL
+        }
+        if (fator < -1) {
+            // Pesado à direita
+            if (fatorBalanceamento(no.direita) > 0) {
+                no.direita = rotacionarDireita(no.direita);    // Caso RL
+            }
+            return rotacionarEsquerda(no);                     // Caso RR
+        }
+        return no;
+    }
+
+    private No<T> rotacionarDireita(No<T> no) {
+        No<T> novaRaiz = no.esquerda;
+        no.esquerda = novaRaiz.direita;
+        novaRaiz.direita = no;
+        atualizarAltura(no);
+        atualizarAltura(novaRaiz);
+        return novaRaiz;
+    }
+
+    private No<T> rotacionarEsquerda(No<T> no) {
+        No<T> novaRaiz = no.direita;
+        no.direita = novaRaiz.esquerda;
+        novaRaiz.esquerda = no;
+        atualizarAltura(no);
+        atualizarAltura(novaRaiz);
+        return novaRaiz;
+    }
+
+    private static int altura(No<?> no) {
+        return no == null ? 0 : no.altura;
+    }
+
+    private static void atualizarAltura(No<?> no) {
+        no.altura = Math.max(altura(no.esquerda), altura(no.direita)) + 1;
+    }
+
+    private static int fatorBalanceamento(No<?> no) {
+        return altura(no.esquerda) - altura(no.direita);
+    }
+
+    @Override
+    public PerfilEleitor[] buscar(T chave) {
+        No<T> no = buscarNo(chave);
+        if (no == null) {
+            return new PerfilEleitor[0]; // Retorna array vazio se não encontrou
+        }
+        return no.getRegistros(); // Retorna cópia dos registros
+    }
+
+    /**
+     * Busca iterativa de um nó pela chave.
+     */
+    private No<T> buscarNo(T chave) {
+        No<T> atual = raiz;
+        while (atual != null) {
+            int comparacao = chave.compareTo(atual.chave);
+            if (comparacao == 0) {
+                return atual;
+            }
+            atual = comparacao < 0 ? atual.esquerda : atual.direita;
+        }
+        return null;
+    }
+
+    @Override
+    public void paraCada(T chave, Consumer<PerfilEleitor> acao) {
+        No<T> no = buscarNo(chave);
+        if (no != null) {
+            no.paraCada(acao);
+        }
+    }
+
+    @Override
+    public long somar(T chave, ToLongFunction<PerfilEleitor> funcao) {
+        No<T> no = buscarNo(chave);
+        return no == null ? 0 : no.somar(funcao);
+    }
+
+    @Override
+    public ContadoresPerfil contadores(T chave) {
+        No<T> no = buscarNo(chave);
+        return no == null ? null : no.contadores;
+    }
+
+    @Override
+    public boolean contem(T chave) {
+        return buscarNo(chave) != null;
+    }
+
+    @Override
+    public int tamanho() {
+        return tamanho;
+    }
+
+    @Override
+    public int totalRegistros() {
+        return totalRegistros;
+    }
+
+    @Override
+    public boolean estaVazia() {
+        return raiz == null;
+    }
+
+    /**
+     * A altura fica armazenada na raiz, então a consulta é O(1).
+     */
+    @Override
+    public int altura() {
+        return altura(raiz);
+    }
+
+    /**
+     * Percorre a árvore em ordem (esquerda -> raiz -> direita)
+     * usando uma pilha explícita em vez de recursão.
+     */
+    @Override
+    public T[] emOrdem() {
+        @SuppressWarnings("unchecked")
+        T[] resultado = (T[]) Array.newInstance(tipoChave, tamanho);
+        int i = 0;
+
+        Deque<No<T>> pilha = new ArrayDeque<>(Math.max(altura(raiz), 1));
+        No<T> atual = raiz;
+
+        while (atual != null || !pilha.isEmpty()) {
+            while (atual != null) {
+                pilha.push(atual);
+                atual = atual.esquerda;
+            }
+            atual = pilha.pop();
+            resultado[i++] = atual.chave;
+            atual = atual.direita;
+        }
+
+        return resultado;
+    }
+
+    @Override
+    public PerfilEleitor[] buscarIntervalo(T min, T max) {
+        return BuscaOrdenada.registrosNoIntervalo(raiz, min, max);
+    }
+
+    @Override
+    public T[] chavesNoIntervalo(T min, T max) {
+        List<T> chaves = new ArrayList<>();
+        BuscaOrdenada.visitarIntervalo(raiz, min, max, no -> chaves.add(no.chave));
+        @SuppressWarnings("unchecked")
+        T[] resultado = (T[]) Array.newInstance(tipoChave, chaves.size());
+        return chaves.toArray(resultado);
+    }
+
+    @Override
+    public long somarIntervalo(T min, T max, ToLongFunction<PerfilEleitor> funcao) {
+        long[] soma = new long[1];
+        BuscaOrdenada.visitarIntervalo(raiz, min, max, no -> soma[0] += no.somar(funcao));
+        return soma[0];
+    }
+
+    @Override
+    public T piso(T chave) {
+        return BuscaOrdenada.piso(raiz, chave);
+    }
+
+    @Override
+    public T teto(T chave) {
+        return BuscaOrdenada.teto(raiz, chave);
+    }
+
+    @Override
+    public Iterator<T> iteradorEmOrdem() {
+        return BuscaOrdenada.iterador(raiz);
+    }
+
+    @Override
+    public void limpar() {
+        raiz = null;
+        tamanho = 0;
+        totalRegistros = 0;
+    }
+}
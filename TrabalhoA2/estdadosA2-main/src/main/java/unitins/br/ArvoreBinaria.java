@@ -1,8 +1,13 @@
 package unitins.br;
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 /**
  * Implementação de Árvore Binária de Busca para o sistema eleitoral.
@@ -14,6 +19,7 @@ public class ArvoreBinaria implements ArvoreBinariaADT<Integer> {
     private No<Integer> raiz;
     private int tamanho;          // Quantidade de nós (cidades distintas)
     private int totalRegistros;   // Quantidade total de registros
+    private int altura;           // Altura atual, atualizada a cada inserção
 
     /**
      * Construtor da árvore binária.
@@ -22,47 +28,71 @@ public class ArvoreBinaria implements ArvoreBinariaADT<Integer> {
         this.raiz = null;
         this.tamanho = 0;
         this.totalRegistros = 0;
+        this.altura = 0;
     }
 
+    /**
+     * Insere um registro de forma iterativa.
+     * Sem recursão, uma árvore degenerada (entrada ordenada) não consome
+     * um frame da pilha por nível, e a altura é atualizada com a
+     * profundidade em que o novo nó foi pendurado.
+     */
     @Override
     public void inserir(Integer chave, PerfilEleitor registro) {
-        raiz = inserirRecursivo(raiz, chave, registro);
-    }
+        if (raiz == null) {
+            raiz = criarNo(chave, registro);
+            altura = 1;
+            return;
+        }
 
-    /**
-     * Método recursivo para inserir um registro na árvore.
-     */
-    private No<Integer> inserirRecursivo(No<Integer> no, Integer chave, PerfilEleitor registro) {
-        // Caso base: criar novo nó
-        if (no == null) {
-            No<Integer> novoNo = new No<>(chave, 100); // Capacidade inicial 100
-            novoNo.adicionarRegistro(registro);
-            tamanho++;
-            totalRegistros++;
-            return novoNo;
+        No<Integer> atual = raiz;
+        int profundidade = 1;
+
+        while (true) {
+            int comparacao = chave.compareTo(atual.chave);
+
+            if (comparacao == 0) {
+                // Chave já existe: adicionar registro ao nó existente
+                atual.adicionarRegistro(registro);
+                totalRegistros++;
+                return;
+            }
+
+            profundidade++;
+            if (comparacao < 0) {
+                if (atual.esquerda == null) {
+                    atual.esquerda = criarNo(chave, registro);
+                    break;
+                }
+                atual = atual.esquerda;
+            } else {
+                if (atual.direita == null) {
+                    atual.direita = criarNo(chave, registro);
+                    break;
+                }
+                atual = atual.direita;
+            }
         }
 
-        // Comparar chaves
-        int comparacao = chave.compareTo(no.chave);
-
-        if (comparacao == 0) {
-            // Chave já existe: adicionar registro ao nó existente
-            no.adicionarRegistro(registro);
-            totalRegistros++;
-        } else if (comparacao < 0) {
-            // Inserir na subárvore esquerda
-            no.esquerda = inserirRecursivo(no.esquerda, chave, registro);
-        } else {
-            // Inserir na subárvore direita
-            no.direita = inserirRecursivo(no.direita, chave, registro);
+        if (profundidade > altura) {
+            altura = profundidade;
         }
+    }
 
-        return no;
+    /**
+     * Cria um novo nó já com o primeiro registro.
+     */
+    private No<Integer> criarNo(Integer chave, PerfilEleitor registro) {
+        No<Integer> novoNo = new No<>(chave, 100); // Capacidade inicial 100
+        novoNo.adicionarRegistro(registro);
+        tamanho++;
+        totalRegistros++;
+        return novoNo;
     }
 
     @Override
     public PerfilEleitor[] buscar(Integer chave) {
-        No<Integer> no = buscarNo(raiz, chave);
+        No<Integer> no = buscarNo(chave);
         if (no == null) {
             return new PerfilEleitor[0]; // Retorna array vazio se não encontrou
         }
@@ -70,27 +100,43 @@ public class ArvoreBinaria implements ArvoreBinariaADT<Integer> {
     }
 
     /**
-     * Método recursivo para buscar um nó pela chave.
+     * Busca iterativa de um nó pela chave.
      */
-    private No<Integer> buscarNo(No<Integer> no, Integer chave) {
-        if (no == null) {
-            return null; // Não encontrado
+    private No<Integer> buscarNo(Integer chave) {
+        No<Integer> atual = raiz;
+        while (atual != null) {
+            int comparacao = chave.compareTo(atual.chave);
+            if (comparacao == 0) {
+                return atual; // Encontrou!
+            }
+            atual = comparacao < 0 ? atual.esquerda : atual.direita;
         }
+        return null; // Não encontrado
+    }
 
-        int comparacao = chave.compareTo(no.chave);
-
-        if (comparacao == 0) {
-            return no; // Encontrou!
-        } else if (comparacao < 0) {
-            return buscarNo(no.esquerda, chave); // Buscar na esquerda
-        } else {
-            return buscarNo(no.direita, chave); // Buscar na direita
+    @Override
+    public void paraCada(Integer chave, Consumer<PerfilEleitor> acao) {
+        No<Integer> no = buscarNo(chave);
+        if (no != null) {
+            no.paraCada(acao);
         }
     }
 
+    @Override
+    public long somar(Integer chave, ToLongFunction<PerfilEleitor> funcao) {
+        No<Integer> no = buscarNo(chave);
+        return no == null ? 0 : no.somar(funcao);
+    }
+
+    @Override
+    public ContadoresPerfil contadores(Integer chave) {
+        No<Integer> no = buscarNo(chave);
+        return no == null ? null : no.contadores;
+    }
+
     @Override
     public boolean contem(Integer chave) {
-        return buscarNo(raiz, chave) != null;
+        return buscarNo(chave) != null;
     }
 
     @Override
@@ -108,39 +154,73 @@ public class ArvoreBinaria implements ArvoreBinariaADT<Integer> {
         return raiz == null;
     }
 
+    /**
+     * Retorna a altura mantida durante as inserções (O(1)).
+     */
     @Override
     public int altura() {
-        return calcularAltura(raiz);
+        return altura;
     }
 
     /**
-     * Calcula a altura da árvore recursivamente.
+     * Percorre a árvore em ordem (esquerda -> raiz -> direita)
+     * usando uma pilha explícita em vez de recursão.
      */
-    private int calcularAltura(No<Integer> no) {
-        if (no == null) {
-            return 0;
+    @Override
+    public Integer[] emOrdem() {
+        Integer[] resultado = new Integer[tamanho];
+        int i = 0;
+
+        Deque<No<Integer>> pilha = new ArrayDeque<>(Math.max(altura, 1));
+        No<Integer> atual = raiz;
+
+        while (atual != null || !pilha.isEmpty()) {
+            // Descer tudo à esquerda empilhando o caminho
+            while (atual != null) {
+                pilha.push(atual);
+                atual = atual.esquerda;
+            }
+            atual = pilha.pop();
+            resultado[i++] = atual.chave;
+            atual = atual.direita;
         }
-        int alturaEsquerda = calcularAltura(no.esquerda);
-        int alturaDireita = calcularAltura(no.direita);
-        return Math.max(alturaEsquerda, alturaDireita) + 1;
+
+        return resultado;
     }
 
     @Override
-    public Integer[] emOrdem() {
-        List<Integer> lista = new ArrayList<>();
-        emOrdemRecursivo(raiz, lista);
-        return lista.toArray(new Integer[0]);
+    public PerfilEleitor[] buscarIntervalo(Integer min, Integer max) {
+        return BuscaOrdenada.registrosNoIntervalo(raiz, min, max);
     }
 
-    /**
-     * Percorre a árvore em ordem (esquerda -> raiz -> direita).
-     */
-    private void emOrdemRecursivo(No<Integer> no, List<Integer> lista) {
-        if (no != null) {
-            emOrdemRecursivo(no.esquerda, lista);
-            lista.add(no.chave);
-            emOrdemRecursivo(no.direita, lista);
-        }
+    @Override
+    public Integer[] chavesNoIntervalo(Integer min, Integer max) {
+        List<Integer> chaves = new ArrayList<>();
+        BuscaOrdenada.visitarIntervalo(raiz, min, max, no -> chaves.add(no.chave));
+        Integer[] resultado = new Integer[chaves.size()];
+        return chaves.toArray(resultado);
+    }
+
+    @Override
+    public long somarIntervalo(Integer min, Integer max, ToLongFunction<PerfilEleitor> funcao) {
+        long[] soma = new long[1];
+        BuscaOrdenada.visitarIntervalo(raiz, min, max, no -> soma[0] += no.somar(funcao));
+        return soma[0];
+    }
+
+    @Override
+    public Integer piso(Integer chave) {
+        return BuscaOrdenada.piso(raiz, chave);
+    }
+
+    @Override
+    public Integer teto(Integer chave) {
+        return BuscaOrdenada.teto(raiz, chave);
+    }
+
+    @Override
+    public Iterator<Integer> iteradorEmOrdem() {
+        return BuscaOrdenada.iterador(raiz);
     }
 
     @Override
@@ -148,5 +228,6 @@ public class ArvoreBinaria implements ArvoreBinariaADT<Integer> {
         raiz = null;
         tamanho = 0;
         totalRegistros = 0;
+        altura = 0;
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,9 @@
 package unitins.br;
 
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
 /**
  * TAD (Tipo Abstrato de Dados) para Árvore Binária.
  *
@@ -29,6 +33,35 @@ public interface ArvoreBinariaADT<T extends Comparable<T>> {
      */
     PerfilEleitor[] buscar(T chave);
 
+    /**
+     * Visita cada registro associado a uma chave, sem copiar o array interno.
+     * Prefira este método a buscar() quando os registros só serão lidos uma vez.
+     *
+     * @param chave Chave de busca
+     * @param acao Ação executada para cada registro (nada é feito se a chave não existir)
+     */
+    void paraCada(T chave, Consumer<PerfilEleitor> acao);
+
+    /**
+     * Soma um valor extraído de cada registro associado a uma chave.
+     * Percorre os registros diretamente no nó, sem alocar arrays.
+     *
+     * @param chave Chave de busca
+     * @param funcao Valor de cada registro (ex: PerfilEleitor::qtEleitoresPerfil)
+     * @return Soma dos valores, ou 0 se a chave não existir
+     */
+    long somar(T chave, ToLongFunction<PerfilEleitor> funcao);
+
+    /**
+     * Retorna os totais pré-agregados dos registros de uma chave, calculados
+     * durante a inserção. Permite responder consultas de um único filtro de
+     * perfil em O(log n), sem percorrer os registros.
+     *
+     * @param chave Chave de busca
+     * @return Contadores da chave, ou null se a chave não existir
+     */
+    ContadoresPerfil contadores(T chave);
+
     /**
      * Verifica se a árvore contém uma determinada chave.
      *
@@ -74,6 +107,63 @@ public interface ArvoreBinariaADT<T extends Comparable<T>> {
      */
     T[] emOrdem();
 
+    /**
+     * Retorna os registros de todas as chaves no intervalo [min, max],
+     * agrupados em ordem crescente de chave. Custa O(log n + k), onde k é a
+     * quantidade de chaves no intervalo: só as subárvores que podem conter
+     * chaves do intervalo são visitadas.
+     *
+     * @param min Menor chave do intervalo (inclusive)
+     * @param max Maior chave do intervalo (inclusive)
+     * @return Registros encontrados, ou array vazio
+     */
+    PerfilEleitor[] buscarIntervalo(T min, T max);
+
+    /**
+     * Retorna as chaves no intervalo [min, max] em ordem crescente.
+     * Útil para listar os municípios de uma faixa de códigos.
+     *
+     * @param min Menor chave do intervalo (inclusive)
+     * @param max Maior chave do intervalo (inclusive)
+     * @return Chaves encontradas, ou array vazio
+     */
+    T[] chavesNoIntervalo(T min, T max);
+
+    /**
+     * Soma um valor de cada registro das chaves no intervalo [min, max],
+     * sem copiar registros.
+     *
+     * @param min Menor chave do intervalo (inclusive)
+     * @param max Maior chave do intervalo (inclusive)
+     * @param funcao Valor de cada registro (ex: PerfilEleitor::qtEleitoresPerfil)
+     * @return Soma dos valores, ou 0 se não houver chaves no intervalo
+     */
+    long somarIntervalo(T min, T max, ToLongFunction<PerfilEleitor> funcao);
+
+    /**
+     * Retorna a maior chave menor ou igual à chave informada (piso).
+     *
+     * @param chave Chave de referência
+     * @return Piso da chave, ou null se todas as chaves forem maiores
+     */
+    T piso(T chave);
+
+    /**
+     * Retorna a menor chave maior ou igual à chave informada (teto).
+     *
+     * @param chave Chave de referência
+     * @return Teto da chave, ou null se todas as chaves forem menores
+     */
+    T teto(T chave);
+
+    /**
+     * Iterador preguiçoso sobre as chaves em ordem crescente.
+     * Cada chave é produzida sob demanda; a memória usada é O(altura).
+     *
+     * @return Iterador das chaves em ordem
+     */
+    Iterator<T> iteradorEmOrdem();
+
     /**
      * Limpa todos os dados da árvore.
      */
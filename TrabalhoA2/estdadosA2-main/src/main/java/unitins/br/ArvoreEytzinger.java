@@ -0,0 +1,373 @@
+package unitins.br;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Índice estático por código de cidade com layout de Eytzinger (ordem BFS).
+ *
+ * Os dados são carregados uma vez por carregarDados() e depois só lidos, então
+ * não precisamos de nós ligados por ponteiros espalhados pelo heap. As chaves
+ * ficam num único int[] em ordem de largura (raiz na posição 1, filhos de k em
+ * 2k e 2k+1): os primeiros níveis da busca ficam nas mesmas linhas de cache e a
+ * descida é só aritmética de índices, sem desvio imprevisível. Para cada posição
+ * guardamos o intervalo [inicio, fim) daquela chave num array de índices de
+ * linhas da TabelaEleitores agrupado por cidade. As consultas usam os
+ * contadores ou paraCadaLinha()/somarLinhas(); nenhum PerfilEleitor é criado.
+ *
+ * A árvore é construída de uma vez com construir() e é somente leitura, por
+ * isso não implementa ArvoreBinariaADT (que exige inserir() e devolve
+ * registros PerfilEleitor).
+ */
+public class ArvoreEytzinger {
+    private final int[] chaves;             // Chaves em ordem de Eytzinger (posição 0 não usada)
+    private final int[] inicio;             // Início dos registros de cada posição (inclusive)
+    private final int[] fim;                // Fim dos registros de cada posição (exclusive)
+    private final int[] linhas;             // Índices de linhas da tabela agrupados por chave
+    private final ContadoresPerfil[] contadores; // Totais pré-agregados de cada posição
+    private final int tamanho;              // Quantidade de chaves distintas
+    private final int totalRegistros;       // Quantidade total de registros
+
+    private ArvoreEytzinger(int[] chaves, int[] inicio, int[] fim, int[] linhas,
+                            ContadoresPerfil[] contadores, int tamanho, int totalRegistros) {
+        this.chaves = chaves;
+        this.inicio = inicio;
+        this.fim = fim;
+        this.linhas = linhas;
+        this.contadores = contadores;
+        this.tamanho = tamanho;
+        this.totalRegistros = totalRegistros;
+    }
+
+    /**
+     * Constrói o índice a partir da tabela carregada.
+     *
+     * Uma passada pela coluna CD_MUNICIPIO detecta as "corridas" de linhas
+     * consecutivas com a mesma cidade. Se cada cidade aparece numa única corrida
+     * (arquivo agrupado), os intervalos são as próprias faixas de linhas. Caso
+     * contrário, as corridas são ordenadas por cidade (mantendo a ordem original
+     * entre elas) e seus índices de linha copiados para posições contíguas.
+     * O custo é O(n + r log r), com r = nº de corridas.
+     *
+     * @param tabela Tabela carregada
+     * @return Índice pronto para consulta
+     */
+    public static ArvoreEytzinger construir(TabelaEleitores tabela) {
+        int quantidade = tabela.quantidade();
+        int[] cidade = tabela.coluna(Coluna.CD_MUNICIPIO);
+
+        // 1. Detectar corridas: posições onde a cidade muda
+        int[] inicioCorrida = new int[16];
+        int corridas = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (i == 0 || cidade[i] != cidade[i - 1]) {
+                if (corridas == inicioCorrida.length) {
+                    inicioCorrida = Arrays.copyOf(inicioCorrida, corridas * 2);
+                }
+                inicioCorrida[corridas++] = i;
+            }
+        }
+
+        return construir(tabela, inicioCorrida, corridas);
+    }
+
+    /**
+     * Constrói o índice com as corridas já detectadas (por exemplo, durante
+     * a leitura, pelo ConstrutorIndices).
+     *
+     * @param inicioCorrida Linha inicial de cada corrida, em ordem crescente
+     * @param corridas Quantidade de posições válidas em inicioCorrida
+     */
+    static ArvoreEytzinger construir(TabelaEleitores tabela, int[] inicioCorrida, int corridas) {
+        int quantidade = tabela.quantidade();
+        int[] cidade = tabela.coluna(Coluna.CD_MUNICIPIO);
+
+        // 2. Ordenar corridas por (cidade, posição original) empacotando em long
+        long[] ordem = new long[corridas];
+        for (int r = 0; r < corridas; r++) {
+            int chave = cidade[inicioCorrida[r]];
+            ordem[r] = ((long) chave << 32) | r;
+        }
+        Arrays.sort(ordem);
+
+        // 3. Chaves distintas (em ordem crescente) e seus intervalos
+        int[] ordenadas = new int[corridas];
+        int[] inicioOrdenado = new int[corridas];
+        int[] fimOrdenado = new int[corridas];
+        int distintas = 0;
+        for (int j = 0; j < corridas; j++) {
+            int chave = (int) (ordem[j] >> 32);
+            if (distintas == 0 || ordenadas[distintas - 1] != chave) {
+                ordenadas[distintas++] = chave;
+            }
+        }
+
+        int[] agrupados = new int[quantidade];
+        if (distintas == corridas) {
+            // Cada cidade é uma única corrida: as linhas já estão agrupadas
+            for (int i = 0; i < quantidade; i++) {
+                agrupados[i] = i;
+            }
+            for (int j = 0; j < corridas; j++) {
+                int r = (int) ordem[j];
+                inicioOrdenado[j] = inicioCorrida[r];
+                fimOrdenado[j] = r + 1 < corridas ? inicioCorrida[r + 1] : quantidade;
+            }
+        } else {
+            // Copiar as linhas das corridas de cada cidade para posições contíguas
+            int destino = 0;
+            int k = -1;
+            for (int j = 0; j < corridas; j++) {
+                int r = (int) ordem[j];
+                int chave = cidade[inicioCorrida[r]];
+                if (k < 0 || ordenadas[k] != chave) {
+                    k++;
+                    inicioOrdenado[k] = destino;
+                }
+                int de = inicioCorrida[r];
+                int ate = r + 1 < corridas ? inicioCorrida[r + 1] : quantidade;
+                for (int i = de; i < ate; i++) {
+                    agrupados[destino++] = i;
+                }
+                fimOrdenado[k] = destino;
+            }
+        }
+
+        // 4. Distribuir as chaves ordenadas no layout de Eytzinger
+        int[] chaves = new int[distintas + 1];
+        int[] inicio = new int[distintas + 1];
+        int[] fim = new int[distintas + 1];
+        preencher(ordenadas, inicioOrdenado, fimOrdenado, chaves, inicio, fim, 0, 1, distintas);
+
+        // 5. Pré-agregar os totais de cada chave (uma passada pelas linhas)
+        ContadoresPerfil[] contadores = agregar(tabela, inicio, fim, agrupados, distintas);
+
+        return new ArvoreEytzinger(chaves, inicio, fim, agrupados, contadores, distintas, quantidade);
+    }
+
+    private static ContadoresPerfil[] agregar(TabelaEleitores tabela, int[] inicio, int[] fim,
+                                              int[] linhas, int distintas) {
+        ContadoresPerfil[] contadores = new ContadoresPerfil[distintas + 1];
+        for (int k = 1; k <= distintas; k++) {
+            contadores[k] = new ContadoresPerfil();
+            for (int i = inicio[k]; i < fim[k]; i++) {
+                contadores[k].adicionar(tabela, linhas[i]);
+            }
+        }
+        return contadores;
+    }
+
+    /**
+     * Grava a estrutura do índice no snapshot (os contadores são recalculados na leitura).
+     */
+    void gravar(Snapshot.Saida saida) throws IOException {
+        saida.escreverInt(tamanho);
+        saida.escreverInts(chaves, tamanho + 1);
+        saida.escreverInts(inicio, tamanho + 1);
+        saida.escreverInts(fim, tamanho + 1);
+        saida.escreverInt(linhas.length);
+        saida.escreverInts(linhas, linhas.length);
+    }
+
+    /**
+     * Recria um índice gravado por gravar() sobre a tabela já lida do snapshot.
+     */
+    static ArvoreEytzinger ler(Snapshot.Entrada entrada, TabelaEleitores tabela) throws IOException {
+        int distintas = entrada.lerInt();
+        int[] chaves = entrada.lerInts(distintas + 1);
+        int[] inicio = entrada.lerInts(distintas + 1);
+        int[] fim = entrada.lerInts(distintas + 1);
+        int[] linhas = entrada.lerInts(entrada.lerInt());
+        if (linhas.length != tabela.quantidade()) {
+            throw new IOException("Snapshot com índice por cidade inconsistente");
+        }
+        ContadoresPerfil[] contadores = agregar(tabela, inicio, fim, linhas, distintas);
+        return new ArvoreEytzinger(chaves, inicio, fim, linhas, contadores, distintas, linhas.length);
+    }
+
+    /**
+     * Percorre a árvore implícita em ordem, consumindo as chaves ordenadas.
+     * A profundidade da recursão é a altura da árvore (log2 n).
+     *
+     * @return Próximo índice a ser consumido em ordenadas
+     */
+    private static int preencher(int[] ordenadas, int[] inicioOrdenado, int[] fimOrdenado,
+                                 int[] chaves, int[] inicio, int[] fim,
+                                 int i, int k, int n) {
+        if (k <= n) {
+            i = preencher(ordenadas, inicioOrdenado, fimOrdenado, chaves, inicio, fim, i, 2 * k, n);
+            chaves[k] = ordenadas[i];
+            inicio[k] = inicioOrdenado[i];
+            fim[k] = fimOrdenado[i];
+            i++;
+            i = preencher(ordenadas, inicioOrdenado, fimOrdenado, chaves, inicio, fim, i, 2 * k + 1, n);
+        }
+        return i;
+    }
+
+    /**
+     * Posição da menor chave >= chave no layout de Eytzinger.
+     *
+     * A descida não compara igualdade: em cada nível só escolhe o filho
+     * (2k ou 2k+1). No fim, os bits 1 finais de k indicam quantos níveis
+     * subir para chegar no menor elemento >= chave.
+     *
+     * @return Posição encontrada, ou 0 se todas as chaves forem menores
+     */
+    private int limiteInferior(int chave) {
+        int k = 1;
+        while (k <= tamanho) {
+            k = 2 * k + (chaves[k] < chave ? 1 : 0);
+        }
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Localiza a posição exata da chave.
+     *
+     * @return Posição da chave, ou 0 se não existir
+     */
+    private int posicao(int chave) {
+        int k = limiteInferior(chave);
+        return (k != 0 && chaves[k] == chave) ? k : 0;
+    }
+
+    /**
+     * Posição da menor chave (nó mais à esquerda), ou 0 se vazia.
+     */
+    private int primeiro() {
+        if (tamanho == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k <= tamanho) {
+            k = 2 * k;
+        }
+        return k;
+    }
+
+    /**
+     * Próxima posição em ordem, ou 0 se k for a última.
+     */
+    private int sucessor(int k) {
+        if (2 * k + 1 <= tamanho) {
+            // Mais à esquerda da subárvore direita
+            k = 2 * k + 1;
+            while (2 * k <= tamanho) {
+                k = 2 * k;
+            }
+            return k;
+        }
+        // Subir enquanto for filho direito, depois mais um nível
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Visita os índices de linha de uma chave, sem materializar registros.
+     */
+    public void paraCadaLinha(int chave, IntConsumer acao) {
+        int k = posicao(chave);
+        for (int i = inicio[k], f = fim[k]; i < f; i++) {
+            acao.accept(linhas[i]);
+        }
+    }
+
+    /**
+     * Soma um valor de cada linha da chave, sem materializar registros.
+     */
+    public long somarLinhas(int chave, IntToLongFunction funcao) {
+        int k = posicao(chave);
+        long soma = 0;
+        for (int i = inicio[k], f = fim[k]; i < f; i++) {
+            soma += funcao.applyAsLong(linhas[i]);
+        }
+        return soma;
+    }
+
+    /**
+     * Primeira linha da chave na tabela (ordem do arquivo), ou -1 se ela não existir.
+     */
+    public int primeiraLinha(int chave) {
+        int k = posicao(chave);
+        return inicio[k] < fim[k] ? linhas[inicio[k]] : -1;
+    }
+
+    /**
+     * Totais pré-agregados da chave, ou null se ela não existir.
+     */
+    public ContadoresPerfil contadores(int chave) {
+        return contadores[posicao(chave)]; // Posição 0 guarda null
+    }
+
+    /**
+     * Verifica se a chave existe, sem boxing.
+     */
+    public boolean contem(int chave) {
+        return posicao(chave) != 0;
+    }
+
+    /**
+     * Estimativa do heap ocupado pelo índice (arrays e contadores).
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesEstimados() {
+        long total = 16 + 4L * chaves.length + 16 + 4L * inicio.length + 16 + 4L * fim.length
+                + 16 + 4L * linhas.length + 16 + 4L * contadores.length;
+        for (ContadoresPerfil c : contadores) {
+            if (c != null) {
+                total += c.bytesEstimados();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Retorna as chaves em ordem crescente (percurso em ordem da árvore implícita).
+     */
+    public int[] chavesEmOrdem() {
+        int[] resultado = new int[tamanho];
+        for (int k = primeiro(), i = 0; k != 0; k = sucessor(k)) {
+            resultado[i++] = chaves[k];
+        }
+        return resultado;
+    }
+
+    /**
+     * Chaves no intervalo [min, max] em ordem crescente: O(log n + k).
+     */
+    public int[] chavesNoIntervalo(int min, int max) {
+        int qtd = 0;
+        for (int k = limiteInferior(min); k != 0 && chaves[k] <= max; k = sucessor(k)) {
+            qtd++;
+        }
+        int[] resultado = new int[qtd];
+        for (int k = limiteInferior(min), i = 0; i < qtd; k = sucessor(k)) {
+            resultado[i++] = chaves[k];
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Quantidade de chaves distintas
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return Quantidade total de linhas indexadas
+     */
+    public int totalRegistros() {
+        return totalRegistros;
+    }
+
+    /**
+     * A árvore implícita é completa: altura = floor(log2 n) + 1.
+     */
+    public int altura() {
+        return 32 - Integer.numberOfLeadingZeros(tamanho);
+    }
+}
@@ -0,0 +1,20 @@
+package unitins.br;
+
+/**
+ * Dados de um estado prontos para consulta: a tabela, os índices por
+ * cidade, local e seção e os bitmaps por valor de perfil construídos sobre ela.
+ */
+public record BaseEstado(TabelaEleitores tabela, ArvoreEytzinger porCidade,
+                         IndiceComposto porLocal, IndiceComposto porSecao,
+                         IndiceBitmap porPerfil) {
+
+    /**
+     * Estimativa do heap ocupado pela tabela e pelos índices.
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesEstimados() {
+        return tabela.bytesEstimados() + porCidade.bytesEstimados()
+                + porLocal.bytesEstimados() + porSecao.bytesEstimados() + porPerfil.bytesEstimados();
+    }
+}
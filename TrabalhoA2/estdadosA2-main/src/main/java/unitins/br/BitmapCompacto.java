@@ -0,0 +1,202 @@
+package unitins.br;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto de linhas da tabela comprimido no estilo "roaring".
+ *
+ * As linhas são agrupadas em blocos de 65.536 (os 16 bits altos do índice).
+ * Cada bloco guarda os 16 bits baixos de um jeito conforme a densidade:
+ * - esparso: array ordenado de char, até LIMITE_ESPARSO linhas (2 bytes por linha);
+ * - denso: mapa de 65.536 bits em long[1024] (8 KB fixos).
+ * Blocos sem nenhuma linha não existem. Um filtro que aceita poucas linhas
+ * visita só elas, sem passar pelas outras linhas da tabela.
+ *
+ * É imutável; é montado por um Construtor com as linhas em ordem crescente.
+ */
+public final class BitmapCompacto {
+
+    // Acima disso o bloco denso (8 KB) ocupa menos que o array (2 bytes por linha)
+    private static final int LIMITE_ESPARSO = 4096;
+    private static final int PALAVRAS_POR_BLOCO = 1024;
+
+    private final char[] chaves;      // 16 bits altos de cada bloco, em ordem
+    private final char[][] esparsos;  // Bloco esparso (ou null se denso)
+    private final long[][] densos;    // Bloco denso (ou null se esparso)
+    private final int cardinalidade;
+
+    private BitmapCompacto(char[] chaves, char[][] esparsos, long[][] densos, int cardinalidade) {
+        this.chaves = chaves;
+        this.esparsos = esparsos;
+        this.densos = densos;
+        this.cardinalidade = cardinalidade;
+    }
+
+    /**
+     * @return Quantidade de linhas no conjunto
+     */
+    public int cardinalidade() {
+        return cardinalidade;
+    }
+
+    /**
+     * @return Quantidade de blocos de 65.536 linhas com alguma linha no conjunto
+     */
+    public int blocos() {
+        return chaves.length;
+    }
+
+    /**
+     * Soma valores[linha] para cada linha do conjunto.
+     *
+     * @param valores Coluna da tabela (ex.: QT_ELEITORES_PERFIL)
+     */
+    public long somar(int[] valores) {
+        return somar(valores, 0, chaves.length);
+    }
+
+    /**
+     * Soma valores[linha] para as linhas de um intervalo de blocos (para
+     * dividir a soma entre threads, ver SomaParalela).
+     *
+     * @param deBloco Primeiro bloco (inclusive)
+     * @param ateBloco Último bloco (exclusive)
+     */
+    public long somar(int[] valores, int deBloco, int ateBloco) {
+        long total = 0;
+        for (int b = deBloco; b < ateBloco; b++) {
+            int base = chaves[b] << 16;
+            char[] esparso = esparsos[b];
+            if (esparso != null) {
+                for (char baixo : esparso) {
+                    total += valores[base | baixo];
+                }
+                continue;
+            }
+            long[] palavras = densos[b];
+            for (int p = 0; p < PALAVRAS_POR_BLOCO; p++) {
+                long palavra = palavras[p];
+                int inicio = base | (p << 6);
+                while (palavra != 0) {
+                    total += valores[inicio + Long.numberOfTrailingZeros(palavra)];
+                    palavra &= palavra - 1;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Visita as linhas do conjunto em ordem crescente.
+     */
+    public void paraCada(IntConsumer acao) {
+        for (int b = 0; b < chaves.length; b++) {
+            int base = chaves[b] << 16;
+            char[] esparso = esparsos[b];
+            if (esparso != null) {
+                for (char baixo : esparso) {
+                    acao.accept(base | baixo);
+                }
+                continue;
+            }
+            long[] palavras = densos[b];
+            for (int p = 0; p < PALAVRAS_POR_BLOCO; p++) {
+                long palavra = palavras[p];
+                int inicio = base | (p << 6);
+                while (palavra != 0) {
+                    acao.accept(inicio + Long.numberOfTrailingZeros(palavra));
+                    palavra &= palavra - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimativa do heap ocupado.
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesEstimados() {
+        long total = 16 + 3 * 16 + 2L * chaves.length + 8L * chaves.length * 2;
+        for (int b = 0; b < chaves.length; b++) {
+            total += esparsos[b] != null ? 16 + 2L * esparsos[b].length : 16 + 8L * PALAVRAS_POR_BLOCO;
+        }
+        return total;
+    }
+
+    /**
+     * Monta um BitmapCompacto a partir de linhas adicionadas em ordem crescente.
+     */
+    public static final class Construtor {
+        private char[] chaves = new char[4];
+        private char[][] esparsos = new char[4][];
+        private long[][] densos = new long[4][];
+        private int blocos;
+        private int cardinalidade;
+
+        // Bloco em montagem
+        private int chaveAtual = -1;
+        private char[] esparso = new char[16];
+        private int qtdEsparso;
+        private long[] denso;
+
+        /**
+         * Acrescenta uma linha (maior que todas as anteriores).
+         */
+        public void adicionar(int linha) {
+            int chave = linha >>> 16;
+            if (chave != chaveAtual) {
+                fecharBloco();
+                chaveAtual = chave;
+            }
+            char baixo = (char) linha;
+            if (denso != null) {
+                denso[baixo >>> 6] |= 1L << baixo;
+            } else if (qtdEsparso < LIMITE_ESPARSO) {
+                if (qtdEsparso == esparso.length) {
+                    esparso = Arrays.copyOf(esparso, Math.min(qtdEsparso * 2, LIMITE_ESPARSO));
+                }
+                esparso[qtdEsparso++] = baixo;
+            } else {
+                // Passou do limite: converter o bloco para mapa de bits
+                denso = new long[PALAVRAS_POR_BLOCO];
+                for (int i = 0; i < qtdEsparso; i++) {
+                    denso[esparso[i] >>> 6] |= 1L << esparso[i];
+                }
+                denso[baixo >>> 6] |= 1L << baixo;
+            }
+            cardinalidade++;
+        }
+
+        private void fecharBloco() {
+            if (chaveAtual < 0) {
+                return;
+            }
+            if (blocos == chaves.length) {
+                chaves = Arrays.copyOf(chaves, blocos * 2);
+                esparsos = Arrays.copyOf(esparsos, blocos * 2);
+                densos = Arrays.copyOf(densos, blocos * 2);
+            }
+            chaves[blocos] = (char) chaveAtual;
+            if (denso != null) {
+                densos[blocos] = denso;
+            } else {
+                esparsos[blocos] = Arrays.copyOf(esparso, qtdEsparso);
+            }
+            blocos++;
+            chaveAtual = -1;
+            qtdEsparso = 0;
+            denso = null;
+        }
+
+        /**
+         * @return O conjunto montado (o construtor não deve mais ser usado)
+         */
+        public BitmapCompacto construir() {
+            fecharBloco();
+            return new BitmapCompacto(Arrays.copyOf(chaves, blocos), Arrays.copyOf(esparsos, blocos),
+                    Arrays.copyOf(densos, blocos), cardinalidade);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package unitins.br;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Operações de ordem (intervalo, piso, teto e iteração) sobre árvores
+ * binárias de busca formadas por No. Compartilhadas por ArvoreBinaria e
+ * ArvoreAVL, que só diferem na forma de inserir.
+ *
+ * Todas são iterativas, então funcionam mesmo numa árvore degenerada.
+ */
+final class BuscaOrdenada {
+
+    private BuscaOrdenada() {
+    }
+
+    /**
+     * Visita, em ordem crescente, os nós com chave em [min, max].
+     * Subárvores inteiramente fora do intervalo não são visitadas: O(h + k).
+     */
+    static <T extends Comparable<T>> void visitarIntervalo(No<T> raiz, T min, T max, Consumer<No<T>> visita) {
+        if (min.compareTo(max) > 0) {
+            return;
+        }
+
+        Deque<No<T>> pilha = new ArrayDeque<>();
+        No<T> atual = raiz;
+
+        while (atual != null || !pilha.isEmpty()) {
+            // Descer à esquerda só enquanto ainda pode haver chaves >= min
+            while (atual != null) {
+                if (atual.chave.compareTo(min) < 0) {
+                    atual = atual.direita;
+                } else {
+                    pilha.push(atual);
+                    atual = atual.esquerda;
+                }
+            }
+            if (pilha.isEmpty()) {
+                return;
+            }
+            No<T> no = pilha.pop();
+            if (no.chave.compareTo(max) > 0) {
+                return; // Daqui em diante todas as chaves passam de max
+            }
+            visita.accept(no);
+            atual = no.direita;
+        }
+    }
+
+    /**
+     * Junta os registros dos nós do intervalo num único array.
+     */
+    static <T extends Comparable<T>> PerfilEleitor[] registrosNoIntervalo(No<T> raiz, T min, T max) {
+        List<No<T>> nos = new ArrayList<>();
+        visitarIntervalo(raiz, min, max, nos::add);
+
+        int total = 0;
+        for (No<T> no : nos) {
+            total += no.qtdRegistros;
+        }
+
+        PerfilEleitor[] resultado = new PerfilEleitor[total];
+        int destino = 0;
+        for (No<T> no : nos) {
+            System.arraycopy(no.registros, 0, resultado, destino, no.qtdRegistros);
+            destino += no.qtdRegistros;
+        }
+        return resultado;
+    }
+
+    /**
+     * Maior chave <= chave, ou null.
+     */
+    static <T extends Comparable<T>> T piso(No<T> raiz, T chave) {
+        T resultado = null;
+        No<T> atual = raiz;
+        while (atual != null) {
+            int comparacao = chave.compareTo(atual.chave);
+            if (comparacao == 0) {
+                return atual.chave;
+            }
+            if (comparacao < 0) {
+                atual = atual.esquerda;
+            } else {
+                resultado = atual.chave; // Candidato; pode haver um maior à direita
+                atual = atual.direita;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Menor chave >= chave, ou null.
+     */
+    static <T extends Comparable<T>> T teto(No<T> raiz, T chave) {
+        T resultado = null;
+        No<T> atual = raiz;
+        while (atual != null) {
+            int comparacao = chave.compareTo(atual.chave);
+            if (comparacao == 0) {
+                return atual.chave;
+            }
+            if (comparacao > 0) {
+                atual = atual.direita;
+            } else {
+                resultado = atual.chave; // Candidato; pode haver um menor à esquerda
+                atual = atual.esquerda;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Iterador em ordem com pilha explícita: cada next() custa O(1) amortizado.
+     */
+    static <T extends Comparable<T>> Iterator<T> iterador(No<T> raiz) {
+        return new Iterator<T>() {
+            private final Deque<No<T>> pilha = new ArrayDeque<>();
+            {
+                empilharEsquerda(raiz);
+            }
+
+            private void empilharEsquerda(No<T> no) {
+                while (no != null) {
+                    pilha.push(no);
+                    no = no.esquerda;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !pilha.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (pilha.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                No<T> no = pilha.pop();
+                empilharEsquerda(no.direita);
+                return no.chave;
+            }
+        };
+    }
+}
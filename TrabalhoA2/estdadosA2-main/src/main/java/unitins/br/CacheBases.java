@@ -0,0 +1,155 @@
+package unitins.br;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Bases de estado mantidas em memória, com limite de heap.
+ *
+ * Cada base entra com o tamanho estimado das suas estruturas
+ * (BaseEstado.bytesEstimados()). Quando o total passa do orçamento, as bases
+ * usadas há mais tempo são descartadas (LRU, pela ordem de acesso do
+ * LinkedHashMap), exceto as fixadas: as que estão sendo consultadas. Voltar
+ * para uma UF que ainda está no cache não precisa de nenhuma leitura.
+ */
+public class CacheBases {
+
+    /**
+     * Base guardada e o tamanho medido quando entrou no cache.
+     */
+    private record Entrada(BaseEstado base, long bytes) {
+    }
+
+    // accessOrder = true: get() move a entrada para o fim (mais recente)
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(32, 0.75f, true);
+    private final Set<String> fixadas = new HashSet<>();
+    private long orcamento;
+    private long ocupado;
+
+    /**
+     * @param orcamento Heap máximo (em bytes) ocupado pelas bases guardadas
+     */
+    public CacheBases(long orcamento) {
+        this.orcamento = orcamento;
+    }
+
+    /**
+     * Retorna a base da UF e a marca como usada agora.
+     *
+     * @return A base, ou null se não está no cache
+     */
+    public BaseEstado obter(String uf) {
+        Entrada entrada = entradas.get(uf);
+        return entrada != null ? entrada.base() : null;
+    }
+
+    /**
+     * Verifica se a UF está no cache, sem alterar a ordem de uso.
+     */
+    public boolean contem(String uf) {
+        return entradas.containsKey(uf);
+    }
+
+    /**
+     * Guarda (ou substitui) a base de uma UF e descarta as menos usadas se o
+     * orçamento foi excedido. A base recém-guardada nunca é descartada aqui.
+     */
+    public void guardar(String uf, BaseEstado base) {
+        Entrada nova = new Entrada(base, base.bytesEstimados());
+        Entrada anterior = entradas.put(uf, nova);
+        if (anterior != null) {
+            ocupado -= anterior.bytes();
+        }
+        ocupado += nova.bytes();
+        liberar(uf);
+    }
+
+    /**
+     * Define as UFs que não podem ser descartadas (as consultadas no momento)
+     * e aplica o orçamento às demais.
+     */
+    public void fixar(Collection<String> ufs) {
+        fixadas.clear();
+        fixadas.addAll(ufs);
+        liberar(null);
+    }
+
+    /**
+     * Altera o orçamento, descartando bases se ele diminuiu.
+     */
+    public void setOrcamento(long orcamento) {
+        this.orcamento = orcamento;
+        liberar(null);
+    }
+
+    /**
+     * Descarta as bases menos usadas, fora as fixadas e a indicada, até o
+     * total caber no orçamento.
+     */
+    private void liberar(String preservada) {
+        Iterator<Map.Entry<String, Entrada>> it = entradas.entrySet().iterator();
+        while (ocupado > orcamento && it.hasNext()) {
+            Map.Entry<String, Entrada> e = it.next();
+            String uf = e.getKey();
+            if (fixadas.contains(uf) || uf.equals(preservada)) {
+                continue;
+            }
+            it.remove();
+            ocupado -= e.getValue().bytes();
+            Logger.info(String.format("Estado %s removido da memória (~%,d KB, usado há mais tempo)",
+                    uf, e.getValue().bytes() / 1024));
+        }
+        if (ocupado > orcamento) {
+            Logger.info(String.format("Bases em uso ocupam ~%,d KB, acima do orçamento de ~%,d KB",
+                    ocupado / 1024, orcamento / 1024));
+        }
+    }
+
+    /**
+     * @return UFs guardadas, em ordem alfabética
+     */
+    public List<String> ufs() {
+        return new ArrayList<>(ordenadas().keySet());
+    }
+
+    /**
+     * @return Bases guardadas, na ordem alfabética das UFs (não altera a ordem de uso)
+     */
+    public List<BaseEstado> bases() {
+        List<BaseEstado> resultado = new ArrayList<>();
+        for (Entrada e : ordenadas().values()) {
+            resultado.add(e.base());
+        }
+        return resultado;
+    }
+
+    private TreeMap<String, Entrada> ordenadas() {
+        // Percorrer entrySet() não conta como acesso
+        TreeMap<String, Entrada> ordenadas = new TreeMap<>();
+        for (Map.Entry<String, Entrada> e : entradas.entrySet()) {
+            ordenadas.put(e.getKey(), e.getValue());
+        }
+        return ordenadas;
+    }
+
+    /**
+     * @return Heap estimado ocupado pelas bases guardadas, em bytes
+     */
+    public long ocupado() {
+        return ocupado;
+    }
+
+    /**
+     * @return Orçamento de heap, em bytes
+     */
+    public long orcamento() {
+        return orcamento;
+    }
+}
@@ -0,0 +1,433 @@
+package unitins.br;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Carga em pipeline: download, descompactação, leitura do CSV e preparação
+ * dos índices rodam ao mesmo tempo, cada etapa numa thread, ligadas por filas
+ * limitadas.
+ *
+ *   download --(blocos do ZIP)--> descompactação --(blocos do CSV)--> leitura
+ *            --(lotes de linhas)--> índices
+ *
+ * A leitura começa assim que os primeiros bytes chegam, e os índices são
+ * preparados enquanto as linhas são lidas, então o tempo total fica perto
+ * do tempo da etapa mais lenta (normalmente o download). As filas limitadas
+ * seguram a etapa mais rápida quando a seguinte está atrasada, sem acumular
+ * o arquivo inteiro na memória. O ZIP baixado também é gravado no disco.
+ *
+ * A tabela e os índices são reservados uma única vez, pela estimativa de
+ * LeitorCsv.estimarLinhas() sobre o tamanho descompactado do CSV: o do
+ * cabeçalho local da entrada ou, se o ZIP só o informa depois dos dados, o
+ * do diretório central, pedido com Range (só o fim do ZIP) junto do download.
+ *
+ * Se uma etapa falha, as outras são canceladas e carregar() lança o erro.
+ */
+public final class CargaEmPipeline {
+
+    private static final int TAMANHO_BLOCO = 256 * 1024;
+    private static final int BLOCOS_NA_FILA = 32;
+    private static final int LINHAS_POR_LOTE = 65536;
+    // Só se o tamanho do CSV não puder ser obtido (a tabela cresce se precisar)
+    private static final int TAMANHO_INICIAL = 100000;
+    // Fim do ZIP pedido para ler o diretório central
+    private static final int BYTES_FIM_DO_ZIP = 64 * 1024;
+    private static final long ESPERA_FIM_DO_ZIP_MS = 2000;
+
+    // Fim de fluxo nas filas
+    private static final byte[] FIM_BYTES = new byte[0];
+    private static final Lote FIM_LOTES = new Lote(-1, null, null, null, null);
+
+    /**
+     * Linhas [0, ate) já lidas, com as colunas usadas pelos índices.
+     * Os arrays são os da tabela no momento da publicação.
+     */
+    private record Lote(int ate, int[] cidade, int[] zona, int[] local, int[] secao) {
+    }
+
+    private final Canal<byte[]> baixados = new Canal<>(FIM_BYTES);
+    private final Canal<byte[]> descompactados = new Canal<>(FIM_BYTES);
+    private final Canal<Lote> lotes = new Canal<>(FIM_LOTES);
+    private final AtomicReference<Throwable> erro = new AtomicReference<>();
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.ALWAYS)
+            .build();
+
+    // Tamanho do CSV no cabeçalho local (descompactação) ou no diretório central
+    private volatile long tamanhoCsv = -1;
+    private CompletableFuture<Long> tamanhoNoFimDoZip;
+
+    // Criados pela leitura, com a capacidade estimada, antes do primeiro lote
+    private TabelaEleitores tabela;
+    private ConstrutorIndices indices;
+
+    private CargaEmPipeline() {
+    }
+
+    /**
+     * Baixa o ZIP e carrega o CSV contido nele, com as etapas sobrepostas.
+     *
+     * @param url Endereço do ZIP (no formato do TSE)
+     * @param arquivoZip Onde gravar uma cópia do ZIP baixado
+     * @param projecao Colunas a carregar
+     * @return Tabela e índices
+     * @throws IOException se alguma etapa falhar
+     */
+    public static BaseEstado carregar(String url, String arquivoZip, Set<Coluna> projecao) throws IOException {
+        return new CargaEmPipeline().executar(url, arquivoZip, projecao);
+    }
+
+    private BaseEstado executar(String url, String arquivoZip, Set<Coluna> projecao) throws IOException {
+        tamanhoNoFimDoZip = pedirTamanhoNoFimDoZip(url);
+
+        Thread[] etapas = {
+            etapa("download", baixados, () -> baixar(url, arquivoZip)),
+            etapa("descompactação", descompactados, this::descompactar),
+            etapa("leitura", lotes, () -> ler(projecao)),
+            etapa("índices", null, this::prepararIndices)
+        };
+        for (Thread t : etapas) {
+            t.start();
+        }
+        try {
+            for (Thread t : etapas) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            cancelar(e);
+            Thread.currentThread().interrupt();
+        }
+
+        Throwable falha = erro.get();
+        if (falha instanceof IOException io) {
+            throw io;
+        }
+        if (falha != null) {
+            throw new IOException("Falha na carga em pipeline: " + falha, falha);
+        }
+        return indices.base(tabela);
+    }
+
+    /**
+     * Cria a thread de uma etapa. Ao terminar (com ou sem erro), a etapa
+     * sinaliza o fim na sua fila de saída.
+     */
+    private Thread etapa(String nome, Canal<?> saida, Tarefa corpo) {
+        Thread t = new Thread(() -> {
+            try {
+                corpo.executar();
+            } catch (Throwable e) {
+                cancelar(e);
+            } finally {
+                if (saida != null) {
+                    saida.fechar();
+                }
+            }
+        }, "carga-" + nome);
+        t.setDaemon(true);
+        return t;
+    }
+
+    /**
+     * Registra o primeiro erro e libera as etapas bloqueadas nas filas.
+     */
+    private void cancelar(Throwable e) {
+        erro.compareAndSet(null, e);
+        baixados.cancelar();
+        descompactados.cancelar();
+        lotes.cancelar();
+    }
+
+    // ========== Etapas ==========
+
+    /**
+     * Etapa 1: recebe o ZIP por HTTP, grava no disco e repassa os blocos.
+     */
+    private void baixar(String url, String arquivoZip) throws IOException, InterruptedException {
+        System.out.println("\nBaixando e carregando em pipeline...");
+        System.out.println("URL: " + url);
+        long inicio = System.currentTimeMillis();
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Falha no download. Código HTTP: " + response.statusCode());
+            }
+
+            Path caminhoDestino = Paths.get(arquivoZip);
+            if (caminhoDestino.getParent() != null) {
+                Files.createDirectories(caminhoDestino.getParent());
+            }
+
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(arquivoZip), TAMANHO_BLOCO)) {
+                long totalBytes = 0;
+                while (true) {
+                    byte[] bloco = new byte[TAMANHO_BLOCO];
+                    int n = in.readNBytes(bloco, 0, bloco.length);
+                    if (n == 0) {
+                        break;
+                    }
+                    out.write(bloco, 0, n);
+                    baixados.enviar(n == bloco.length ? bloco : Arrays.copyOf(bloco, n));
+                    totalBytes += n;
+                }
+                long tempo = System.currentTimeMillis() - inicio;
+                Logger.registrar(String.format("Download concluído (%.2f MB)", totalBytes / 1048576.0), tempo);
+            }
+        }
+    }
+
+    /**
+     * Etapa 2: descompacta a entrada .csv do ZIP conforme os blocos chegam.
+     */
+    private void descompactar() throws IOException {
+        EntradaCanal zip = new EntradaCanal(baixados);
+        Arquivo.CsvNoZip entrada = Arquivo.localizarCsvNoZip(zip, "ZIP baixado");
+        // Antes do primeiro bloco: a leitura o vê ao receber o bloco pela fila
+        tamanhoCsv = entrada.tamanho();
+        try (InputStream csv = entrada.conteudo()) {
+            while (true) {
+                byte[] bloco = new byte[TAMANHO_BLOCO];
+                int n = csv.readNBytes(bloco, 0, bloco.length);
+                if (n == 0) {
+                    break;
+                }
+                descompactados.enviar(n == bloco.length ? bloco : Arrays.copyOf(bloco, n));
+            }
+        }
+        // Consumir o resto do ZIP (outras entradas) para o download não ficar
+        // bloqueado com a fila cheia
+        zip.descartarRestante();
+    }
+
+    /**
+     * Etapa 3: lê as linhas do CSV para a tabela e publica lotes para os índices.
+     */
+    private void ler(Set<Coluna> projecao) throws IOException {
+        long inicio = System.currentTimeMillis();
+        int publicadas = 0;
+
+        try (LeitorCsv leitor = new LeitorCsv(new EntradaCanal(descompactados))) {
+            leitor.proximaLinha(); // Pular cabeçalho
+
+            // Reservar a tabela uma única vez, pelo tamanho do CSV
+            long tamanho = tamanhoCsv >= 0 ? tamanhoCsv : tamanhoNoFimDoZip();
+            int estimativa = tamanho > 0 ? leitor.estimarLinhas(tamanho) : -1;
+            int capacidade = estimativa > 0 ? estimativa : TAMANHO_INICIAL;
+            tabela = new TabelaEleitores(capacidade, projecao);
+            indices = new ConstrutorIndices(capacidade);
+
+            while (leitor.proximaLinha()) {
+                leitor.adicionarEm(tabela);
+                if (tabela.quantidade() - publicadas >= LINHAS_POR_LOTE) {
+                    publicadas = publicar(tabela);
+                }
+            }
+        }
+        publicar(tabela);
+
+        long tempo = System.currentTimeMillis() - inicio;
+        Logger.registrar(String.format("Leitura do CSV concluída (%,d registros)", tabela.quantidade()), tempo);
+    }
+
+    /**
+     * Tamanho do CSV pelo diretório central, se chegou a tempo; senão -1.
+     */
+    private long tamanhoNoFimDoZip() {
+        try {
+            return tamanhoNoFimDoZip.get(ESPERA_FIM_DO_ZIP_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException | TimeoutException e) {
+            return -1;
+        }
+    }
+
+    private int publicar(TabelaEleitores tabela) throws IOException {
+        int ate = tabela.quantidade();
+        lotes.enviar(new Lote(ate,
+                tabela.coluna(Coluna.CD_MUNICIPIO), tabela.coluna(Coluna.NR_ZONA),
+                tabela.coluna(Coluna.NR_LOCAL_VOTACAO), tabela.coluna(Coluna.NR_SECAO)));
+        return ate;
+    }
+
+    /**
+     * Etapa 4: acumula os lotes e, quando a leitura termina, conclui os índices.
+     */
+    private void prepararIndices() throws IOException {
+        Lote lote;
+        while ((lote = lotes.receber()) != FIM_LOTES) {
+            indices.acumular(lote.ate(), lote.cidade(), lote.zona(), lote.local(), lote.secao());
+        }
+        if (erro.get() == null) {
+            indices.construir(tabela);
+        }
+    }
+
+    /**
+     * Pede com Range só o fim do ZIP, onde fica o diretório central, em
+     * paralelo com o download. Se o servidor não aceita Range (responde 200
+     * com o arquivo inteiro), o corpo é abandonado e o tamanho fica -1.
+     */
+    private CompletableFuture<Long> pedirTamanhoNoFimDoZip(String url) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Range", "bytes=-" + BYTES_FIM_DO_ZIP)
+                .GET()
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    try (InputStream in = response.body()) {
+                        return response.statusCode() == 206
+                                ? Arquivo.tamanhoCsvNoFimDoZip(in.readNBytes(BYTES_FIM_DO_ZIP))
+                                : -1L;
+                    } catch (IOException e) {
+                        return -1L;
+                    }
+                });
+    }
+
+    // ========== Filas entre as etapas ==========
+
+    @FunctionalInterface
+    private interface Tarefa {
+        void executar() throws Exception;
+    }
+
+    /**
+     * Fila limitada entre duas etapas. Espera em intervalos curtos para
+     * perceber o cancelamento em vez de ficar bloqueada para sempre.
+     */
+    private static final class Canal<T> {
+        private final BlockingQueue<T> fila = new ArrayBlockingQueue<>(BLOCOS_NA_FILA);
+        private final T fim;
+        private volatile boolean cancelado;
+
+        Canal(T fim) {
+            this.fim = fim;
+        }
+
+        void enviar(T item) throws IOException {
+            try {
+                while (!fila.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    if (cancelado) {
+                        throw new IOException("Carga cancelada");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Carga interrompida");
+            }
+        }
+
+        T receber() throws IOException {
+            try {
+                T item;
+                while ((item = fila.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    if (cancelado) {
+                        return fim;
+                    }
+                }
+                return item;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Carga interrompida");
+            }
+        }
+
+        /**
+         * Sinaliza o fim do fluxo (ignorado se a carga foi cancelada).
+         */
+        void fechar() {
+            try {
+                enviar(fim);
+            } catch (IOException e) {
+                // Cancelada: quem lê já recebe o fim por receber()
+            }
+        }
+
+        void cancelar() {
+            cancelado = true;
+            fila.clear();
+        }
+    }
+
+    /**
+     * InputStream que lê os blocos de um Canal em sequência.
+     */
+    private static final class EntradaCanal extends InputStream {
+        private final Canal<byte[]> canal;
+        private byte[] atual = new byte[0];
+        private int posicao;
+        private boolean terminou;
+
+        EntradaCanal(Canal<byte[]> canal) {
+            this.canal = canal;
+        }
+
+        private boolean disponivel() throws IOException {
+            while (!terminou && posicao == atual.length) {
+                byte[] proximo = canal.receber();
+                if (proximo == FIM_BYTES) {
+                    terminou = true;
+                } else {
+                    atual = proximo;
+                    posicao = 0;
+                }
+            }
+            return !terminou;
+        }
+
+        void descartarRestante() throws IOException {
+            while (disponivel()) {
+                posicao = atual.length;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return disponivel() ? atual[posicao++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int deslocamento, int tamanho) throws IOException {
+            if (tamanho == 0) {
+                return 0;
+            }
+            if (!disponivel()) {
+                return -1;
+            }
+            int n = Math.min(tamanho, atual.length - posicao);
+            System.arraycopy(atual, posicao, destino, deslocamento, n);
+            posicao += n;
+            return n;
+        }
+    }
+}
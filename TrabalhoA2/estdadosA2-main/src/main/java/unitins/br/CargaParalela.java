@@ -0,0 +1,248 @@
+package unitins.br;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Leitura paralela do CSV extraído, com o arquivo mapeado em memória.
+ *
+ * O arquivo é dividido em blocos que começam sempre no início de uma linha.
+ * Cada bloco é mapeado (FileChannel.map) e lido por um LeitorCsv numa tarefa
+ * do ForkJoinPool, gerando uma tabela parcial com dicionários próprios. As
+ * parciais são anexadas na ordem do arquivo (TabelaEleitores.anexar), então
+ * a quantidade, a ordem das linhas e os códigos dos dicionários são os mesmos
+ * da leitura sequencial.
+ *
+ * A tabela final é reservada antes da leitura, pela estimativa do início do
+ * arquivo (LeitorCsv.estimarLinhas), e cada parcial é anexada e liberada
+ * assim que o seu bloco termina, enquanto os seguintes ainda são lidos: só
+ * as parciais prontas e ainda não anexadas ocupam memória junto da tabela
+ * final. Os índices são preparados (ConstrutorIndices) a cada parcial
+ * anexada, sem uma passada a mais pela tabela completa.
+ */
+public final class CargaParalela {
+
+    // Blocos pequenos demais só aumentam o custo de juntar as parciais
+    private static final long TAMANHO_MINIMO_BLOCO = 8L << 20;
+    // Um MappedByteBuffer tem no máximo 2 GB
+    private static final long TAMANHO_MAXIMO_BLOCO = 1L << 30;
+    // Mais blocos que threads, para equilibrar blocos mais lentos
+    private static final int BLOCOS_POR_THREAD = 4;
+    // Início do arquivo lido para estimar a quantidade de linhas
+    private static final long TAMANHO_AMOSTRA = 1L << 20;
+
+    private CargaParalela() {
+    }
+
+    /**
+     * Lê o CSV inteiro (pulando o cabeçalho) usando todos os núcleos.
+     *
+     * @param arquivo Caminho do CSV extraído
+     * @param projecao Colunas a carregar
+     * @return Tabela com todas as linhas válidas, na ordem do arquivo, e seus índices
+     */
+    public static BaseEstado carregar(String arquivo, Set<Coluna> projecao) throws IOException {
+        return carregar(arquivo, projecao, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Mesmo que carregar(arquivo, projecao), com o número de threads fixado
+     * (medição de escalabilidade).
+     */
+    static BaseEstado carregar(String arquivo, Set<Coluna> projecao, int threads) throws IOException {
+        try (FileChannel canal = FileChannel.open(Path.of(arquivo), StandardOpenOption.READ)) {
+            long[] limites = dividir(canal, threads * BLOCOS_POR_THREAD);
+            System.out.printf("  Lendo %,d blocos com %d threads%n", limites.length - 1, threads);
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<LeituraBloco> tarefas = new ArrayList<>();
+                for (int b = 0; b + 1 < limites.length; b++) {
+                    LeituraBloco tarefa = new LeituraBloco(canal, limites[b], limites[b + 1], b == 0, projecao);
+                    tarefas.add(tarefa);
+                    pool.execute(tarefa);
+                }
+
+                int capacidade = estimarLinhas(canal);
+                TabelaEleitores tabela = new TabelaEleitores(capacidade, projecao);
+                ConstrutorIndices indices = new ConstrutorIndices(capacidade);
+
+                // Juntar na ordem do arquivo, cada bloco assim que fica pronto
+                for (int b = 0; b < tarefas.size(); b++) {
+                    TabelaEleitores parcial = tarefas.get(b).join();
+                    // A tarefa guarda o resultado: soltá-la libera a parcial
+                    tarefas.set(b, null);
+                    tabela.anexar(parcial);
+                    indices.acumular(tabela);
+                }
+                tabela.compactar();
+                indices.construir(tabela);
+                return indices.base(tabela);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Linhas esperadas no arquivo inteiro, pela amostra do início.
+     */
+    private static int estimarLinhas(FileChannel canal) throws IOException {
+        long tamanho = canal.size();
+        MappedByteBuffer inicio = canal.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(tamanho, TAMANHO_AMOSTRA));
+        try (LeitorCsv leitor = new LeitorCsv(new EntradaMapeada(inicio))) {
+            leitor.proximaLinha(); // Pular cabeçalho
+            int estimativa = leitor.estimarLinhas(tamanho);
+            // Sem linhas na amostra: a tabela cresce em anexar()
+            return estimativa > 0 ? estimativa : 1024;
+        }
+    }
+
+    /**
+     * Calcula os limites dos blocos: limites[b] é o início do bloco b
+     * (sempre o início de uma linha) e o último valor é o tamanho do arquivo.
+     */
+    private static long[] dividir(FileChannel canal, int blocosDesejados) throws IOException {
+        long tamanho = canal.size();
+        long tamanhoBloco = Math.max(TAMANHO_MINIMO_BLOCO, (tamanho + blocosDesejados - 1) / blocosDesejados);
+        tamanhoBloco = Math.min(tamanhoBloco, TAMANHO_MAXIMO_BLOCO);
+
+        List<Long> limites = new ArrayList<>();
+        limites.add(0L);
+        long inicio = 0;
+        while (tamanho - inicio > tamanhoBloco) {
+            long corte = inicioDaProximaLinha(canal, inicio + tamanhoBloco);
+            if (corte >= tamanho) {
+                break;
+            }
+            limites.add(corte);
+            inicio = corte;
+        }
+        limites.add(tamanho);
+
+        long[] resultado = new long[limites.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = limites.get(i);
+        }
+        return resultado;
+    }
+
+    /**
+     * Posição logo após o primeiro fim de linha (\n, \r ou \r\n) a partir de posicao,
+     * ou o tamanho do arquivo se não houver.
+     */
+    private static long inicioDaProximaLinha(FileChannel canal, long posicao) throws IOException {
+        ByteBuffer janela = ByteBuffer.allocate(64 * 1024);
+        long tamanho = canal.size();
+        while (posicao < tamanho) {
+            janela.clear();
+            int lidos = canal.read(janela, posicao);
+            if (lidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < lidos; i++) {
+                byte b = janela.get(i);
+                if (b == '\n') {
+                    return posicao + i + 1;
+                }
+                if (b == '\r') {
+                    // \r\n conta como um único fim de linha
+                    long depois = posicao + i + 1;
+                    if (depois < tamanho && byteEm(canal, depois) == '\n') {
+                        depois++;
+                    }
+                    return depois;
+                }
+            }
+            posicao += lidos;
+        }
+        return tamanho;
+    }
+
+    private static byte byteEm(FileChannel canal, long posicao) throws IOException {
+        ByteBuffer um = ByteBuffer.allocate(1);
+        canal.read(um, posicao);
+        return um.get(0);
+    }
+
+    /**
+     * Lê as linhas de um bloco do arquivo para uma tabela parcial.
+     */
+    private static final class LeituraBloco extends RecursiveTask<TabelaEleitores> {
+        // ForkJoinTask é Serializable, mas as tarefas nunca são serializadas
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel canal;
+        private final long inicio;
+        private final long fim;
+        private final boolean temCabecalho;
+        private final transient Set<Coluna> projecao;
+
+        LeituraBloco(FileChannel canal, long inicio, long fim, boolean temCabecalho, Set<Coluna> projecao) {
+            this.canal = canal;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.temCabecalho = temCabecalho;
+            this.projecao = projecao;
+        }
+
+        @Override
+        protected TabelaEleitores compute() {
+            try {
+                MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+
+                try (LeitorCsv leitor = new LeitorCsv(new EntradaMapeada(mapa))) {
+                    if (temCabecalho) {
+                        leitor.proximaLinha(); // Pular cabeçalho
+                    }
+                    TabelaEleitores parcial = new TabelaEleitores(leitor.estimarLinhas(fim - inicio), projecao);
+                    while (leitor.proximaLinha()) {
+                        leitor.adicionarEm(parcial);
+                    }
+                    return parcial;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * InputStream sobre um trecho mapeado, para reaproveitar o LeitorCsv.
+     */
+    private static final class EntradaMapeada extends InputStream {
+        private final ByteBuffer mapa;
+
+        EntradaMapeada(ByteBuffer mapa) {
+            this.mapa = mapa;
+        }
+
+        @Override
+        public int read() {
+            return mapa.hasRemaining() ? mapa.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int deslocamento, int tamanho) {
+            if (!mapa.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(tamanho, mapa.remaining());
+            mapa.get(destino, deslocamento, n);
+            return n;
+        }
+    }
+}
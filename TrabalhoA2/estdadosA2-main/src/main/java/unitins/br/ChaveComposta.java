@@ -0,0 +1,90 @@
+package unitins.br;
+
+/**
+ * Chave composta (cidade, zona, número) usada nos índices de LOCAL e SEÇÃO.
+ *
+ * O campo "numero" é o número do local de votação no índice por local
+ * e o número da seção no índice por seção. A ordem é lexicográfica:
+ * primeiro cidade, depois zona, depois número.
+ *
+ * empacotar() converte a chave num long com a mesma ordem (cidade nos 24 bits
+ * altos, zona e número com 20 bits cada), usado pelo IndiceComposto. Fora
+ * desses intervalos dois valores diferentes cairiam na mesma chave: essas
+ * chaves viram FORA_DO_INTERVALO, e o IndiceComposto nunca as encontra.
+ */
+public record ChaveComposta(int codCidade, int nrZona, int numero) implements Comparable<ChaveComposta> {
+
+    private static final int BITS = 20;
+    private static final long MASCARA = (1L << BITS) - 1;
+    // Deslocamento para que valores negativos (#NULO = -1) mantenham a ordem
+    private static final int DESLOCAMENTO = 1 << (BITS - 1);
+    private static final int LIMITE_CIDADE = 1 << (64 - 2 * BITS - 1);
+
+    /**
+     * Resultado de empacotar() para chaves fora dos limites. Não corresponde a
+     * nenhuma chave representável (a menor cidade aceita é -2^23 + 1).
+     */
+    public static final long FORA_DO_INTERVALO = Long.MIN_VALUE;
+
+    /**
+     * Empacota a chave num long que preserva a ordem de compareTo().
+     *
+     * @return A chave empacotada, ou FORA_DO_INTERVALO se ela não é representavel()
+     */
+    public static long empacotar(int codCidade, int nrZona, int numero) {
+        if (!representavel(codCidade, nrZona, numero)) {
+            return FORA_DO_INTERVALO;
+        }
+        return ((long) codCidade << (2 * BITS))
+                | ((nrZona + DESLOCAMENTO) & MASCARA) << BITS
+                | ((numero + DESLOCAMENTO) & MASCARA);
+    }
+
+    /**
+     * Verifica se a chave cabe em empacotar() sem colidir com outra: cidade em
+     * (-2^23, 2^23) e zona/número em [-2^19, 2^19). Os códigos do TSE (e o
+     * #NULO = -1) ficam bem dentro desses limites.
+     */
+    public static boolean representavel(int codCidade, int nrZona, int numero) {
+        return codCidade > -LIMITE_CIDADE && codCidade < LIMITE_CIDADE
+                && nrZona >= -DESLOCAMENTO && nrZona < DESLOCAMENTO
+                && numero >= -DESLOCAMENTO && numero < DESLOCAMENTO;
+    }
+
+    /**
+     * @return true se esta chave cabe em empacotar() (ver representavel(int, int, int))
+     */
+    public boolean representavel() {
+        return representavel(codCidade, nrZona, numero);
+    }
+
+    /**
+     * @return A chave empacotada com empacotar()
+     */
+    public long empacotada() {
+        return empacotar(codCidade, nrZona, numero);
+    }
+
+    /**
+     * Inverso de empacotar() (para chaves representáveis).
+     */
+    public static ChaveComposta desempacotar(long chave) {
+        return new ChaveComposta(
+                (int) (chave >> (2 * BITS)),
+                (int) ((chave >>> BITS) & MASCARA) - DESLOCAMENTO,
+                (int) (chave & MASCARA) - DESLOCAMENTO);
+    }
+
+    @Override
+    public int compareTo(ChaveComposta outra) {
+        int comparacao = Integer.compare(codCidade, outra.codCidade);
+        if (comparacao != 0) {
+            return comparacao;
+        }
+        comparacao = Integer.compare(nrZona, outra.nrZona);
+        if (comparacao != 0) {
+            return comparacao;
+        }
+        return Integer.compare(numero, outra.numero);
+    }
+}
@@ -0,0 +1,85 @@
+package unitins.br;
+
+import java.util.EnumSet;
+
+/**
+ * Colunas do arquivo perfil_eleitor_secao do TSE, na ordem do CSV.
+ * O ordinal de cada constante é a posição do campo na linha.
+ */
+public enum Coluna {
+    DT_GERACAO(true),
+    HH_GERACAO(true),
+    ANO_ELEICAO(false),
+    SG_UF(true),
+    CD_MUNICIPIO(false),
+    NM_MUNICIPIO(true),
+    NR_ZONA(false),
+    NR_SECAO(false),
+    NR_LOCAL_VOTACAO(false),
+    NM_LOCAL_VOTACAO(true),
+    CD_GENERO(false),
+    DS_GENERO(true),
+    CD_ESTADO_CIVIL(false),
+    DS_ESTADO_CIVIL(true),
+    CD_FAIXA_ETARIA(false),
+    DS_FAIXA_ETARIA(true),
+    CD_GRAU_ESCOLARIDADE(false),
+    DS_GRAU_ESCOLARIDADE(true),
+    CD_RACA_COR(false),
+    DS_RACA_COR(true),
+    CD_IDENTIDADE_GENERO(false),
+    DS_IDENTIDADE_GENERO(true),
+    CD_QUILOMBOLA(false),
+    DS_QUILOMBOLA(true),
+    CD_INTERPRETE_LIBRAS(false),
+    DS_INTERPRETE_LIBRAS(true),
+    TP_OBRIGATORIEDADE_VOTO(true),
+    QT_ELEITORES_PERFIL(false),
+    QT_ELEITORES_BIOMETRIA(false),
+    QT_ELEITORES_DEFICIENCIA(false),
+    QT_ELEITORES_INC_NM_SOCIAL(false);
+
+    private final boolean texto;
+
+    Coluna(boolean texto) {
+        this.texto = texto;
+    }
+
+    /**
+     * @return true se a coluna é de texto (armazenada codificada por dicionário)
+     */
+    public boolean texto() {
+        return texto;
+    }
+
+    /**
+     * @return Todas as colunas (carga completa, necessária para materializar registros)
+     */
+    public static EnumSet<Coluna> todas() {
+        return EnumSet.allOf(Coluna.class);
+    }
+
+    /**
+     * Colunas lidas pelos índices (chaves e contadores por perfil). Toda
+     * carga inclui estas, qualquer que seja a projeção pedida.
+     */
+    public static EnumSet<Coluna> indices() {
+        return EnumSet.of(CD_MUNICIPIO, NR_ZONA, NR_LOCAL_VOTACAO, NR_SECAO,
+                CD_GENERO, DS_GENERO, CD_ESTADO_CIVIL, CD_FAIXA_ETARIA,
+                CD_GRAU_ESCOLARIDADE, CD_RACA_COR, TP_OBRIGATORIEDADE_VOTO,
+                QT_ELEITORES_PERFIL, QT_ELEITORES_BIOMETRIA, QT_ELEITORES_DEFICIENCIA);
+    }
+
+    /**
+     * Colunas usadas pelas consultas do AppService (contagens e estatísticas):
+     * as dos índices, o nome do município e o total com nome social. Deixa de
+     * fora datas de geração, nome do local e as descrições que só servem para
+     * listar registros.
+     */
+    public static EnumSet<Coluna> consultas() {
+        EnumSet<Coluna> colunas = indices();
+        colunas.add(NM_MUNICIPIO);
+        colunas.add(QT_ELEITORES_INC_NM_SOCIAL);
+        return colunas;
+    }
+}
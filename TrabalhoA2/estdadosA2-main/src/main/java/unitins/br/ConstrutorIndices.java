@@ -0,0 +1,100 @@
+package unitins.br;
+
+import java.util.Arrays;
+
+/**
+ * Prepara os índices por cidade, local e seção enquanto a tabela ainda está
+ * sendo lida (usado pela leitura sequencial, pela CargaParalela e pela
+ * CargaEmPipeline).
+ *
+ * A cada lote de linhas já lidas, detecta as corridas de cidade e calcula as
+ * chaves empacotadas de local e seção. No fim só restam a ordenação e a
+ * pré-agregação, feitas em construir(), junto com os bitmaps por perfil.
+ *
+ * Os arrays de coluna recebidos em acumular() são lidos só até a linha
+ * informada; o leitor pode continuar escrevendo nas linhas seguintes.
+ */
+class ConstrutorIndices {
+    private int processadas;
+    private int[] inicioCorrida = new int[16];
+    private int corridas;
+    private int ultimaCidade;
+    private long[] chavesLocal;
+    private long[] chavesSecao;
+
+    private ArvoreEytzinger porCidade;
+    private IndiceComposto porLocal;
+    private IndiceComposto porSecao;
+    private IndiceBitmap porPerfil;
+
+    ConstrutorIndices() {
+        this(1024);
+    }
+
+    /**
+     * @param capacidade Quantidade de linhas esperada (as chaves crescem se passar)
+     */
+    ConstrutorIndices(int capacidade) {
+        chavesLocal = new long[Math.max(capacidade, 1)];
+        chavesSecao = new long[Math.max(capacidade, 1)];
+    }
+
+    /**
+     * Processa as linhas da tabela ainda não acumuladas.
+     */
+    void acumular(TabelaEleitores tabela) {
+        acumular(tabela.quantidade(),
+                tabela.coluna(Coluna.CD_MUNICIPIO), tabela.coluna(Coluna.NR_ZONA),
+                tabela.coluna(Coluna.NR_LOCAL_VOTACAO), tabela.coluna(Coluna.NR_SECAO));
+    }
+
+    /**
+     * Processa as linhas [processadas, ate).
+     *
+     * @param ate Quantidade de linhas já lidas
+     * @param cidade Coluna CD_MUNICIPIO no momento em que as linhas foram publicadas
+     * @param zona Coluna NR_ZONA
+     * @param local Coluna NR_LOCAL_VOTACAO
+     * @param secao Coluna NR_SECAO
+     */
+    void acumular(int ate, int[] cidade, int[] zona, int[] local, int[] secao) {
+        if (ate > chavesLocal.length) {
+            int novoTamanho = Math.max(ate, (int) (chavesLocal.length * 1.5));
+            chavesLocal = Arrays.copyOf(chavesLocal, novoTamanho);
+            chavesSecao = Arrays.copyOf(chavesSecao, novoTamanho);
+        }
+        for (int i = processadas; i < ate; i++) {
+            if (i == 0 || cidade[i] != ultimaCidade) {
+                if (corridas == inicioCorrida.length) {
+                    inicioCorrida = Arrays.copyOf(inicioCorrida, corridas * 2);
+                }
+                inicioCorrida[corridas++] = i;
+                ultimaCidade = cidade[i];
+            }
+            chavesLocal[i] = ChaveComposta.empacotar(cidade[i], zona[i], local[i]);
+            chavesSecao[i] = ChaveComposta.empacotar(cidade[i], zona[i], secao[i]);
+        }
+        processadas = ate;
+    }
+
+    /**
+     * Conclui os índices depois que todas as linhas foram acumuladas.
+     *
+     * @param tabela Tabela completa
+     */
+    void construir(TabelaEleitores tabela) {
+        porCidade = ArvoreEytzinger.construir(tabela, inicioCorrida, corridas);
+        porLocal = IndiceComposto.construir(tabela, chavesLocal);
+        porSecao = IndiceComposto.construir(tabela, chavesSecao);
+        porPerfil = IndiceBitmap.construir(tabela);
+        chavesLocal = null;
+        chavesSecao = null;
+    }
+
+    /**
+     * @return Base com a tabela e os índices construídos
+     */
+    BaseEstado base(TabelaEleitores tabela) {
+        return new BaseEstado(tabela, porCidade, porLocal, porSecao, porPerfil);
+    }
+}
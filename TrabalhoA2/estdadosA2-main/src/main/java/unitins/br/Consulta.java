@@ -0,0 +1,271 @@
+package unitins.br;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Consulta de eleitores com qualquer combinação de filtros de perfil (E entre
+ * as condições, lista de valores aceitos em cada uma) numa abrangência.
+ *
+ * Exemplo: mulheres de 16 ou 17 anos com ensino médio completo numa cidade:
+ *   Consulta.cidade(1392)
+ *       .onde(Dimensao.GENERO, "FEMININO")
+ *       .onde(Dimensao.FAIXA_ETARIA, "1", "2")
+ *       .onde(Dimensao.ESCOLARIDADE, "6")
+ *
+ * Todas as condições são testadas numa única passada pelas linhas candidatas,
+ * com tabelas de valores aceitos (sem String nem switch por linha). As
+ * candidatas são as linhas da cidade/local/seção (pelos índices) ou, no
+ * estado, as linhas do bitmap da condição mais seletiva. Assim cada condição
+ * a mais só reduz as linhas visitadas.
+ */
+public final class Consulta {
+
+    /**
+     * Condição sobre uma dimensão: aceita qualquer um dos valores. Dimensões
+     * numéricas guardam os códigos do TSE já convertidos; as de texto, os
+     * textos (comparados ignorando maiúsculas).
+     */
+    private record Condicao(Dimensao dimensao, int[] codigos, String[] textos) {
+    }
+
+    private final String abrangencia;
+    private final int codigoCidade;
+    private final int numeroZona;
+    private final int numero;           // Local ou seção, conforme a abrangência
+    private final List<Condicao> condicoes = new ArrayList<>();
+    private Coluna medida = Coluna.QT_ELEITORES_PERFIL;
+
+    private Consulta(String abrangencia, int codigoCidade, int numeroZona, int numero) {
+        this.abrangencia = abrangencia;
+        this.codigoCidade = codigoCidade;
+        this.numeroZona = numeroZona;
+        this.numero = numero;
+    }
+
+    /** Consulta sobre todos os registros das bases selecionadas. */
+    public static Consulta estado() {
+        return new Consulta("ESTADO", 0, 0, 0);
+    }
+
+    /** Consulta sobre uma cidade. */
+    public static Consulta cidade(int codigoCidade) {
+        return new Consulta("CIDADE", codigoCidade, 0, 0);
+    }
+
+    /** Consulta sobre um local de votação. */
+    public static Consulta local(int codigoCidade, int numeroZona, int numeroLocal) {
+        return new Consulta("LOCAL", codigoCidade, numeroZona, numeroLocal);
+    }
+
+    /** Consulta sobre uma seção. */
+    public static Consulta secao(int codigoCidade, int numeroZona, int numeroSecao) {
+        return new Consulta("SECAO", codigoCidade, numeroZona, numeroSecao);
+    }
+
+    /**
+     * Acrescenta uma condição com as opções do menu (como em calcularEleitores):
+     * número da opção nas dimensões numéricas, texto em GENERO e OBRIGATORIEDADE.
+     * Opções inválidas não aceitam nenhuma linha.
+     *
+     * @param opcoes Valores aceitos (a linha passa se tiver qualquer um)
+     * @return Esta consulta
+     */
+    public Consulta onde(Dimensao dimensao, String... opcoes) {
+        if (dimensao.texto()) {
+            condicoes.add(new Condicao(dimensao, null, opcoes.clone()));
+        } else {
+            int[] codigos = new int[opcoes.length];
+            for (int i = 0; i < opcoes.length; i++) {
+                codigos[i] = dimensao.codigo(opcoes[i]);
+            }
+            condicoes.add(new Condicao(dimensao, codigos, null));
+        }
+        return this;
+    }
+
+    /**
+     * Acrescenta uma condição com códigos do TSE (ex.: 1600 e 1700 em FAIXA_ETARIA).
+     *
+     * @throws IllegalArgumentException se a dimensão é de texto
+     */
+    public Consulta ondeCodigo(Dimensao dimensao, int... codigos) {
+        if (dimensao.texto()) {
+            throw new IllegalArgumentException(dimensao + " é filtrada por texto; use onde()");
+        }
+        condicoes.add(new Condicao(dimensao, codigos.clone(), null));
+        return this;
+    }
+
+    /**
+     * Define a coluna somada (padrão: QT_ELEITORES_PERFIL).
+     *
+     * @throws IllegalArgumentException se não for uma coluna de quantidade
+     */
+    public Consulta somando(Coluna coluna) {
+        if (!coluna.name().startsWith("QT_")) {
+            throw new IllegalArgumentException("Coluna " + coluna + " não é uma quantidade");
+        }
+        this.medida = coluna;
+        return this;
+    }
+
+    /**
+     * Soma a medida nas linhas de uma base que atendem à consulta.
+     */
+    long somar(BaseEstado base) {
+        int[] quantidades = base.tabela().coluna(medida);
+        if ("ESTADO".equals(abrangencia) && condicoes.isEmpty()) {
+            return SomaParalela.somar(quantidades, base.tabela().quantidade());
+        }
+        long[] total = new long[1];
+        paraCadaLinha(base, i -> total[0] += quantidades[i]);
+        return total[0];
+    }
+
+    /**
+     * Linhas de uma base que atendem à consulta, num array (para laços
+     * que fazem várias coisas por linha, como o agrupamento).
+     *
+     * @return Índices das linhas, ou null se todas as linhas da tabela
+     *         atendem (estado sem condições), para não copiar a tabela inteira
+     */
+    int[] linhas(BaseEstado base) {
+        if ("ESTADO".equals(abrangencia) && condicoes.isEmpty()) {
+            return null;
+        }
+        int[][] linhas = {new int[64]};
+        int[] qtd = new int[1];
+        paraCadaLinha(base, i -> {
+            if (qtd[0] == linhas[0].length) {
+                linhas[0] = Arrays.copyOf(linhas[0], qtd[0] * 2);
+            }
+            linhas[0][qtd[0]++] = i;
+        });
+        return Arrays.copyOf(linhas[0], qtd[0]);
+    }
+
+    /**
+     * Visita as linhas de uma base que estão na abrangência e atendem a todas
+     * as condições, numa única passada pelas linhas candidatas.
+     *
+     * @param acao Recebe o índice de cada linha uma vez (no estado, em ordem
+     *             crescente dentro de cada valor aceito pela condição mais seletiva)
+     */
+    void paraCadaLinha(BaseEstado base, IntConsumer acao) {
+        TabelaEleitores tabela = base.tabela();
+        int m = condicoes.size();
+
+        // Valores aceitos de cada condição nesta base (textos viram códigos do dicionário)
+        int[][] colunas = new int[m][];
+        boolean[][] aceitos = new boolean[m][];
+        int[] minimos = new int[m];
+        int[][] valores = new int[m][];
+        int maisSeletiva = -1;
+        long menorCardinalidade = Long.MAX_VALUE;
+        for (int k = 0; k < m; k++) {
+            Condicao c = condicoes.get(k);
+            // Só os valores que existem nesta base (têm bitmap)
+            int[] candidatos = valoresAceitos(c, tabela);
+            int qtd = 0;
+            long cardinalidade = 0;
+            for (int v : candidatos) {
+                BitmapCompacto linhas = base.porPerfil().bitmap(c.dimensao(), v);
+                if (linhas != null) {
+                    candidatos[qtd++] = v;
+                    cardinalidade += linhas.cardinalidade();
+                }
+            }
+            if (qtd == 0) {
+                return; // Nenhuma linha atende a esta condição
+            }
+            valores[k] = Arrays.copyOf(candidatos, qtd);
+            if (cardinalidade < menorCardinalidade) {
+                menorCardinalidade = cardinalidade;
+                maisSeletiva = k;
+            }
+            colunas[k] = tabela.coluna(c.dimensao().coluna());
+            minimos[k] = valores[k][0];
+            aceitos[k] = new boolean[valores[k][valores[k].length - 1] - minimos[k] + 1];
+            for (int v : valores[k]) {
+                aceitos[k][v - minimos[k]] = true;
+            }
+        }
+
+        IntConsumer filtrada = i -> {
+            for (int k = 0; k < m; k++) {
+                int v = colunas[k][i] - minimos[k];
+                if (v < 0 || v >= aceitos[k].length || !aceitos[k][v]) {
+                    return;
+                }
+            }
+            acao.accept(i);
+        };
+
+        switch (abrangencia) {
+            case "CIDADE":
+                base.porCidade().paraCadaLinha(codigoCidade, filtrada);
+                break;
+            case "LOCAL":
+                base.porLocal().paraCadaLinha(new ChaveComposta(codigoCidade, numeroZona, numero), filtrada);
+                break;
+            case "SECAO":
+                base.porSecao().paraCadaLinha(new ChaveComposta(codigoCidade, numeroZona, numero), filtrada);
+                break;
+            default:
+                if (m == 0) {
+                    for (int i = 0, n = tabela.quantidade(); i < n; i++) {
+                        acao.accept(i);
+                    }
+                    return;
+                }
+                // Visitar só as linhas da condição mais seletiva (os bitmaps
+                // de valores diferentes não se sobrepõem)
+                Dimensao d = condicoes.get(maisSeletiva).dimensao();
+                for (int v : valores[maisSeletiva]) {
+                    base.porPerfil().bitmap(d, v).paraCada(filtrada);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Valores aceitos pela condição na coluna desta tabela, em ordem e sem repetição.
+     */
+    private static int[] valoresAceitos(Condicao c, TabelaEleitores tabela) {
+        if (!c.dimensao().texto()) {
+            return Arrays.stream(c.codigos()).filter(v -> v != Dimensao.SEM_CODIGO).sorted().distinct().toArray();
+        }
+        Dicionario dicionario = tabela.dicionario(c.dimensao().coluna());
+        boolean[] todos = new boolean[dicionario.tamanho()];
+        for (String texto : c.textos()) {
+            boolean[] deste = dicionario.codigosIgnorandoCaixa(texto);
+            for (int k = 0; k < todos.length; k++) {
+                todos[k] |= deste[k];
+            }
+        }
+        int[] codigos = new int[todos.length];
+        int qtd = 0;
+        for (int k = 0; k < todos.length; k++) {
+            if (todos[k]) {
+                codigos[qtd++] = k;
+            }
+        }
+        return Arrays.copyOf(codigos, qtd);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(abrangencia);
+        for (Condicao c : condicoes) {
+            sb.append(" E ").append(c.dimensao()).append(" em ")
+              .append(c.textos() != null ? Arrays.toString(c.textos()) : Arrays.toString(c.codigos()));
+        }
+        if (medida != Coluna.QT_ELEITORES_PERFIL) {
+            sb.append(" somando ").append(medida);
+        }
+        return sb.toString();
+    }
+}
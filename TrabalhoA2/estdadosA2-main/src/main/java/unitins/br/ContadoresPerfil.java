@@ -0,0 +1,204 @@
+package unitins.br;
+
+import java.util.Arrays;
+
+/**
+ * Totais pré-agregados dos registros de um nó da árvore.
+ *
+ * São atualizados a cada registro inserido, então uma consulta de um único
+ * filtro de perfil sobre uma cidade é respondida sem percorrer os registros.
+ * Cada dimensão tem poucos valores distintos (menos de 30), por isso os
+ * contadores são pares de arrays pequenos com busca linear em vez de mapas.
+ */
+public class ContadoresPerfil {
+    private long totalEleitores;
+    private long totalBiometria;
+    private long totalDeficiencia;
+
+    private final PorCodigo porCdGenero = new PorCodigo();
+    private final PorCodigo porFaixaEtaria = new PorCodigo();
+    private final PorCodigo porEscolaridade = new PorCodigo();
+    private final PorCodigo porEstadoCivil = new PorCodigo();
+    private final PorCodigo porRacaCor = new PorCodigo();
+
+    // O filtro de GENERO e o de OBRIGATORIEDADE comparam os textos (dsGenero e
+    // tpObrigatoriedadeVoto), então contamos pelo texto para dar o mesmo resultado
+    private final PorTexto porDsGenero = new PorTexto();
+    private final PorTexto porObrigatoriedade = new PorTexto();
+
+    /**
+     * Acumula um registro nos totais.
+     * @param e Registro inserido no nó
+     */
+    public void adicionar(PerfilEleitor e) {
+        int qt = e.qtEleitoresPerfil();
+        totalEleitores += qt;
+        totalBiometria += e.qtEleitoresBiometria();
+        totalDeficiencia += e.qtEleitoresDeficiencia();
+
+        porCdGenero.somar(e.cdGenero(), qt);
+        porFaixaEtaria.somar(e.cdFaixaEtaria(), qt);
+        porEscolaridade.somar(e.cdGrauEscolaridade(), qt);
+        porEstadoCivil.somar(e.cdEstadoCivil(), qt);
+        porRacaCor.somar(e.cdRacaCor(), qt);
+        porDsGenero.somar(e.dsGenero(), qt);
+        porObrigatoriedade.somar(e.tpObrigatoriedadeVoto(), qt);
+    }
+
+    /**
+     * Acumula uma linha da tabela colunar nos totais, sem materializar o registro.
+     * @param tabela Tabela de origem
+     * @param linha Índice da linha
+     */
+    public void adicionar(TabelaEleitores tabela, int linha) {
+        int qt = tabela.valor(Coluna.QT_ELEITORES_PERFIL, linha);
+        totalEleitores += qt;
+        totalBiometria += tabela.valor(Coluna.QT_ELEITORES_BIOMETRIA, linha);
+        totalDeficiencia += tabela.valor(Coluna.QT_ELEITORES_DEFICIENCIA, linha);
+
+        porCdGenero.somar(tabela.valor(Coluna.CD_GENERO, linha), qt);
+        porFaixaEtaria.somar(tabela.valor(Coluna.CD_FAIXA_ETARIA, linha), qt);
+        porEscolaridade.somar(tabela.valor(Coluna.CD_GRAU_ESCOLARIDADE, linha), qt);
+        porEstadoCivil.somar(tabela.valor(Coluna.CD_ESTADO_CIVIL, linha), qt);
+        porRacaCor.somar(tabela.valor(Coluna.CD_RACA_COR, linha), qt);
+        porDsGenero.somar(tabela.texto(Coluna.DS_GENERO, linha), qt);
+        porObrigatoriedade.somar(tabela.texto(Coluna.TP_OBRIGATORIEDADE_VOTO, linha), qt);
+    }
+
+    /** @return Soma de qtEleitoresPerfil */
+    public long totalEleitores() {
+        return totalEleitores;
+    }
+
+    /** @return Soma de qtEleitoresBiometria */
+    public long totalBiometria() {
+        return totalBiometria;
+    }
+
+    /** @return Soma de qtEleitoresDeficiencia */
+    public long totalDeficiencia() {
+        return totalDeficiencia;
+    }
+
+    /** @return Eleitores com o cdGenero informado */
+    public long porCdGenero(int codigo) {
+        return porCdGenero.obter(codigo);
+    }
+
+    /** @return Eleitores cujo dsGenero é igual ao texto (ignorando maiúsculas) */
+    public long porGenero(String dsGenero) {
+        return porDsGenero.obterIgnorandoCaixa(dsGenero);
+    }
+
+    /** @return Eleitores cujo tpObrigatoriedadeVoto é igual ao texto (ignorando maiúsculas) */
+    public long porObrigatoriedade(String tipo) {
+        return porObrigatoriedade.obterIgnorandoCaixa(tipo);
+    }
+
+    /** @return Eleitores com o cdFaixaEtaria informado */
+    public long porFaixaEtaria(int codigo) {
+        return porFaixaEtaria.obter(codigo);
+    }
+
+    /** @return Eleitores com o cdGrauEscolaridade informado */
+    public long porEscolaridade(int codigo) {
+        return porEscolaridade.obter(codigo);
+    }
+
+    /** @return Eleitores com o cdEstadoCivil informado */
+    public long porEstadoCivil(int codigo) {
+        return porEstadoCivil.obter(codigo);
+    }
+
+    /** @return Eleitores com o cdRacaCor informado */
+    public long porRacaCor(int codigo) {
+        return porRacaCor.obter(codigo);
+    }
+
+    /**
+     * Estimativa do heap ocupado pelos contadores (os textos são os dos
+     * dicionários da tabela e não entram na conta).
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesEstimados() {
+        long total = 16 + 3 * 8 + 7 * 4;
+        for (PorCodigo p : new PorCodigo[]{porCdGenero, porFaixaEtaria, porEscolaridade, porEstadoCivil, porRacaCor}) {
+            total += 24 + 16 + 4L * p.codigos.length + 16 + 8L * p.totais.length;
+        }
+        for (PorTexto p : new PorTexto[]{porDsGenero, porObrigatoriedade}) {
+            total += 24 + 16 + 4L * p.textos.length + 16 + 8L * p.totais.length;
+        }
+        return total;
+    }
+
+    /**
+     * Contagem por código numérico (arrays paralelos código -> total).
+     */
+    private static final class PorCodigo {
+        private int[] codigos = new int[4];
+        private long[] totais = new long[4];
+        private int qtd;
+
+        void somar(int codigo, long valor) {
+            for (int i = 0; i < qtd; i++) {
+                if (codigos[i] == codigo) {
+                    totais[i] += valor;
+                    return;
+                }
+            }
+            if (qtd == codigos.length) {
+                codigos = Arrays.copyOf(codigos, qtd * 2);
+                totais = Arrays.copyOf(totais, qtd * 2);
+            }
+            codigos[qtd] = codigo;
+            totais[qtd] = valor;
+            qtd++;
+        }
+
+        long obter(int codigo) {
+            for (int i = 0; i < qtd; i++) {
+                if (codigos[i] == codigo) {
+                    return totais[i];
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Contagem por texto (arrays paralelos texto -> total).
+     */
+    private static final class PorTexto {
+        private String[] textos = new String[2];
+        private long[] totais = new long[2];
+        private int qtd;
+
+        void somar(String texto, long valor) {
+            for (int i = 0; i < qtd; i++) {
+                if (textos[i].equals(texto)) {
+                    totais[i] += valor;
+                    return;
+                }
+            }
+            if (qtd == textos.length) {
+                textos = Arrays.copyOf(textos, qtd * 2);
+                totais = Arrays.copyOf(totais, qtd * 2);
+            }
+            textos[qtd] = texto;
+            totais[qtd] = valor;
+            qtd++;
+        }
+
+        long obterIgnorandoCaixa(String texto) {
+            // Soma todas as grafias que o filtro original aceitaria
+            long soma = 0;
+            for (int i = 0; i < qtd; i++) {
+                if (textos[i].equalsIgnoreCase(texto)) {
+                    soma += totais[i];
+                }
+            }
+            return soma;
+        }
+    }
+}
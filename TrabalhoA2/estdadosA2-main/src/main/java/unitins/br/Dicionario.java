@@ -0,0 +1,140 @@
+package unitins.br;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dicionário de uma coluna de texto: cada valor distinto recebe um código int
+ * sequencial (0, 1, 2...). A tabela guarda só os códigos, e cada texto existe
+ * uma única vez na memória.
+ *
+ * Além do mapa por String, há uma tabela hash de endereçamento aberto sobre os
+ * bytes ISO-8859-1 do valor, usada pelo LeitorCsv: um valor já visto é
+ * encontrado direto no buffer de leitura, sem criar String.
+ */
+public class Dicionario {
+    private final Map<String, Integer> codigos = new HashMap<>();
+    private String[] valores = new String[16];
+    private int tamanho;
+
+    private byte[][] bytes = new byte[16][];   // Bytes ISO-8859-1 de cada código (se vistos)
+    private int[] hashes = new int[16];        // Hash dos bytes de cada código
+    private int[] slots = new int[64];         // código + 1 (0 = vazio); potência de 2
+    private int ocupados;
+    private int ultimo = -1;                   // Último código devolvido por bytes
+
+    /**
+     * Retorna o código do valor, cadastrando-o se for novo.
+     *
+     * @param valor Texto a codificar
+     * @return Código do valor
+     */
+    public int codificar(String valor) {
+        Integer codigo = codigos.get(valor);
+        if (codigo != null) {
+            return codigo;
+        }
+        if (tamanho == valores.length) {
+            valores = Arrays.copyOf(valores, tamanho * 2);
+            bytes = Arrays.copyOf(bytes, tamanho * 2);
+            hashes = Arrays.copyOf(hashes, tamanho * 2);
+        }
+        valores[tamanho] = valor;
+        codigos.put(valor, tamanho);
+        return tamanho++;
+    }
+
+    /**
+     * Retorna o código do valor formado pelos bytes ISO-8859-1 em
+     * buffer[inicio, fim), cadastrando-o se for novo. Só cria uma String
+     * quando o valor ainda não estava no dicionário.
+     *
+     * @return Código do valor
+     */
+    public int codificar(byte[] buffer, int inicio, int fim) {
+        // O CSV vem ordenado por seção: o valor costuma repetir o da linha anterior
+        if (ultimo >= 0 && Arrays.equals(bytes[ultimo], 0, bytes[ultimo].length, buffer, inicio, fim)) {
+            return ultimo;
+        }
+        int hash = hash(buffer, inicio, fim);
+        int mascara = slots.length - 1;
+        int i = hash & mascara;
+        int slot;
+        while ((slot = slots[i]) != 0) {
+            int codigo = slot - 1;
+            if (hashes[codigo] == hash && Arrays.equals(bytes[codigo], 0, bytes[codigo].length, buffer, inicio, fim)) {
+                ultimo = codigo;
+                return codigo;
+            }
+            i = (i + 1) & mascara;
+        }
+
+        // Valor novo nesta tabela: o mapa por String continua sendo a referência
+        int codigo = codificar(new String(buffer, inicio, fim - inicio, StandardCharsets.ISO_8859_1));
+        bytes[codigo] = Arrays.copyOfRange(buffer, inicio, fim);
+        hashes[codigo] = hash;
+        slots[i] = codigo + 1;
+        if (++ocupados * 2 > slots.length) {
+            redimensionarSlots();
+        }
+        ultimo = codigo;
+        return codigo;
+    }
+
+    private static int hash(byte[] buffer, int inicio, int fim) {
+        int h = 0;
+        for (int i = inicio; i < fim; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Dobra a tabela de slots e reinsere os códigos que têm bytes.
+     */
+    private void redimensionarSlots() {
+        slots = new int[slots.length * 2];
+        int mascara = slots.length - 1;
+        for (int codigo = 0; codigo < tamanho; codigo++) {
+            if (bytes[codigo] != null) {
+                int i = hashes[codigo] & mascara;
+                while (slots[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                slots[i] = codigo + 1;
+            }
+        }
+    }
+
+    /**
+     * @param codigo Código obtido em codificar()
+     * @return Texto correspondente
+     */
+    public String valor(int codigo) {
+        return valores[codigo];
+    }
+
+    /**
+     * Marca os códigos cujo texto é igual ao informado, ignorando maiúsculas.
+     * Resolve uma vez por consulta o que antes era um equalsIgnoreCase por linha.
+     *
+     * @param texto Texto procurado
+     * @return aceitos[codigo] == true para cada código que casa
+     */
+    public boolean[] codigosIgnorandoCaixa(String texto) {
+        boolean[] aceitos = new boolean[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            aceitos[i] = valores[i].equalsIgnoreCase(texto);
+        }
+        return aceitos;
+    }
+
+    /**
+     * @return Quantidade de valores distintos
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+}
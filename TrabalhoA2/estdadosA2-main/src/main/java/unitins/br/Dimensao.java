@@ -0,0 +1,95 @@
+package unitins.br;
+
+/**
+ * Dimensões de perfil usadas como filtro nas consultas, com a coluna que
+ * cada uma compara e a conversão da opção do menu para o valor do TSE.
+ *
+ * GENERO e OBRIGATORIEDADE comparam o texto da coluna (ignorando
+ * maiúsculas); as demais comparam o código numérico.
+ */
+public enum Dimensao {
+    GENERO(Coluna.DS_GENERO),
+    OBRIGATORIEDADE(Coluna.TP_OBRIGATORIEDADE_VOTO),
+    FAIXA_ETARIA(Coluna.CD_FAIXA_ETARIA),
+    ESCOLARIDADE(Coluna.CD_GRAU_ESCOLARIDADE),
+    ESTADO_CIVIL(Coluna.CD_ESTADO_CIVIL),
+    RACA_COR(Coluna.CD_RACA_COR);
+
+    /** Resultado de codigo() quando a opção não corresponde a nenhum código. */
+    public static final int SEM_CODIGO = Integer.MIN_VALUE;
+
+    // Códigos das faixas etárias conforme padrão do TSE
+    // Índice 0 = opção 1 (16 anos), índice 1 = opção 2 (17 anos), etc.
+    private static final int[] CODIGOS_FAIXA_ETARIA = {
+        1600, 1700, 1800, 2100, 2500, 3000, 3500, 4000, 4500,
+        5000, 5500, 6000, 6500, 7000, 7500, 8000, 8500, 9000, 9500, 10000
+    };
+
+    // Estado civil: índice = opção do menu, valor = código do TSE
+    private static final int[] CODIGOS_ESTADO_CIVIL = {0, 1, 3, 9, 5, 7};
+
+    // values() devolve uma cópia nova a cada chamada
+    private static final Dimensao[] TODAS = values();
+
+    private final Coluna coluna;
+
+    Dimensao(Coluna coluna) {
+        this.coluna = coluna;
+    }
+
+    /**
+     * @return Coluna comparada pelo filtro
+     */
+    public Coluna coluna() {
+        return coluna;
+    }
+
+    /**
+     * @return true se o filtro compara texto (e não código)
+     */
+    public boolean texto() {
+        return coluna.texto();
+    }
+
+    /**
+     * Dimensão com o nome usado em calcularEleitores ("GENERO", "FAIXA_ETARIA"...).
+     *
+     * @return A dimensão, ou null se o nome não é de um filtro de perfil
+     */
+    public static Dimensao doFiltro(String filtroPerfil) {
+        for (Dimensao d : TODAS) {
+            if (d.name().equals(filtroPerfil)) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converte a opção digitada no menu no código do TSE (dimensões numéricas).
+     *
+     * @return O código, ou SEM_CODIGO se a opção é inválida
+     */
+    public int codigo(String opcao) {
+        int numero;
+        try {
+            numero = Integer.parseInt(opcao);
+        } catch (NumberFormatException e) {
+            return SEM_CODIGO;
+        }
+        switch (this) {
+            case FAIXA_ETARIA:
+                return numero >= 1 && numero <= CODIGOS_FAIXA_ETARIA.length
+                        ? CODIGOS_FAIXA_ETARIA[numero - 1] : SEM_CODIGO;
+            case ESTADO_CIVIL:
+                return numero >= 0 && numero < CODIGOS_ESTADO_CIVIL.length
+                        ? CODIGOS_ESTADO_CIVIL[numero] : SEM_CODIGO;
+            case ESCOLARIDADE:
+            case RACA_COR:
+                // O número digitado já é o código
+                return numero;
+            default:
+                return SEM_CODIGO;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package unitins.br;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Download com várias conexões, retomada e requisição condicional
+ * (usado por Arquivo.baixarArquivo).
+ *
+ * - Um HEAD descobre tamanho, ETag, Last-Modified e se o servidor aceita Range.
+ *   Se o arquivo já foi baixado antes, o HEAD vai com If-None-Match /
+ *   If-Modified-Since, e a resposta 304 dispensa o download.
+ * - Com Range, o arquivo é dividido em segmentos baixados por até CONEXOES
+ *   conexões ao mesmo tempo, cada uma gravando na sua posição do arquivo.
+ * - O progresso de cada segmento fica em destino + ".meta"; o conteúdo vai
+ *   para destino + ".parte" e só é renomeado para destino quando completo.
+ *   Um download interrompido continua de onde parou na próxima chamada, desde
+ *   que o arquivo no servidor seja o mesmo (conferido pelo ETag e, em cada
+ *   Range, pelo If-Range).
+ * - Sem Range (ou sem tamanho conhecido), o arquivo vem numa única conexão,
+ *   do início, como antes.
+ */
+public final class DownloadSegmentado {
+
+    private static final int CONEXOES = 4;
+    private static final long TAMANHO_SEGMENTO = 4L << 20;
+    private static final int TAMANHO_BUFFER = 65536;
+    // Intervalo para gravar o progresso durante um segmento
+    private static final long SALVAR_A_CADA = 1L << 20;
+
+    private final String url;
+    private final Path arquivo;
+    private final Path parte;
+    private final Path meta;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1) // Uma conexão TCP por segmento em andamento
+            .followRedirects(HttpClient.Redirect.ALWAYS)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    // Estado do arquivo no servidor e progresso de cada segmento
+    private String etag;
+    private String ultimaModificacao;
+    private long tamanho;
+    private boolean comRange;
+    private AtomicLongArray feitos;
+    private final AtomicLong totalBaixado = new AtomicLong();
+
+    private DownloadSegmentado(String url, String destino) {
+        this.url = url;
+        this.arquivo = Paths.get(destino);
+        this.parte = Paths.get(destino + ".parte");
+        this.meta = Paths.get(destino + ".meta");
+    }
+
+    /**
+     * Baixa url para destino, reaproveitando o que já existir no disco.
+     *
+     * @return false se o arquivo já estava atualizado (nada foi baixado)
+     * @throws IOException se o download falhar; o progresso fica salvo para a próxima chamada
+     */
+    public static boolean baixar(String url, String destino) throws IOException, InterruptedException {
+        return new DownloadSegmentado(url, destino).executar();
+    }
+
+    private boolean executar() throws IOException, InterruptedException {
+        if (arquivo.getParent() != null) {
+            Files.createDirectories(arquivo.getParent());
+        }
+        Properties anterior = lerMeta();
+        boolean completo = Files.exists(arquivo) && "true".equals(anterior.getProperty("completo"));
+
+        // 1. HEAD (condicional se já temos o arquivo completo)
+        HttpRequest.Builder head = HttpRequest.newBuilder(URI.create(url))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody());
+        if (completo) {
+            condicional(head, anterior);
+        }
+        HttpResponse<Void> resposta = client.send(head.build(), HttpResponse.BodyHandlers.discarding());
+        if (resposta.statusCode() == 304) {
+            return false;
+        }
+
+        if (resposta.statusCode() == 200) {
+            etag = resposta.headers().firstValue("ETag").orElse(null);
+            ultimaModificacao = resposta.headers().firstValue("Last-Modified").orElse(null);
+            tamanho = resposta.headers().firstValueAsLong("Content-Length").orElse(-1);
+            comRange = tamanho > 0 && resposta.headers().firstValue("Accept-Ranges")
+                    .map(v -> v.equalsIgnoreCase("bytes")).orElse(false);
+        } else {
+            // Servidor que não responde HEAD: uma conexão, do início
+            tamanho = -1;
+            comRange = false;
+        }
+
+        // 2. Segmentos: retomar o progresso anterior se o arquivo no servidor é o mesmo
+        int segmentos = comRange ? (int) ((tamanho + TAMANHO_SEGMENTO - 1) / TAMANHO_SEGMENTO) : 1;
+        feitos = new AtomicLongArray(segmentos);
+        boolean retomar = comRange && !completo && Files.exists(parte) && mesmoArquivo(anterior);
+        if (retomar) {
+            long jaBaixado = 0;
+            for (int s = 0; s < segmentos; s++) {
+                feitos.set(s, Long.parseLong(anterior.getProperty("feito." + s, "0")));
+                jaBaixado += feitos.get(s);
+            }
+            System.out.printf("  Retomando download: %.1f de %.1f MB já baixados%n",
+                    jaBaixado / 1048576.0, tamanho / 1048576.0);
+        } else {
+            Files.deleteIfExists(parte);
+        }
+        salvarMeta(false);
+
+        // 3. Baixar os segmentos que faltam
+        try (FileChannel canal = FileChannel.open(parte, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            baixarSegmentos(canal, segmentos);
+        }
+        if (tamanho >= 0 && Files.size(parte) != tamanho) {
+            throw new IOException("Arquivo baixado com " + Files.size(parte) + " bytes (esperados " + tamanho + ")");
+        }
+
+        Files.move(parte, arquivo, StandardCopyOption.REPLACE_EXISTING);
+        salvarMeta(true);
+        return true;
+    }
+
+    /**
+     * Acrescenta If-None-Match / If-Modified-Since com os validadores gravados.
+     */
+    private static void condicional(HttpRequest.Builder requisicao, Properties anterior) {
+        String etagAnterior = anterior.getProperty("etag");
+        String modificacaoAnterior = anterior.getProperty("ultimaModificacao");
+        if (etagAnterior != null) {
+            requisicao.header("If-None-Match", etagAnterior);
+        }
+        if (modificacaoAnterior != null) {
+            requisicao.header("If-Modified-Since", modificacaoAnterior);
+        }
+    }
+
+    /**
+     * O progresso gravado é do mesmo arquivo que o servidor tem agora?
+     * Sem ETag nem Last-Modified não há como saber, então não retoma.
+     */
+    private boolean mesmoArquivo(Properties anterior) {
+        if (etag == null && ultimaModificacao == null) {
+            return false;
+        }
+        return url.equals(anterior.getProperty("url"))
+                && String.valueOf(tamanho).equals(anterior.getProperty("tamanho"))
+                && String.valueOf(TAMANHO_SEGMENTO).equals(anterior.getProperty("segmento"))
+                && (etag == null || etag.equals(anterior.getProperty("etag")))
+                && (ultimaModificacao == null || ultimaModificacao.equals(anterior.getProperty("ultimaModificacao")));
+    }
+
+    /**
+     * Distribui os segmentos entre as conexões. Se um segmento falha, as
+     * conexões param de pegar segmentos novos e o primeiro erro é lançado.
+     */
+    private void baixarSegmentos(FileChannel canal, int segmentos) throws IOException, InterruptedException {
+        int conexoes = Math.min(CONEXOES, segmentos);
+        AtomicInteger proximo = new AtomicInteger();
+        AtomicInteger falhas = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(conexoes);
+        try {
+            List<Future<Void>> tarefas = new ArrayList<>();
+            for (int c = 0; c < conexoes; c++) {
+                tarefas.add(pool.submit(() -> {
+                    int s;
+                    while (falhas.get() == 0 && (s = proximo.getAndIncrement()) < segmentos) {
+                        try {
+                            baixarSegmento(canal, s);
+                        } catch (IOException | InterruptedException | RuntimeException e) {
+                            falhas.incrementAndGet();
+                            throw e;
+                        } finally {
+                            salvarMeta(false);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            Throwable erro = null;
+            for (Future<Void> tarefa : tarefas) {
+                try {
+                    tarefa.get();
+                } catch (ExecutionException e) {
+                    if (erro == null) {
+                        erro = e.getCause();
+                    }
+                }
+            }
+            if (erro instanceof IOException io) {
+                throw io;
+            }
+            if (erro instanceof InterruptedException ie) {
+                throw ie;
+            }
+            if (erro != null) {
+                throw new IOException("Falha no download: " + erro, erro);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Baixa o que falta de um segmento e grava na sua posição do arquivo.
+     */
+    private void baixarSegmento(FileChannel canal, int s) throws IOException, InterruptedException {
+        long posicao;
+        long fim; // Último byte do segmento (inclusive), ou -1 se desconhecido
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create(url)).GET();
+        if (comRange) {
+            posicao = s * TAMANHO_SEGMENTO + feitos.get(s);
+            fim = Math.min(tamanho, (s + 1) * TAMANHO_SEGMENTO) - 1;
+            if (posicao > fim) {
+                return;
+            }
+            requisicao.header("Range", "bytes=" + posicao + "-" + fim);
+            // Se o arquivo mudou no servidor, ele responde 200 com o arquivo todo
+            String validador = etag != null ? etag : ultimaModificacao;
+            if (validador != null) {
+                requisicao.header("If-Range", validador);
+            }
+        } else {
+            posicao = 0;
+            fim = -1;
+        }
+
+        HttpResponse<InputStream> resposta = client.send(requisicao.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = resposta.body()) {
+            int esperado = comRange ? 206 : 200;
+            if (resposta.statusCode() != esperado) {
+                throw new IOException("Falha no download. Código HTTP: " + resposta.statusCode()
+                        + (resposta.statusCode() == 200 ? " (arquivo mudou no servidor)" : ""));
+            }
+
+            byte[] buffer = new byte[TAMANHO_BUFFER];
+            long desdeSalvo = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (fim >= 0 && posicao + n > fim + 1) {
+                    throw new IOException("Servidor enviou mais bytes que o segmento pedido");
+                }
+                ByteBuffer dados = ByteBuffer.wrap(buffer, 0, n);
+                while (dados.hasRemaining()) {
+                    posicao += canal.write(dados, posicao);
+                }
+                feitos.addAndGet(s, n);
+                mostrarProgresso(n);
+
+                desdeSalvo += n;
+                if (desdeSalvo >= SALVAR_A_CADA) {
+                    salvarMeta(false);
+                    desdeSalvo = 0;
+                }
+            }
+        }
+        if (fim >= 0 && posicao != fim + 1) {
+            throw new IOException("Conexão encerrada no meio do segmento " + s);
+        }
+    }
+
+    private void mostrarProgresso(int n) {
+        long total = totalBaixado.addAndGet(n);
+        // Mostrar progresso a cada 10MB
+        if (total / 10485760 != (total - n) / 10485760) {
+            System.out.printf("  Baixado: %.1f MB%n", total / 1048576.0);
+        }
+    }
+
+    // ========== Arquivo .meta ==========
+
+    private Properties lerMeta() {
+        Properties p = new Properties();
+        if (Files.exists(meta)) {
+            try (Reader r = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+                p.load(r);
+            } catch (IOException | IllegalArgumentException e) {
+                // Meta ilegível: tratado como se não existisse
+                p.clear();
+            }
+        }
+        return url.equals(p.getProperty("url")) ? p : new Properties();
+    }
+
+    /**
+     * Grava validadores e progresso (escrito ao lado e renomeado, para um
+     * .meta pela metade nunca ser lido).
+     */
+    private synchronized void salvarMeta(boolean completo) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("url", url);
+        p.setProperty("tamanho", String.valueOf(tamanho));
+        p.setProperty("segmento", String.valueOf(TAMANHO_SEGMENTO));
+        p.setProperty("completo", String.valueOf(completo));
+        if (etag != null) {
+            p.setProperty("etag", etag);
+        }
+        if (ultimaModificacao != null) {
+            p.setProperty("ultimaModificacao", ultimaModificacao);
+        }
+        if (!completo) {
+            for (int s = 0; s < feitos.length(); s++) {
+                p.setProperty("feito." + s, String.valueOf(feitos.get(s)));
+            }
+        }
+
+        Path temporario = Paths.get(meta + ".tmp");
+        try (Writer w = Files.newBufferedWriter(temporario, StandardCharsets.UTF_8)) {
+            p.store(w, "Estado do download de " + arquivo.getFileName());
+        }
+        Files.move(temporario, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,137 @@
+package unitins.br;
+
+/**
+ * Filtro de perfil de calcularEleitores() já resolvido: a coluna somada
+ * (eleitores, biometria ou deficiência) e, se houver, a dimensão filtrada
+ * com o código ou texto procurado.
+ *
+ * O nome do filtro e a opção do menu são interpretados uma única vez, em
+ * compilar(). Na abrangência ESTADO, a soma percorre só as linhas do bitmap
+ * do valor filtrado (ou a coluna inteira, sem filtro), sem switch, conversão
+ * de String nem alocação por linha, dividida entre threads por SomaParalela.
+ *
+ * Os filtros sem dimensão são constantes, e o último filtro compilado de
+ * cada dimensão é reaproveitado quando a mesma opção se repete: consultas
+ * repetidas pelo menu não criam objetos.
+ */
+public final class FiltroCompilado {
+
+    private final Coluna soma;        // Coluna acumulada
+    private final Dimensao dimensao;  // null = sem filtro
+    private final int codigo;         // Dimensões numéricas
+    private final String texto;       // Dimensões de texto
+    private final String opcao;       // valorPerfil que gerou o filtro
+
+    private static final FiltroCompilado TODOS = new FiltroCompilado(Coluna.QT_ELEITORES_PERFIL, null, 0, null, null);
+    private static final FiltroCompilado DEFICIENCIA = new FiltroCompilado(Coluna.QT_ELEITORES_DEFICIENCIA, null, 0, null, null);
+    private static final FiltroCompilado BIOMETRIA = new FiltroCompilado(Coluna.QT_ELEITORES_BIOMETRIA, null, 0, null, null);
+
+    // Último filtro de cada dimensão (índice = ordinal). Os campos são
+    // final: uma thread que lê o filtro de outra o vê completo
+    private static final FiltroCompilado[] ULTIMOS = new FiltroCompilado[Dimensao.values().length];
+
+    private FiltroCompilado(Coluna soma, Dimensao dimensao, int codigo, String texto, String opcao) {
+        this.soma = soma;
+        this.dimensao = dimensao;
+        this.codigo = codigo;
+        this.texto = texto;
+        this.opcao = opcao;
+    }
+
+    /**
+     * Resolve o filtro de perfil de calcularEleitores().
+     *
+     * @param filtroPerfil TODOS, DEFICIENCIA, BIOMETRIA ou o nome de uma Dimensao
+     * @param valorPerfil Opção do menu (código) ou texto, conforme a dimensão
+     * @return O filtro, ou null se o nome não é reconhecido (consulta vale 0)
+     */
+    public static FiltroCompilado compilar(String filtroPerfil, String valorPerfil) {
+        switch (filtroPerfil) {
+            case "TODOS":
+                return TODOS;
+            case "DEFICIENCIA":
+                return DEFICIENCIA;
+            case "BIOMETRIA":
+                return BIOMETRIA;
+            default:
+                Dimensao d = Dimensao.doFiltro(filtroPerfil);
+                if (d == null) {
+                    return null;
+                }
+                FiltroCompilado ultimo = ULTIMOS[d.ordinal()];
+                if (ultimo != null && valorPerfil != null && valorPerfil.equals(ultimo.opcao)) {
+                    return ultimo;
+                }
+                FiltroCompilado filtro = d.texto()
+                        ? new FiltroCompilado(Coluna.QT_ELEITORES_PERFIL, d, 0, valorPerfil, valorPerfil)
+                        : new FiltroCompilado(Coluna.QT_ELEITORES_PERFIL, d, d.codigo(valorPerfil), null, valorPerfil);
+                ULTIMOS[d.ordinal()] = filtro;
+                return filtro;
+        }
+    }
+
+    /**
+     * Soma a coluna acumulada nas linhas da base que atendem ao filtro.
+     *
+     * Com filtro, só as linhas do bitmap do valor (IndiceBitmap) são
+     * visitadas. Filtros de texto são resolvidos no dicionário desta base e
+     * podem aceitar mais de um código (grafias que diferem só na caixa).
+     */
+    public long somar(BaseEstado base) {
+        TabelaEleitores tabela = base.tabela();
+        int[] quantidades = tabela.coluna(soma);
+        if (dimensao == null) {
+            return SomaParalela.somar(quantidades, tabela.quantidade());
+        }
+        if (!dimensao.texto()) {
+            BitmapCompacto linhas = base.porPerfil().bitmap(dimensao, codigo);
+            return linhas != null ? SomaParalela.somar(linhas, quantidades) : 0;
+        }
+        boolean[] aceitos = tabela.dicionario(dimensao.coluna()).codigosIgnorandoCaixa(texto);
+        long total = 0;
+        for (int k = 0; k < aceitos.length; k++) {
+            BitmapCompacto linhas = aceitos[k] ? base.porPerfil().bitmap(dimensao, k) : null;
+            if (linhas != null) {
+                total += SomaParalela.somar(linhas, quantidades);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Mesmo resultado de somar() nas linhas de um nó, a partir dos totais pré-agregados.
+     *
+     * @param contadores Contadores do nó (null se a chave não existe)
+     */
+    public long somar(ContadoresPerfil contadores) {
+        if (contadores == null) {
+            return 0;
+        }
+        if (dimensao == null) {
+            switch (soma) {
+                case QT_ELEITORES_DEFICIENCIA:
+                    return contadores.totalDeficiencia();
+                case QT_ELEITORES_BIOMETRIA:
+                    return contadores.totalBiometria();
+                default:
+                    return contadores.totalEleitores();
+            }
+        }
+        switch (dimensao) {
+            case GENERO:
+                return contadores.porGenero(texto);
+            case OBRIGATORIEDADE:
+                return contadores.porObrigatoriedade(texto);
+            case FAIXA_ETARIA:
+                return contadores.porFaixaEtaria(codigo);
+            case ESCOLARIDADE:
+                return contadores.porEscolaridade(codigo);
+            case ESTADO_CIVIL:
+                return contadores.porEstadoCivil(codigo);
+            case RACA_COR:
+                return contadores.porRacaCor(codigo);
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package unitins.br;
+
+import java.util.Arrays;
+
+/**
+ * Índice de bitmaps por valor das dimensões de perfil (gênero, obrigatoriedade,
+ * faixa etária, escolaridade, estado civil e raça/cor): para cada valor
+ * distinto da coluna, o conjunto de linhas que o têm.
+ *
+ * Uma consulta filtrada soma qtEleitoresPerfil só nas linhas do bitmap do
+ * valor procurado, em vez de testar o filtro em todas as linhas. Cada
+ * dimensão tem poucos valores distintos (menos de 30), então eles ficam num
+ * array ordenado com busca binária.
+ *
+ * Nas dimensões de texto, os valores são os códigos do dicionário da coluna.
+ */
+public final class IndiceBitmap {
+
+    private static final Dimensao[] DIMENSOES = Dimensao.values();
+    // Maior intervalo de valores (max - min) com tabela de posição direta
+    private static final int LIMITE_ACESSO_DIRETO = 1 << 16;
+
+    private final int[][] valores;              // Valores distintos de cada dimensão, em ordem
+    private final BitmapCompacto[][] bitmaps;   // Bitmap de cada valor (mesma posição)
+
+    private IndiceBitmap(int[][] valores, BitmapCompacto[][] bitmaps) {
+        this.valores = valores;
+        this.bitmaps = bitmaps;
+    }
+
+    /**
+     * Monta os bitmaps de todas as dimensões numa passada por coluna.
+     *
+     * @param tabela Tabela completa
+     */
+    public static IndiceBitmap construir(TabelaEleitores tabela) {
+        int[][] valores = new int[DIMENSOES.length][];
+        BitmapCompacto[][] bitmaps = new BitmapCompacto[DIMENSOES.length][];
+        int n = tabela.quantidade();
+
+        for (Dimensao d : DIMENSOES) {
+            int[] coluna = tabela.coluna(d.coluna());
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                min = Math.min(min, coluna[i]);
+                max = Math.max(max, coluna[i]);
+            }
+            // Posição de cada valor por acesso direto quando o intervalo é
+            // pequeno (códigos do TSE e do dicionário); senão, busca linear
+            int[] posicao = n > 0 && (long) max - min < LIMITE_ACESSO_DIRETO ? new int[max - min + 1] : null;
+
+            int[] distintos = new int[8];
+            BitmapCompacto.Construtor[] construtores = new BitmapCompacto.Construtor[8];
+            int qtd = 0;
+            for (int i = 0; i < n; i++) {
+                int v = coluna[i];
+                int k = posicao != null ? posicao[v - min] - 1 : indiceDe(distintos, qtd, v);
+                if (k < 0) {
+                    if (qtd == distintos.length) {
+                        distintos = Arrays.copyOf(distintos, qtd * 2);
+                        construtores = Arrays.copyOf(construtores, qtd * 2);
+                    }
+                    distintos[qtd] = v;
+                    construtores[qtd] = new BitmapCompacto.Construtor();
+                    k = qtd++;
+                    if (posicao != null) {
+                        posicao[v - min] = qtd; // Guardado com +1 (0 = ainda não visto)
+                    }
+                }
+                construtores[k].adicionar(i);
+            }
+
+            // Ordenar os valores para a busca binária
+            Integer[] ordem = new Integer[qtd];
+            for (int k = 0; k < qtd; k++) {
+                ordem[k] = k;
+            }
+            final int[] chaves = distintos;
+            Arrays.sort(ordem, (a, b) -> Integer.compare(chaves[a], chaves[b]));
+            valores[d.ordinal()] = new int[qtd];
+            bitmaps[d.ordinal()] = new BitmapCompacto[qtd];
+            for (int k = 0; k < qtd; k++) {
+                valores[d.ordinal()][k] = distintos[ordem[k]];
+                bitmaps[d.ordinal()][k] = construtores[ordem[k]].construir();
+            }
+        }
+        return new IndiceBitmap(valores, bitmaps);
+    }
+
+    private static int indiceDe(int[] distintos, int qtd, int valor) {
+        for (int k = 0; k < qtd; k++) {
+            if (distintos[k] == valor) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Linhas com o valor na dimensão.
+     *
+     * @param valor Código do TSE, ou código do dicionário nas dimensões de texto
+     * @return O bitmap, ou null se nenhuma linha tem o valor
+     */
+    public BitmapCompacto bitmap(Dimensao d, int valor) {
+        int k = Arrays.binarySearch(valores[d.ordinal()], valor);
+        return k >= 0 ? bitmaps[d.ordinal()][k] : null;
+    }
+
+    /**
+     * Valores distintos da dimensão nesta tabela, em ordem crescente.
+     *
+     * @return Cópia do array (códigos do dicionário nas dimensões de texto)
+     */
+    public int[] valores(Dimensao d) {
+        return valores[d.ordinal()].clone();
+    }
+
+    /**
+     * Estimativa do heap ocupado pelos bitmaps.
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesEstimados() {
+        long total = 16;
+        for (int d = 0; d < valores.length; d++) {
+            total += 16 + 4L * valores[d].length + 16 + 4L * bitmaps[d].length;
+            for (BitmapCompacto b : bitmaps[d]) {
+                total += b.bytesEstimados();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,217 @@
+package unitins.br;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Índice estático por chave composta (cidade, zona, número) sobre a
+ * TabelaEleitores.
+ *
+ * As chaves ficam empacotadas (ChaveComposta.empacotar) num long[] ordenado,
+ * e as linhas de cada chave ficam contíguas num int[] de índices da tabela
+ * (formato CSR: as linhas da chave i estão em linhas[inicio[i] .. inicio[i+1])).
+ * A busca é binária sobre o long[]; não há um objeto por nó nem por registro.
+ *
+ * O índice é construído de uma vez com construir() e é somente leitura, por
+ * isso não implementa ArvoreBinariaADT: as consultas usam os contadores ou
+ * paraCadaLinha()/somarLinhas(), sem criar PerfilEleitor.
+ */
+public class IndiceComposto {
+    private final long[] chaves;                 // Chaves empacotadas, em ordem crescente
+    private final int[] inicio;                  // inicio[i]..inicio[i+1] = linhas da chave i
+    private final int[] linhas;                  // Índices de linhas da tabela agrupados por chave
+    private final ContadoresPerfil[] contadores; // Totais pré-agregados de cada chave
+
+    private IndiceComposto(long[] chaves, int[] inicio, int[] linhas, ContadoresPerfil[] contadores) {
+        this.chaves = chaves;
+        this.inicio = inicio;
+        this.linhas = linhas;
+        this.contadores = contadores;
+    }
+
+    /**
+     * Constrói o índice de (CD_MUNICIPIO, NR_ZONA, numero) para todas as linhas.
+     *
+     * @param tabela Tabela carregada
+     * @param numero Terceira coluna da chave (NR_LOCAL_VOTACAO ou NR_SECAO)
+     * @return Índice pronto para consulta
+     */
+    public static IndiceComposto construir(TabelaEleitores tabela, Coluna numero) {
+        int n = tabela.quantidade();
+        int[] cidade = tabela.coluna(Coluna.CD_MUNICIPIO);
+        int[] zona = tabela.coluna(Coluna.NR_ZONA);
+        int[] num = tabela.coluna(numero);
+
+        long[] chaveLinha = new long[n];
+        for (int i = 0; i < n; i++) {
+            chaveLinha[i] = ChaveComposta.empacotar(cidade[i], zona[i], num[i]);
+        }
+        return construir(tabela, chaveLinha);
+    }
+
+    /**
+     * Constrói o índice com a chave empacotada de cada linha já calculada
+     * (por exemplo, durante a leitura, pelo ConstrutorIndices).
+     *
+     * @param chaveLinha chaveLinha[i] = chave empacotada da linha i; pode ter
+     *                   posições sobrando além de tabela.quantidade()
+     */
+    static IndiceComposto construir(TabelaEleitores tabela, long[] chaveLinha) {
+        int n = tabela.quantidade();
+
+        // 1. Chaves distintas ordenadas
+        long[] ordenadas = Arrays.copyOf(chaveLinha, n);
+        Arrays.sort(ordenadas);
+        int distintas = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintas == 0 || ordenadas[distintas - 1] != ordenadas[i]) {
+                ordenadas[distintas++] = ordenadas[i];
+            }
+        }
+        long[] chaves = Arrays.copyOf(ordenadas, distintas);
+
+        // 2. Posição de cada linha e contagem por chave
+        int[] posicao = new int[n];
+        int[] inicio = new int[distintas + 1];
+        for (int i = 0; i < n; i++) {
+            posicao[i] = Arrays.binarySearch(chaves, chaveLinha[i]);
+            inicio[posicao[i] + 1]++;
+        }
+        for (int k = 0; k < distintas; k++) {
+            inicio[k + 1] += inicio[k];
+        }
+
+        // 3. Distribuir as linhas (estável: mantém a ordem do arquivo em cada chave)
+        int[] proxima = Arrays.copyOf(inicio, distintas);
+        int[] linhas = new int[n];
+        for (int i = 0; i < n; i++) {
+            linhas[proxima[posicao[i]]++] = i;
+        }
+
+        // 4. Pré-agregar os totais de cada chave
+        return new IndiceComposto(chaves, inicio, linhas, agregar(tabela, inicio, linhas));
+    }
+
+    private static ContadoresPerfil[] agregar(TabelaEleitores tabela, int[] inicio, int[] linhas) {
+        ContadoresPerfil[] contadores = new ContadoresPerfil[inicio.length - 1];
+        for (int k = 0; k < contadores.length; k++) {
+            contadores[k] = new ContadoresPerfil();
+            for (int i = inicio[k]; i < inicio[k + 1]; i++) {
+                contadores[k].adicionar(tabela, linhas[i]);
+            }
+        }
+        return contadores;
+    }
+
+    /**
+     * Grava a estrutura do índice no snapshot (os contadores são recalculados na leitura).
+     */
+    void gravar(Snapshot.Saida saida) throws IOException {
+        saida.escreverInt(chaves.length);
+        saida.escreverLongs(chaves, chaves.length);
+        saida.escreverInts(inicio, inicio.length);
+        saida.escreverInt(linhas.length);
+        saida.escreverInts(linhas, linhas.length);
+    }
+
+    /**
+     * Recria um índice gravado por gravar() sobre a tabela já lida do snapshot.
+     */
+    static IndiceComposto ler(Snapshot.Entrada entrada, TabelaEleitores tabela) throws IOException {
+        int distintas = entrada.lerInt();
+        long[] chaves = entrada.lerLongs(distintas);
+        int[] inicio = entrada.lerInts(distintas + 1);
+        int[] linhas = entrada.lerInts(entrada.lerInt());
+        if (linhas.length != tabela.quantidade() || inicio[distintas] != linhas.length) {
+            throw new IOException("Snapshot com índice composto inconsistente");
+        }
+        return new IndiceComposto(chaves, inicio, linhas, agregar(tabela, inicio, linhas));
+    }
+
+    /**
+     * Estimativa do heap ocupado pelo índice (arrays e contadores).
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesEstimados() {
+        long total = 16 + 8L * chaves.length + 16 + 4L * inicio.length + 16 + 4L * linhas.length
+                + 16 + 4L * contadores.length;
+        for (ContadoresPerfil c : contadores) {
+            total += c.bytesEstimados();
+        }
+        return total;
+    }
+
+    /**
+     * Posição da chave em chaves[], ou -1 se não existir. Chaves fora dos
+     * limites de empacotar() não existem (as linhas com valores fora dos
+     * limites ficam juntas em FORA_DO_INTERVALO, que nenhuma consulta alcança).
+     */
+    private int posicao(ChaveComposta chave) {
+        long empacotada = chave.empacotada();
+        if (empacotada == ChaveComposta.FORA_DO_INTERVALO) {
+            return -1;
+        }
+        int k = Arrays.binarySearch(chaves, empacotada);
+        return k >= 0 ? k : -1;
+    }
+
+    /**
+     * Visita os índices de linha de uma chave, sem materializar registros.
+     */
+    public void paraCadaLinha(ChaveComposta chave, IntConsumer acao) {
+        int k = posicao(chave);
+        if (k < 0) {
+            return;
+        }
+        for (int i = inicio[k], f = inicio[k + 1]; i < f; i++) {
+            acao.accept(linhas[i]);
+        }
+    }
+
+    /**
+     * Soma um valor de cada linha da chave, sem materializar registros.
+     */
+    public long somarLinhas(ChaveComposta chave, IntToLongFunction funcao) {
+        int k = posicao(chave);
+        if (k < 0) {
+            return 0;
+        }
+        long soma = 0;
+        for (int i = inicio[k], f = inicio[k + 1]; i < f; i++) {
+            soma += funcao.applyAsLong(linhas[i]);
+        }
+        return soma;
+    }
+
+    /**
+     * Totais pré-agregados da chave, ou null se ela não existir.
+     */
+    public ContadoresPerfil contadores(ChaveComposta chave) {
+        int k = posicao(chave);
+        return k < 0 ? null : contadores[k];
+    }
+
+    /**
+     * Verifica se a chave existe.
+     */
+    public boolean contem(ChaveComposta chave) {
+        return posicao(chave) >= 0;
+    }
+
+    /**
+     * @return Quantidade de chaves distintas
+     */
+    public int tamanho() {
+        return chaves.length;
+    }
+
+    /**
+     * @return Quantidade total de linhas indexadas
+     */
+    public int totalRegistros() {
+        return linhas.length;
+    }
+}
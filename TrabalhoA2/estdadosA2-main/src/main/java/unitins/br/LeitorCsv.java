@@ -0,0 +1,352 @@
+package unitins.br;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Leitor do CSV do TSE (ISO-8859-1, campos separados por ';') que trabalha
+ * direto sobre os bytes lidos.
+ *
+ * Substitui BufferedReader.readLine() + String.split(";") + PerfilEleitor.fromCsv():
+ * não cria uma String por linha nem por campo. Os números são convertidos a
+ * partir dos bytes e os textos são procurados no dicionário da coluna pelos
+ * próprios bytes do buffer. O resultado é o mesmo do caminho antigo (que
+ * LeitorCsvTest guarda como referência):
+ * - linhas terminam em \n, \r ou \r\n;
+ * - linhas com menos de 31 campos (sem contar campos vazios no fim) são ignoradas;
+ * - aspas são removidas e espaços das pontas descartados;
+ * - números vazios, #NULO ou inválidos viram -1, e #NE vira -3.
+ */
+public class LeitorCsv implements Closeable {
+    private static final int TAMANHO_BUFFER = 1 << 20;
+    private static final int CAMPOS = 31;
+    // Amostra usada por estimarLinhas() e a folga sobre a estimativa (o
+    // tamanho das linhas varia com os nomes de município e local)
+    private static final int AMOSTRA = 256 * 1024;
+    private static final double FOLGA_ESTIMATIVA = 1.03;
+    private static final Coluna[] COLUNAS = Coluna.values();
+
+    private final InputStream entrada;
+    private byte[] buffer = new byte[TAMANHO_BUFFER];
+    private int posicao;      // Próximo byte não consumido
+    private int limite;       // Fim dos bytes válidos no buffer
+    private boolean fimEntrada;
+    private boolean pularLF;  // A linha anterior terminou em \r
+
+    // Linha atual: buffer[inicioLinha, fimLinha)
+    private int inicioLinha;
+    private int fimLinha;
+
+    // Fronteiras dos campos da linha atual: campo i = [inicioCampo[i], fimCampo[i])
+    private final int[] inicioCampo = new int[CAMPOS];
+    private final int[] fimCampo = new int[CAMPOS];
+    private final int[] valores = new int[CAMPOS];
+    private byte[] auxiliar = new byte[256];
+
+    /**
+     * @param entrada Fluxo com o conteúdo do CSV (não precisa ter buffer)
+     */
+    public LeitorCsv(InputStream entrada) {
+        this.entrada = entrada;
+    }
+
+    /**
+     * Avança para a próxima linha.
+     *
+     * @return false se o arquivo terminou
+     */
+    public boolean proximaLinha() throws IOException {
+        while (true) {
+            if (posicao == limite && !carregar()) {
+                return false;
+            }
+            if (pularLF) {
+                pularLF = false;
+                if (buffer[posicao] == '\n') {
+                    posicao++;
+                    continue;
+                }
+            }
+            break;
+        }
+
+        int i = posicao;
+        while (true) {
+            while (i < limite) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    inicioLinha = posicao;
+                    fimLinha = i;
+                    posicao = i + 1;
+                    pularLF = (b == '\r');
+                    return true;
+                }
+                i++;
+            }
+            // A linha continua além do buffer
+            int consumido = i - posicao;
+            if (!carregar()) {
+                // Última linha, sem terminador
+                inicioLinha = posicao;
+                fimLinha = limite;
+                posicao = limite;
+                return true;
+            }
+            i = posicao + consumido;
+        }
+    }
+
+    /**
+     * Lê mais bytes, preservando a parte não consumida do buffer.
+     *
+     * @return false se não há mais dados
+     */
+    private boolean carregar() throws IOException {
+        if (fimEntrada) {
+            return false;
+        }
+        int restante = limite - posicao;
+        if (restante == buffer.length) {
+            // Linha maior que o buffer
+            byte[] maior = new byte[buffer.length * 2];
+            System.arraycopy(buffer, posicao, maior, 0, restante);
+            buffer = maior;
+        } else if (posicao > 0) {
+            System.arraycopy(buffer, posicao, buffer, 0, restante);
+        }
+        posicao = 0;
+        limite = restante;
+
+        int lidos = entrada.read(buffer, limite, buffer.length - limite);
+        if (lidos <= 0) {
+            fimEntrada = true;
+            return false;
+        }
+        limite += lidos;
+        return true;
+    }
+
+    /**
+     * Estima quantas linhas o arquivo tem, pela média de bytes por linha de
+     * uma amostra do início (lida para o buffer, sem consumir nenhuma linha).
+     * Serve para reservar a tabela de uma vez, sem expandir durante a leitura.
+     *
+     * @param tamanhoTotal Tamanho do CSV em bytes (arquivo ou entrada do ZIP)
+     * @return Estimativa com uma pequena folga, ou -1 se a amostra não tiver linhas
+     */
+    public int estimarLinhas(long tamanhoTotal) throws IOException {
+        // Juntar pelo menos AMOSTRA bytes (fluxos de ZIP entregam pouco por read)
+        if (posicao > 0) {
+            System.arraycopy(buffer, posicao, buffer, 0, limite - posicao);
+            limite -= posicao;
+            posicao = 0;
+        }
+        while (limite < AMOSTRA && !fimEntrada) {
+            int lidos = entrada.read(buffer, limite, buffer.length - limite);
+            if (lidos <= 0) {
+                fimEntrada = true;
+            } else {
+                limite += lidos;
+            }
+        }
+
+        int linhas = 0;
+        for (int i = 0; i < limite; i++) {
+            if (buffer[i] == '\n' || (buffer[i] == '\r' && (i + 1 == limite || buffer[i + 1] != '\n'))) {
+                linhas++;
+            }
+        }
+        if (linhas == 0) {
+            return -1;
+        }
+        double estimativa = (double) tamanhoTotal * linhas / limite * FOLGA_ESTIMATIVA;
+        return (int) Math.min(estimativa + 1, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Converte a linha atual e a acrescenta na tabela.
+     *
+     * Só as colunas carregadas pela tabela são convertidas; nas outras, o
+     * campo é apenas delimitado (procura do ';'), sem converter número nem
+     * consultar dicionário.
+     *
+     * @return false se a linha foi ignorada (menos de 31 campos)
+     */
+    public boolean adicionarEm(TabelaEleitores tabela) {
+        if (!separarCampos()) {
+            return false;
+        }
+        for (int c = 0; c < CAMPOS; c++) {
+            Coluna coluna = COLUNAS[c];
+            if (!tabela.carregada(coluna)) {
+                continue;
+            }
+            valores[c] = coluna.texto()
+                    ? texto(tabela.dicionario(coluna), inicioCampo[c], fimCampo[c])
+                    : inteiro(inicioCampo[c], fimCampo[c]);
+        }
+        tabela.adicionarCodificada(valores);
+        return true;
+    }
+
+    /**
+     * Localiza os 31 primeiros campos da linha atual.
+     *
+     * @return false se a linha tem menos de 31 campos, contando como split(";"),
+     *         que descarta os campos vazios do fim
+     */
+    private boolean separarCampos() {
+        int campo = 0;
+        int inicio = inicioLinha;
+        for (int i = inicioLinha; i < fimLinha && campo < CAMPOS; i++) {
+            if (buffer[i] == ';') {
+                inicioCampo[campo] = inicio;
+                fimCampo[campo] = i;
+                campo++;
+                inicio = i + 1;
+            }
+        }
+
+        if (campo < CAMPOS - 1) {
+            return false;
+        }
+        if (campo == CAMPOS - 1) {
+            // O último campo vai até o fim da linha; se vazio, split() o descartaria
+            inicioCampo[campo] = inicio;
+            fimCampo[campo] = fimLinha;
+            return inicio < fimLinha;
+        }
+
+        // Há campos além do 31º: a linha vale se algum campo do 31º em diante não é vazio
+        if (inicioCampo[CAMPOS - 1] < fimCampo[CAMPOS - 1]) {
+            return true;
+        }
+        for (int i = inicio; i < fimLinha; i++) {
+            if (buffer[i] != ';') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Código no dicionário do texto buffer[inicio, fim), sem aspas e sem espaços nas pontas.
+     */
+    private int texto(Dicionario dicionario, int inicio, int fim) {
+        int a = inicioLimpo(inicio, fim);
+        int b = fimLimpo(a, fim);
+        if (!temAspas(a, b)) {
+            return dicionario.codificar(buffer, a, b);
+        }
+        int tamanho = copiarSemAspas(a, b);
+        return dicionario.codificar(auxiliar, 0, tamanho);
+    }
+
+    /**
+     * Converte buffer[inicio, fim) como a leitura antiga (Integer.parseInt sem
+     * as aspas): -1 para vazio, #NULO ou inválido, -3 para #NE.
+     */
+    private int inteiro(int inicio, int fim) {
+        int a = inicioLimpo(inicio, fim);
+        int b = fimLimpo(a, fim);
+        byte[] origem = buffer;
+        if (temAspas(a, b)) {
+            b = copiarSemAspas(a, b);
+            a = 0;
+            origem = auxiliar;
+        }
+        if (a == b) {
+            return -1;
+        }
+
+        int i = a;
+        boolean negativo = false;
+        byte primeiro = origem[i];
+        if (primeiro == '-' || primeiro == '+') {
+            negativo = (primeiro == '-');
+            i++;
+            if (i == b) {
+                return -1;
+            }
+        } else if (primeiro == '#') {
+            return (b - a == 3 && origem[a + 1] == 'N' && origem[a + 2] == 'E') ? -3 : -1;
+        }
+
+        long valor = 0;
+        for (; i < b; i++) {
+            int digito = origem[i] - '0';
+            if (digito < 0 || digito > 9) {
+                return -1;
+            }
+            valor = valor * 10 + digito;
+            if (valor > 1L + Integer.MAX_VALUE) {
+                // Fora do intervalo aceito por Integer.parseInt: inválido
+                return -1;
+            }
+        }
+        if (negativo) {
+            valor = -valor;
+        }
+        if (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (int) valor;
+    }
+
+    /**
+     * Primeira posição que não é aspa nem espaço/controle (trim() depois de remover aspas).
+     */
+    private int inicioLimpo(int inicio, int fim) {
+        while (inicio < fim && descartavel(buffer[inicio])) {
+            inicio++;
+        }
+        return inicio;
+    }
+
+    /**
+     * Fim (exclusive) após descartar aspas e espaços/controles do final.
+     */
+    private int fimLimpo(int inicio, int fim) {
+        while (fim > inicio && descartavel(buffer[fim - 1])) {
+            fim--;
+        }
+        return fim;
+    }
+
+    private static boolean descartavel(byte b) {
+        return b == '"' || (b & 0xFF) <= ' ';
+    }
+
+    private boolean temAspas(int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            if (buffer[i] == '"') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copia buffer[inicio, fim) para o auxiliar sem as aspas.
+     *
+     * @return Quantidade de bytes copiados
+     */
+    private int copiarSemAspas(int inicio, int fim) {
+        if (auxiliar.length < fim - inicio) {
+            auxiliar = new byte[fim - inicio];
+        }
+        int n = 0;
+        for (int i = inicio; i < fim; i++) {
+            if (buffer[i] != '"') {
+                auxiliar[n++] = buffer[i];
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Classe para registro de operações e tempos de execução.
@@ -16,6 +17,12 @@ public class Logger {
     private static final String ARQUIVO_LOG = LOG_DIRECTORY + "/operacao.log";
     private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // Consultas mais rápidas que isto não geram uma linha de log cada:
+    // montar a mensagem e abrir o arquivo custaria mais que a própria consulta
+    private static final long LIMITE_CONSULTA_NS = 1_000_000;
+    private static final AtomicLong consultasRapidas = new AtomicLong();
+    private static final AtomicLong tempoConsultasRapidasNs = new AtomicLong();
+
     static {
         // Garante que o diretório de log exista
         File logDir = new File(LOG_DIRECTORY);
@@ -45,6 +52,35 @@ public class Logger {
         }
     }
 
+    /**
+     * Registra uma consulta de eleitores. Consultas abaixo de 1 ms só são
+     * contadas (sem alocar nada) e aparecem juntas em registrarResumoConsultas().
+     * @param consulta Abrangência (CIDADE, LOCAL...) ou a Consulta inteira
+     * @param perfil Filtro de perfil, ou null se já está na consulta
+     * @param tempoNs Tempo em nanossegundos
+     */
+    public static void registrarConsulta(Object consulta, String perfil, long tempoNs) {
+        if (tempoNs < LIMITE_CONSULTA_NS) {
+            consultasRapidas.incrementAndGet();
+            tempoConsultasRapidasNs.addAndGet(tempoNs);
+            return;
+        }
+        registrar("Consulta de eleitores (" + consulta + (perfil != null ? "/" + perfil : "") + ")",
+                tempoNs / 1_000_000);
+    }
+
+    /**
+     * Registra quantas consultas rápidas foram feitas desde o último resumo
+     * e o tempo somado delas. Não faz nada se não houve nenhuma.
+     */
+    public static void registrarResumoConsultas() {
+        long quantidade = consultasRapidas.getAndSet(0);
+        long tempoNs = tempoConsultasRapidasNs.getAndSet(0);
+        if (quantidade > 0) {
+            registrar(String.format("%,d consultas de eleitores abaixo de 1 ms", quantidade), tempoNs / 1_000_000);
+        }
+    }
+
     /**
      * Registra uma mensagem informativa.
      * @param mensagem Mensagem a ser registrada
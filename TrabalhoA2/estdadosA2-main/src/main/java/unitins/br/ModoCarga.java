@@ -0,0 +1,15 @@
+package unitins.br;
+
+/**
+ * Forma de leitura do CSV usada por AppService.carregarDados().
+ */
+public enum ModoCarga {
+    /** Uma thread lê o arquivo extraído do início ao fim. */
+    SEQUENCIAL,
+    /** O arquivo extraído é mapeado em memória e lido em blocos por várias threads. */
+    PARALELA,
+    /** O CSV é lido direto de dentro do ZIP, sem ser extraído para o disco. */
+    DIRETO_DO_ZIP,
+    /** Download, descompactação, leitura e índices rodam ao mesmo tempo, ligados por filas. */
+    PIPELINE
+}
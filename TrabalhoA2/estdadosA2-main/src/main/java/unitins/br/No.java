@@ -1,5 +1,8 @@
 package unitins.br;
 
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
 
 /**
  * Classe que representa um nó da árvore binária.
@@ -12,6 +15,8 @@ public class No<T extends Comparable<T>> {
     int capacidade;             // Capacidade atual do array
     No<T> esquerda;            // Filho esquerdo
     No<T> direita;             // Filho direito
+    int altura;                 // Altura da subárvore (usada pela ArvoreAVL)
+    ContadoresPerfil contadores; // Totais pré-agregados dos registros do nó
 
     /**
      * Construtor do nó.
@@ -25,11 +30,13 @@ public class No<T extends Comparable<T>> {
         this.qtdRegistros = 0;
         this.esquerda = null;
         this.direita = null;
+        this.altura = 1;
+        this.contadores = new ContadoresPerfil();
     }
 
     /**
      * Adiciona um registro ao nó.
-     * Expande o array se necessário.
+     * Expande o array se necessário e atualiza os contadores do nó.
      * @param registro Registro a ser adicionado
      */
     public void adicionarRegistro(PerfilEleitor registro) {
@@ -43,6 +50,7 @@ public class No<T extends Comparable<T>> {
         }
         // Adicionar registro
         registros[qtdRegistros++] = registro;
+        contadores.adicionar(registro);
     }
 
     /**
@@ -54,4 +62,27 @@ public class No<T extends Comparable<T>> {
         System.arraycopy(registros, 0, resultado, 0, qtdRegistros);
         return resultado;
     }
+
+    /**
+     * Executa uma ação para cada registro, direto no array interno.
+     * @param acao Ação a ser executada
+     */
+    public void paraCada(Consumer<PerfilEleitor> acao) {
+        for (int i = 0; i < qtdRegistros; i++) {
+            acao.accept(registros[i]);
+        }
+    }
+
+    /**
+     * Soma um valor de cada registro sem copiar o array interno.
+     * @param funcao Valor extraído de cada registro
+     * @return Soma dos valores
+     */
+    public long somar(ToLongFunction<PerfilEleitor> funcao) {
+        long soma = 0;
+        for (int i = 0; i < qtdRegistros; i++) {
+            soma += funcao.applyAsLong(registros[i]);
+        }
+        return soma;
+    }
 }
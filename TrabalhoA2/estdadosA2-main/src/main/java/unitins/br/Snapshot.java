@@ -0,0 +1,341 @@
+package unitins.br;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot binário de um estado já carregado: colunas da tabela, dicionários
+ * de texto e a estrutura dos índices (cidade, local e seção).
+ *
+ * Recarregar um snapshot é só mapear o arquivo e copiar arrays, sem ler o CSV
+ * nem ordenar nada; os contadores dos índices são recalculados numa passada.
+ *
+ * Formato (little-endian):
+ *   cabeçalho: MAGICO, VERSAO, tamanho do conteúdo (long), CRC32 do conteúdo (long)
+ *   conteúdo:  quantidade, nº de colunas, máscara das colunas carregadas,
+ *              colunas carregadas (int[] cada), seus dicionários,
+ *              índice por cidade, índice por local, índice por seção
+ *
+ * Um arquivo com mágico, versão, tamanho ou CRC diferentes é rejeitado por
+ * ler() com IOException, e quem chama reconstrói a partir do CSV. O CRC é
+ * conferido sobre todo o conteúdo antes de qualquer campo ser interpretado, e
+ * cada tamanho lido é limitado pelos bytes que restam no arquivo, então um
+ * snapshot corrompido nunca chega a reservar arrays gigantes.
+ */
+public final class Snapshot {
+
+    private static final int MAGICO = 0x31455354; // "TSE1" em little-endian
+    // Incrementar a cada mudança de formato: snapshots antigos passam a ser rejeitados
+    private static final int VERSAO = 2;
+    private static final int TAMANHO_CABECALHO = 24;
+    private static final int TAMANHO_BUFFER = 1 << 20;
+    // Janela mapeada por vez (arquivos de estados grandes passam de 2 GB)
+    private static final int TAMANHO_JANELA = 1 << 28;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Verifica se existe snapshot mais novo que o arquivo de origem.
+     *
+     * @param arquivoSnapshot Caminho do snapshot
+     * @param arquivoOrigem ZIP de onde os dados vieram (pode não existir)
+     */
+    public static boolean atualizado(String arquivoSnapshot, String arquivoOrigem) {
+        try {
+            Path snapshot = Paths.get(arquivoSnapshot);
+            if (!Files.exists(snapshot)) {
+                return false;
+            }
+            Path origem = Paths.get(arquivoOrigem);
+            return !Files.exists(origem)
+                    || Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(origem)) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Grava o snapshot. O arquivo é escrito ao lado e renomeado no fim,
+     * então um snapshot pela metade nunca substitui um válido.
+     */
+    public static void gravar(String arquivo, BaseEstado base) throws IOException {
+        Path destino = Paths.get(arquivo);
+        Path temporario = Paths.get(arquivo + ".tmp");
+        if (destino.getParent() != null) {
+            Files.createDirectories(destino.getParent());
+        }
+
+        try (Saida saida = new Saida(FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            base.tabela().gravar(saida);
+            base.porCidade().gravar(saida);
+            base.porLocal().gravar(saida);
+            base.porSecao().gravar(saida);
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê um snapshot gravado por gravar().
+     *
+     * @throws IOException se o arquivo não existe, é de outra versão ou está corrompido
+     */
+    public static BaseEstado ler(String arquivo) throws IOException {
+        try (Entrada entrada = new Entrada(FileChannel.open(Paths.get(arquivo), StandardOpenOption.READ))) {
+            TabelaEleitores tabela = TabelaEleitores.ler(entrada);
+            ArvoreEytzinger porCidade = ArvoreEytzinger.ler(entrada, tabela);
+            IndiceComposto porLocal = IndiceComposto.ler(entrada, tabela);
+            IndiceComposto porSecao = IndiceComposto.ler(entrada, tabela);
+            entrada.verificarFim();
+            // Os bitmaps não são gravados: montá-los é uma passada pelas colunas
+            return new BaseEstado(tabela, porCidade, porLocal, porSecao, IndiceBitmap.construir(tabela));
+        } catch (RuntimeException e) {
+            // CRC certo mas conteúdo inconsistente (gravado por uma versão com defeito)
+            throw new IOException("Snapshot inválido: " + e, e);
+        }
+    }
+
+    /**
+     * Escrita sequencial com buffer, calculando o CRC do conteúdo.
+     */
+    static final class Saida implements AutoCloseable {
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long tamanho;
+
+        Saida(FileChannel canal) throws IOException {
+            this.canal = canal;
+            canal.position(TAMANHO_CABECALHO); // Cabeçalho é escrito no fim
+        }
+
+        void escreverInt(int valor) throws IOException {
+            garantir(4);
+            buffer.putInt(valor);
+        }
+
+        void escreverInts(int[] valores, int quantidade) throws IOException {
+            int feito = 0;
+            while (feito < quantidade) {
+                garantir(4);
+                int n = Math.min(quantidade - feito, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(valores, feito, n);
+                buffer.position(buffer.position() + n * 4);
+                feito += n;
+            }
+        }
+
+        void escreverLongs(long[] valores, int quantidade) throws IOException {
+            int feito = 0;
+            while (feito < quantidade) {
+                garantir(8);
+                int n = Math.min(quantidade - feito, buffer.remaining() / 8);
+                buffer.asLongBuffer().put(valores, feito, n);
+                buffer.position(buffer.position() + n * 8);
+                feito += n;
+            }
+        }
+
+        void escreverTexto(String valor) throws IOException {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            escreverInt(bytes.length);
+            int feito = 0;
+            while (feito < bytes.length) {
+                garantir(1);
+                int n = Math.min(bytes.length - feito, buffer.remaining());
+                buffer.put(bytes, feito, n);
+                feito += n;
+            }
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                descarregar();
+            }
+        }
+
+        private void descarregar() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            tamanho += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                descarregar();
+                ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).order(ByteOrder.LITTLE_ENDIAN);
+                cabecalho.putInt(MAGICO).putInt(VERSAO).putLong(tamanho).putLong(crc.getValue()).flip();
+                while (cabecalho.hasRemaining()) {
+                    canal.write(cabecalho, cabecalho.position());
+                }
+                canal.force(false);
+            } finally {
+                canal.close();
+            }
+        }
+    }
+
+    /**
+     * Leitura sequencial sobre janelas mapeadas do arquivo, depois de conferir o CRC.
+     */
+    static final class Entrada implements AutoCloseable {
+        private final FileChannel canal;
+        private final long fimConteudo;
+        private MappedByteBuffer janela;
+        private long inicioJanela;
+
+        Entrada(FileChannel canal) throws IOException {
+            this.canal = canal;
+            long tamanhoArquivo = canal.size();
+            if (tamanhoArquivo < TAMANHO_CABECALHO) {
+                throw new IOException("Snapshot truncado");
+            }
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).order(ByteOrder.LITTLE_ENDIAN);
+            canal.read(cabecalho, 0);
+            cabecalho.flip();
+            if (cabecalho.getInt() != MAGICO) {
+                throw new IOException("Arquivo não é um snapshot");
+            }
+            int versao = cabecalho.getInt();
+            if (versao != VERSAO) {
+                throw new IOException("Snapshot da versão " + versao + " (esperada " + VERSAO + ")");
+            }
+            long tamanho = cabecalho.getLong();
+            long crcEsperado = cabecalho.getLong();
+            if (TAMANHO_CABECALHO + tamanho != tamanhoArquivo) {
+                throw new IOException("Snapshot truncado");
+            }
+            fimConteudo = tamanhoArquivo;
+            if (calcularCrc() != crcEsperado) {
+                throw new IOException("Snapshot corrompido (CRC diferente)");
+            }
+            mapear(TAMANHO_CABECALHO);
+        }
+
+        /**
+         * CRC de todo o conteúdo, janela por janela, antes de interpretar os campos.
+         */
+        private long calcularCrc() throws IOException {
+            CRC32 crc = new CRC32();
+            for (long posicao = TAMANHO_CABECALHO; posicao < fimConteudo; posicao += janela.capacity()) {
+                mapear(posicao);
+                crc.update(janela);
+            }
+            return crc.getValue();
+        }
+
+        private void mapear(long posicao) throws IOException {
+            inicioJanela = posicao;
+            long tamanho = Math.min(TAMANHO_JANELA, fimConteudo - posicao);
+            janela = canal.map(FileChannel.MapMode.READ_ONLY, posicao, tamanho);
+            janela.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Garante pelo menos "bytes" na janela, remapeando a partir da posição atual.
+         */
+        private void garantir(int bytes) throws IOException {
+            if (janela.remaining() < bytes) {
+                long posicao = inicioJanela + janela.position();
+                if (fimConteudo - posicao < bytes) {
+                    throw new IOException("Snapshot truncado");
+                }
+                mapear(posicao);
+            }
+        }
+
+        /**
+         * Rejeita um tamanho lido do arquivo maior que o que resta dele.
+         */
+        private void exigir(long bytes) throws IOException {
+            long restante = fimConteudo - (inicioJanela + janela.position());
+            if (bytes < 0 || bytes > restante) {
+                throw new IOException("Snapshot com tamanho inválido (" + bytes + " bytes, restam " + restante + ")");
+            }
+        }
+
+        private void consumir(int bytes) {
+            janela.position(janela.position() + bytes);
+        }
+
+        int lerInt() throws IOException {
+            garantir(4);
+            int valor = janela.getInt(janela.position());
+            consumir(4);
+            return valor;
+        }
+
+        int[] lerInts(int quantidade) throws IOException {
+            exigir(4L * quantidade);
+            int[] valores = new int[quantidade];
+            int feito = 0;
+            while (feito < quantidade) {
+                garantir(4);
+                int n = Math.min(quantidade - feito, janela.remaining() / 4);
+                janela.asIntBuffer().get(valores, feito, n);
+                consumir(n * 4);
+                feito += n;
+            }
+            return valores;
+        }
+
+        long[] lerLongs(int quantidade) throws IOException {
+            exigir(8L * quantidade);
+            long[] valores = new long[quantidade];
+            int feito = 0;
+            while (feito < quantidade) {
+                garantir(8);
+                int n = Math.min(quantidade - feito, janela.remaining() / 8);
+                janela.asLongBuffer().get(valores, feito, n);
+                consumir(n * 8);
+                feito += n;
+            }
+            return valores;
+        }
+
+        String lerTexto() throws IOException {
+            int tamanho = lerInt();
+            exigir(tamanho);
+            byte[] bytes = new byte[tamanho];
+            int feito = 0;
+            while (feito < bytes.length) {
+                garantir(1);
+                int n = Math.min(bytes.length - feito, janela.remaining());
+                janela.get(janela.position(), bytes, feito, n);
+                consumir(n);
+                feito += n;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Confere que todo o conteúdo foi lido.
+         */
+        void verificarFim() throws IOException {
+            if (inicioJanela + janela.position() != fimConteudo) {
+                throw new IOException("Snapshot com dados a mais");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
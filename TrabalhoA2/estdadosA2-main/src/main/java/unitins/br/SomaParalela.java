@@ -0,0 +1,146 @@
+package unitins.br;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Somas de colunas inteiras (abrangência ESTADO) divididas entre as threads
+ * do ForkJoinPool comum.
+ *
+ * As linhas são divididas ao meio até intervalos de LINHAS_POR_TAREFA, e
+ * cada intervalo é somado num laço contíguo: com SIMD (SomaVetorial) se a
+ * JVM tiver o módulo jdk.incubator.vector, senão com o laço escalar. Somas
+ * em bitmaps são divididas da mesma forma, por blocos de 65.536 linhas.
+ *
+ * Tabelas pequenas são somadas direto na thread que chamou.
+ */
+public final class SomaParalela {
+
+    // 64 Ki linhas = 256 KB por coluna: cabe no cache e compensa criar a tarefa
+    private static final int LINHAS_POR_TAREFA = 1 << 16;
+    private static final int BLOCOS_POR_TAREFA = 1;
+
+    private static final boolean VETORIAL =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private SomaParalela() {
+    }
+
+    /**
+     * @return true se as somas usam a API de vetores (SIMD)
+     */
+    public static boolean vetorial() {
+        return VETORIAL;
+    }
+
+    /**
+     * Soma as n primeiras posições da coluna.
+     */
+    public static long somar(int[] coluna, int n) {
+        return somar(new int[][] {coluna}, n)[0];
+    }
+
+    /**
+     * Soma as n primeiras posições de cada coluna numa única divisão das
+     * linhas (cada tarefa percorre o mesmo intervalo em todas as colunas).
+     *
+     * @return Total de cada coluna, na ordem recebida
+     */
+    public static long[] somar(int[][] colunas, int n) {
+        if (n <= LINHAS_POR_TAREFA) {
+            return somarIntervalo(colunas, 0, n);
+        }
+        return ForkJoinPool.commonPool().invoke(new SomaLinhas(colunas, 0, n));
+    }
+
+    /**
+     * Soma valores[linha] nas linhas do bitmap, dividindo os blocos entre threads.
+     */
+    public static long somar(BitmapCompacto linhas, int[] valores) {
+        if (linhas.blocos() <= BLOCOS_POR_TAREFA) {
+            return linhas.somar(valores);
+        }
+        return ForkJoinPool.commonPool().invoke(new SomaBlocos(linhas, valores, 0, linhas.blocos()));
+    }
+
+    private static long[] somarIntervalo(int[][] colunas, int inicio, int fim) {
+        long[] totais = new long[colunas.length];
+        for (int c = 0; c < colunas.length; c++) {
+            totais[c] = VETORIAL ? SomaVetorial.somar(colunas[c], inicio, fim) : somarEscalar(colunas[c], inicio, fim);
+        }
+        return totais;
+    }
+
+    private static long somarEscalar(int[] coluna, int inicio, int fim) {
+        long total = 0;
+        for (int i = inicio; i < fim; i++) {
+            total += coluna[i];
+        }
+        return total;
+    }
+
+    /**
+     * Soma de um intervalo de linhas, dividido ao meio enquanto for grande.
+     */
+    private static final class SomaLinhas extends RecursiveTask<long[]> {
+        // ForkJoinTask é Serializable, mas as tarefas nunca são serializadas
+        private static final long serialVersionUID = 1L;
+
+        private final transient int[][] colunas;
+        private final int inicio;
+        private final int fim;
+
+        SomaLinhas(int[][] colunas, int inicio, int fim) {
+            this.colunas = colunas;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (fim - inicio <= LINHAS_POR_TAREFA) {
+                return somarIntervalo(colunas, inicio, fim);
+            }
+            int meio = (inicio + fim) >>> 1;
+            SomaLinhas esquerda = new SomaLinhas(colunas, inicio, meio);
+            esquerda.fork();
+            long[] totais = new SomaLinhas(colunas, meio, fim).compute();
+            long[] outros = esquerda.join();
+            for (int c = 0; c < totais.length; c++) {
+                totais[c] += outros[c];
+            }
+            return totais;
+        }
+    }
+
+    /**
+     * Soma de um intervalo de blocos de um bitmap.
+     */
+    private static final class SomaBlocos extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient BitmapCompacto linhas;
+        private final transient int[] valores;
+        private final int deBloco;
+        private final int ateBloco;
+
+        SomaBlocos(BitmapCompacto linhas, int[] valores, int deBloco, int ateBloco) {
+            this.linhas = linhas;
+            this.valores = valores;
+            this.deBloco = deBloco;
+            this.ateBloco = ateBloco;
+        }
+
+        @Override
+        protected Long compute() {
+            if (ateBloco - deBloco <= BLOCOS_POR_TAREFA) {
+                return linhas.somar(valores, deBloco, ateBloco);
+            }
+            int meio = (deBloco + ateBloco) >>> 1;
+            SomaBlocos esquerda = new SomaBlocos(linhas, valores, deBloco, meio);
+            esquerda.fork();
+            long total = new SomaBlocos(linhas, valores, meio, ateBloco).compute();
+            return total + esquerda.join();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package unitins.br;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Soma de colunas com instruções SIMD (API jdk.incubator.vector).
+ *
+ * Só é usada por SomaParalela quando o módulo está disponível, ou seja,
+ * quando a JVM foi iniciada com --add-modules jdk.incubator.vector; sem ele
+ * esta classe nunca é carregada e a soma escalar é usada.
+ *
+ * Para acumular em int sem estourar, cada valor é separado em 16 bits
+ * baixos (0..65535) e altos (com sinal): v = alto * 65536 + baixo. Cada
+ * faixa de cada acumulador recebe no máximo VETORES_POR_RODADA parcelas,
+ * e só no fim da rodada os acumuladores são convertidos para long.
+ */
+final class SomaVetorial {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class, INTS.vectorShape());
+    // 32.768 parcelas de até 65.535 cabem num int
+    private static final int VETORES_POR_RODADA = 1 << 15;
+
+    private SomaVetorial() {
+    }
+
+    /**
+     * Soma coluna[inicio..fim).
+     */
+    static long somar(int[] coluna, int inicio, int fim) {
+        long total = 0;
+        int i = inicio;
+        int limite = inicio + INTS.loopBound(fim - inicio);
+        while (i < limite) {
+            int fimRodada = (int) Math.min(limite, (long) i + (long) VETORES_POR_RODADA * INTS.length());
+            IntVector baixos = IntVector.zero(INTS);
+            IntVector altos = IntVector.zero(INTS);
+            for (; i < fimRodada; i += INTS.length()) {
+                IntVector v = IntVector.fromArray(INTS, coluna, i);
+                baixos = baixos.add(v.and(0xFFFF));
+                altos = altos.add(v.lanewise(VectorOperators.ASHR, 16));
+            }
+            total += emLong(baixos) + (emLong(altos) << 16);
+        }
+        for (; i < fim; i++) {
+            total += coluna[i];
+        }
+        return total;
+    }
+
+    private static long emLong(IntVector v) {
+        return ((LongVector) v.convertShape(VectorOperators.I2L, LONGS, 0)).reduceLanes(VectorOperators.ADD)
+                + ((LongVector) v.convertShape(VectorOperators.I2L, LONGS, 1)).reduceLanes(VectorOperators.ADD);
+    }
+}
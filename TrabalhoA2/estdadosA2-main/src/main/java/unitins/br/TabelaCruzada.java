@@ -0,0 +1,225 @@
+package unitins.br;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Resultado de um agrupamento: totais de eleitores, biometria e deficiência
+ * por valor de uma dimensão (histograma) ou por par de valores de duas
+ * dimensões (tabela cruzada), nas linhas que atendem a uma Consulta.
+ *
+ * Cada base é agregada numa única passada pelas linhas da consulta, em
+ * arrays de long indexados pela posição do código (tabela de acesso direto),
+ * então 20 faixas x 2 gêneros custam o mesmo que uma consulta simples. Os
+ * resultados das bases são juntados pelo rótulo no fim.
+ *
+ * Rótulos: o código do TSE nas dimensões numéricas, o texto nas de texto.
+ * No histograma há uma única coluna, com o rótulo TOTAL.
+ */
+public final class TabelaCruzada {
+
+    private static final String ROTULO_TOTAL = "TOTAL";
+    // Maior intervalo de códigos com tabela de posição direta (igual ao IndiceBitmap)
+    private static final int LIMITE_ACESSO_DIRETO = 1 << 16;
+
+    private final Dimensao dimensaoLinhas;
+    private final Dimensao dimensaoColunas;   // null = histograma
+    private final String[] rotulosLinhas;
+    private final String[] rotulosColunas;
+    // Posição [linha * colunas + coluna]
+    private final long[] eleitores;
+    private final long[] biometria;
+    private final long[] deficiencia;
+
+    private TabelaCruzada(Dimensao dimensaoLinhas, Dimensao dimensaoColunas,
+                          String[] rotulosLinhas, String[] rotulosColunas) {
+        this.dimensaoLinhas = dimensaoLinhas;
+        this.dimensaoColunas = dimensaoColunas;
+        this.rotulosLinhas = rotulosLinhas;
+        this.rotulosColunas = rotulosColunas;
+        int celulas = rotulosLinhas.length * rotulosColunas.length;
+        this.eleitores = new long[celulas];
+        this.biometria = new long[celulas];
+        this.deficiencia = new long[celulas];
+    }
+
+    /**
+     * Agrupa as linhas de uma base que atendem à consulta.
+     *
+     * @param dimensaoColunas Segunda dimensão, ou null para um histograma
+     */
+    static TabelaCruzada calcular(Consulta consulta, BaseEstado base,
+                                  Dimensao dimensaoLinhas, Dimensao dimensaoColunas) {
+        TabelaEleitores tabela = base.tabela();
+        int[] valoresLinhas = base.porPerfil().valores(dimensaoLinhas);
+        int[] valoresColunas = dimensaoColunas != null ? base.porPerfil().valores(dimensaoColunas) : new int[] {0};
+
+        TabelaCruzada resultado = new TabelaCruzada(dimensaoLinhas, dimensaoColunas,
+                rotulos(dimensaoLinhas, valoresLinhas, tabela),
+                dimensaoColunas != null ? rotulos(dimensaoColunas, valoresColunas, tabela) : new String[] {ROTULO_TOTAL});
+        if (valoresLinhas.length == 0 || valoresColunas.length == 0) {
+            return resultado; // Base vazia
+        }
+
+        int[] colunaLinhas = tabela.coluna(dimensaoLinhas.coluna());
+        int[] colunaColunas = dimensaoColunas != null ? tabela.coluna(dimensaoColunas.coluna()) : null;
+        int[] qtEleitores = tabela.coluna(Coluna.QT_ELEITORES_PERFIL);
+        int[] qtBiometria = tabela.coluna(Coluna.QT_ELEITORES_BIOMETRIA);
+        int[] qtDeficiencia = tabela.coluna(Coluna.QT_ELEITORES_DEFICIENCIA);
+
+        int[] posLinhas = posicoes(valoresLinhas);
+        int[] posColunas = posicoes(valoresColunas);
+        int minLinhas = valoresLinhas[0];
+        int minColunas = valoresColunas[0];
+        int largura = valoresColunas.length;
+        long[] e = resultado.eleitores;
+        long[] b = resultado.biometria;
+        long[] d = resultado.deficiencia;
+
+        // Uma passada só: cada linha soma as três quantidades na sua célula
+        int[] selecionadas = consulta.linhas(base);
+        int n = selecionadas != null ? selecionadas.length : tabela.quantidade();
+        for (int k = 0; k < n; k++) {
+            int i = selecionadas != null ? selecionadas[k] : k;
+            int celula = posicao(colunaLinhas[i], valoresLinhas, posLinhas, minLinhas) * largura;
+            if (colunaColunas != null) {
+                celula += posicao(colunaColunas[i], valoresColunas, posColunas, minColunas);
+            }
+            e[celula] += qtEleitores[i];
+            b[celula] += qtBiometria[i];
+            d[celula] += qtDeficiencia[i];
+        }
+        return resultado;
+    }
+
+    /**
+     * Tabela de posição direta (código - mínimo -> posição), ou null se o
+     * intervalo de códigos for grande demais.
+     */
+    private static int[] posicoes(int[] valores) {
+        int min = valores[0];
+        int max = valores[valores.length - 1];
+        if ((long) max - min >= LIMITE_ACESSO_DIRETO) {
+            return null;
+        }
+        int[] posicoes = new int[max - min + 1];
+        for (int k = 0; k < valores.length; k++) {
+            posicoes[valores[k] - min] = k;
+        }
+        return posicoes;
+    }
+
+    private static int posicao(int valor, int[] valores, int[] posicoes, int min) {
+        return posicoes != null ? posicoes[valor - min] : Arrays.binarySearch(valores, valor);
+    }
+
+    private static String[] rotulos(Dimensao dimensao, int[] valores, TabelaEleitores tabela) {
+        String[] rotulos = new String[valores.length];
+        Dicionario dicionario = dimensao.texto() ? tabela.dicionario(dimensao.coluna()) : null;
+        for (int k = 0; k < valores.length; k++) {
+            rotulos[k] = dicionario != null ? dicionario.valor(valores[k]) : String.valueOf(valores[k]);
+        }
+        return rotulos;
+    }
+
+    /**
+     * Junta os resultados de várias bases somando as células de mesmo rótulo.
+     * Os rótulos ficam em ordem de código (numéricos) ou alfabética (textos).
+     */
+    static TabelaCruzada juntar(List<TabelaCruzada> parciais, Dimensao dimensaoLinhas, Dimensao dimensaoColunas) {
+        TreeMap<String, Integer> linhas = new TreeMap<>(ordem(dimensaoLinhas));
+        TreeMap<String, Integer> colunas = new TreeMap<>(ordem(dimensaoColunas));
+        if (dimensaoColunas == null) {
+            colunas.put(ROTULO_TOTAL, 0);
+        }
+        for (TabelaCruzada p : parciais) {
+            for (String r : p.rotulosLinhas) {
+                linhas.put(r, 0);
+            }
+            for (String r : p.rotulosColunas) {
+                colunas.put(r, 0);
+            }
+        }
+        numerar(linhas);
+        numerar(colunas);
+
+        TabelaCruzada total = new TabelaCruzada(dimensaoLinhas, dimensaoColunas,
+                linhas.keySet().toArray(new String[0]), colunas.keySet().toArray(new String[0]));
+        int largura = total.rotulosColunas.length;
+        for (TabelaCruzada p : parciais) {
+            for (int i = 0; i < p.rotulosLinhas.length; i++) {
+                int destinoLinha = linhas.get(p.rotulosLinhas[i]) * largura;
+                for (int j = 0; j < p.rotulosColunas.length; j++) {
+                    int origem = i * p.rotulosColunas.length + j;
+                    int destino = destinoLinha + colunas.get(p.rotulosColunas[j]);
+                    total.eleitores[destino] += p.eleitores[origem];
+                    total.biometria[destino] += p.biometria[origem];
+                    total.deficiencia[destino] += p.deficiencia[origem];
+                }
+            }
+        }
+        return total;
+    }
+
+    private static Comparator<String> ordem(Dimensao dimensao) {
+        if (dimensao == null || dimensao.texto()) {
+            return Comparator.naturalOrder();
+        }
+        return Comparator.comparingInt(Integer::parseInt);
+    }
+
+    private static void numerar(TreeMap<String, Integer> rotulos) {
+        int k = 0;
+        for (String r : new ArrayList<>(rotulos.keySet())) {
+            rotulos.put(r, k++);
+        }
+    }
+
+    /** @return Dimensão das linhas */
+    public Dimensao dimensaoLinhas() {
+        return dimensaoLinhas;
+    }
+
+    /** @return Dimensão das colunas, ou null num histograma */
+    public Dimensao dimensaoColunas() {
+        return dimensaoColunas;
+    }
+
+    /** @return Quantidade de linhas (valores da primeira dimensão) */
+    public int linhas() {
+        return rotulosLinhas.length;
+    }
+
+    /** @return Quantidade de colunas (1 num histograma) */
+    public int colunas() {
+        return rotulosColunas.length;
+    }
+
+    /** @return Código do TSE ou texto da linha i */
+    public String rotuloLinha(int i) {
+        return rotulosLinhas[i];
+    }
+
+    /** @return Código do TSE ou texto da coluna j (TOTAL num histograma) */
+    public String rotuloColuna(int j) {
+        return rotulosColunas[j];
+    }
+
+    /** @return Soma de qtEleitoresPerfil na célula */
+    public long eleitores(int i, int j) {
+        return eleitores[i * rotulosColunas.length + j];
+    }
+
+    /** @return Soma de qtEleitoresBiometria na célula */
+    public long biometria(int i, int j) {
+        return biometria[i * rotulosColunas.length + j];
+    }
+
+    /** @return Soma de qtEleitoresDeficiencia na célula */
+    public long deficiencia(int i, int j) {
+        return deficiencia[i * rotulosColunas.length + j];
+    }
+}
@@ -0,0 +1,408 @@
+package unitins.br;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Armazenamento colunar (struct-of-arrays) dos perfis de eleitor carregados.
+ *
+ * Em vez de um PerfilEleitor (31 campos, 14 Strings) por linha, cada coluna
+ * é um int[] com uma posição por linha. Colunas de texto guardam o código do
+ * valor no Dicionario da coluna. Uma agregação que lê 2 ou 3 colunas percorre
+ * só esses arrays, contíguos na memória, e o heap por linha cai de centenas
+ * de bytes (objeto + Strings) para 4 bytes por coluna.
+ *
+ * Registros PerfilEleitor só são montados sob demanda, com materializar().
+ *
+ * A tabela pode guardar só parte das colunas (projeção definida na criação).
+ * As demais não têm array nem dicionário, e qualquer acesso a elas lança
+ * IllegalStateException, em vez de devolver valores que não foram lidos.
+ */
+public class TabelaEleitores {
+
+    private static final Coluna[] COLUNAS = Coluna.values();
+    private static final double FATOR_CRESCIMENTO = 1.5;
+    // Fração da capacidade que compactar() deixa sem liberar
+    private static final double SOBRA_TOLERADA = 0.05;
+
+    private final int[][] colunas = new int[COLUNAS.length][];
+    private final Dicionario[] dicionarios = new Dicionario[COLUNAS.length];
+    private final EnumSet<Coluna> carregadas;
+    private int quantidade;
+    private int capacidade;
+    private int expansoes;
+
+    /**
+     * Cria uma tabela vazia com todas as colunas.
+     * @param capacidadeInicial Quantidade de linhas reservadas inicialmente
+     */
+    public TabelaEleitores(int capacidadeInicial) {
+        this(capacidadeInicial, Coluna.todas());
+    }
+
+    /**
+     * Cria uma tabela vazia só com as colunas indicadas.
+     * @param capacidadeInicial Quantidade de linhas reservadas inicialmente
+     * @param projecao Colunas guardadas; as outras são ignoradas na leitura
+     */
+    public TabelaEleitores(int capacidadeInicial, Set<Coluna> projecao) {
+        this.capacidade = Math.max(capacidadeInicial, 1);
+        this.carregadas = EnumSet.copyOf(projecao);
+        for (Coluna c : carregadas) {
+            colunas[c.ordinal()] = new int[capacidade];
+            if (c.texto()) {
+                dicionarios[c.ordinal()] = new Dicionario();
+            }
+        }
+    }
+
+    /**
+     * Acrescenta uma linha já convertida (usado pelo LeitorCsv).
+     *
+     * @param valores Um valor por coluna, na ordem de Coluna; colunas de texto
+     *                trazem o código obtido no dicionário desta tabela
+     */
+    public void adicionarCodificada(int[] valores) {
+        if (quantidade == capacidade) {
+            expandir();
+        }
+        for (int c = 0; c < colunas.length; c++) {
+            if (colunas[c] != null) {
+                colunas[c][quantidade] = valores[c];
+            }
+        }
+        quantidade++;
+    }
+
+    /**
+     * Acrescenta ao fim todas as linhas de outra tabela (carga em blocos).
+     *
+     * Os códigos de texto da outra tabela são traduzidos para os dicionários
+     * desta. Como a tradução segue a ordem dos códigos da outra tabela (ordem
+     * da primeira ocorrência), anexar os blocos na ordem do arquivo gera os
+     * mesmos códigos que a leitura sequencial.
+     *
+     * @param outra Tabela com as linhas seguintes do arquivo (com pelo menos
+     *              as colunas desta)
+     */
+    public void anexar(TabelaEleitores outra) {
+        int n = outra.quantidade;
+        while (capacidade - quantidade < n) {
+            expandir();
+        }
+        for (Coluna c : carregadas) {
+            int[] origem = outra.arrayDe(c);
+            int[] destino = colunas[c.ordinal()];
+            if (!c.texto()) {
+                System.arraycopy(origem, 0, destino, quantidade, n);
+                continue;
+            }
+            Dicionario deOutra = outra.dicionarios[c.ordinal()];
+            Dicionario deEsta = dicionarios[c.ordinal()];
+            int[] traducao = new int[deOutra.tamanho()];
+            for (int k = 0; k < traducao.length; k++) {
+                traducao[k] = deEsta.codificar(deOutra.valor(k));
+            }
+            for (int i = 0; i < n; i++) {
+                destino[quantidade + i] = traducao[origem[i]];
+            }
+        }
+        quantidade += n;
+    }
+
+    /**
+     * Aumenta a capacidade de todas as colunas.
+     */
+    private void expandir() {
+        int novaCapacidade = (int) (capacidade * FATOR_CRESCIMENTO) + 1;
+        System.out.printf("  Expandindo tabela: %,d -> %,d%n", capacidade, novaCapacidade);
+
+        for (int c = 0; c < colunas.length; c++) {
+            if (colunas[c] == null) {
+                continue;
+            }
+            int[] novo = new int[novaCapacidade];
+            System.arraycopy(colunas[c], 0, novo, 0, quantidade);
+            colunas[c] = novo;
+        }
+        capacidade = novaCapacidade;
+        expansoes++;
+    }
+
+    /**
+     * @return Quantas vezes as colunas foram copiadas para arrays maiores
+     *         (0 quando a capacidade reservada bastou)
+     */
+    int expansoes() {
+        return expansoes;
+    }
+
+    /**
+     * Reduz as colunas ao tamanho exato, liberando a capacidade sobrando.
+     *
+     * Se a sobra for pequena (tabela reservada pela estimativa do tamanho do
+     * arquivo), as colunas ficam como estão: copiar todas custaria mais que a
+     * memória liberada.
+     */
+    public void compactar() {
+        if (capacidade - quantidade <= capacidade * SOBRA_TOLERADA) {
+            return;
+        }
+        for (int c = 0; c < colunas.length; c++) {
+            if (colunas[c] == null) {
+                continue;
+            }
+            int[] compacto = new int[quantidade];
+            System.arraycopy(colunas[c], 0, compacto, 0, quantidade);
+            colunas[c] = compacto;
+        }
+        capacidade = quantidade;
+    }
+
+    /**
+     * Grava as colunas carregadas e seus dicionários no snapshot.
+     */
+    void gravar(Snapshot.Saida saida) throws IOException {
+        saida.escreverInt(quantidade);
+        saida.escreverInt(colunas.length);
+        int mascara = 0;
+        for (Coluna c : carregadas) {
+            mascara |= 1 << c.ordinal();
+        }
+        saida.escreverInt(mascara);
+        for (int[] coluna : colunas) {
+            if (coluna != null) {
+                saida.escreverInts(coluna, quantidade);
+            }
+        }
+        for (Dicionario d : dicionarios) {
+            if (d != null) {
+                saida.escreverInt(d.tamanho());
+                for (int k = 0; k < d.tamanho(); k++) {
+                    saida.escreverTexto(d.valor(k));
+                }
+            }
+        }
+    }
+
+    /**
+     * Recria uma tabela gravada por gravar(). Os códigos dos dicionários são
+     * os mesmos, pois os valores são cadastrados na ordem dos códigos.
+     */
+    static TabelaEleitores ler(Snapshot.Entrada entrada) throws IOException {
+        int quantidade = entrada.lerInt();
+        if (quantidade < 0 || entrada.lerInt() != COLUNAS.length) {
+            throw new IOException("Snapshot com colunas diferentes de Coluna");
+        }
+        int mascara = entrada.lerInt();
+        EnumSet<Coluna> projecao = EnumSet.noneOf(Coluna.class);
+        for (Coluna c : COLUNAS) {
+            if ((mascara & (1 << c.ordinal())) != 0) {
+                projecao.add(c);
+            }
+        }
+        if (projecao.isEmpty()) {
+            throw new IOException("Snapshot sem colunas");
+        }
+        TabelaEleitores tabela = new TabelaEleitores(1, projecao);
+        for (Coluna c : projecao) {
+            tabela.colunas[c.ordinal()] = entrada.lerInts(quantidade);
+        }
+        for (Dicionario d : tabela.dicionarios) {
+            if (d != null) {
+                int tamanho = entrada.lerInt();
+                for (int k = 0; k < tamanho; k++) {
+                    d.codificar(entrada.lerTexto());
+                }
+            }
+        }
+        tabela.quantidade = quantidade;
+        tabela.capacidade = quantidade;
+        return tabela;
+    }
+
+    /**
+     * @return Quantidade de linhas carregadas
+     */
+    public int quantidade() {
+        return quantidade;
+    }
+
+    /**
+     * @return Colunas guardadas por esta tabela (cópia)
+     */
+    public EnumSet<Coluna> colunasCarregadas() {
+        return EnumSet.copyOf(carregadas);
+    }
+
+    /**
+     * @return true se a coluna foi carregada
+     */
+    public boolean carregada(Coluna c) {
+        return colunas[c.ordinal()] != null;
+    }
+
+    /**
+     * Array de uma coluna, com erro explícito se ela ficou fora da projeção.
+     */
+    private int[] arrayDe(Coluna c) {
+        int[] coluna = colunas[c.ordinal()];
+        if (coluna == null) {
+            throw new IllegalStateException("Coluna " + c + " não foi carregada (colunas da carga: "
+                    + carregadas + ")");
+        }
+        return coluna;
+    }
+
+    /**
+     * Retorna o array da coluna para laços de agregação.
+     * Só as posições [0, quantidade()) são válidas; o array não deve ser alterado.
+     * Em colunas de texto, os valores são códigos do dicionário da coluna.
+     *
+     * @param c Coluna desejada
+     * @return Array interno da coluna
+     * @throws IllegalStateException se a coluna não foi carregada
+     */
+    public int[] coluna(Coluna c) {
+        return arrayDe(c);
+    }
+
+    /**
+     * @return Valor numérico (ou código, se for coluna de texto) de uma célula
+     * @throws IllegalStateException se a coluna não foi carregada
+     */
+    public int valor(Coluna c, int linha) {
+        return arrayDe(c)[linha];
+    }
+
+    /**
+     * @return Texto de uma célula de coluna de texto
+     * @throws IllegalStateException se a coluna não foi carregada
+     */
+    public String texto(Coluna c, int linha) {
+        return dicionarios[c.ordinal()].valor(arrayDe(c)[linha]);
+    }
+
+    /**
+     * @return Dicionário de uma coluna de texto (null para colunas numéricas)
+     * @throws IllegalStateException se a coluna não foi carregada
+     */
+    public Dicionario dicionario(Coluna c) {
+        arrayDe(c);
+        return dicionarios[c.ordinal()];
+    }
+
+    /**
+     * Monta o registro completo de uma linha (aloca um PerfilEleitor).
+     *
+     * @param linha Índice da linha
+     * @return Registro equivalente ao lido do CSV
+     * @throws IllegalStateException se a tabela não tem todas as colunas
+     */
+    public PerfilEleitor materializar(int linha) {
+        return new PerfilEleitor(
+            texto(Coluna.DT_GERACAO, linha),
+            texto(Coluna.HH_GERACAO, linha),
+            valor(Coluna.ANO_ELEICAO, linha),
+            texto(Coluna.SG_UF, linha),
+            valor(Coluna.CD_MUNICIPIO, linha),
+            texto(Coluna.NM_MUNICIPIO, linha),
+            valor(Coluna.NR_ZONA, linha),
+            valor(Coluna.NR_SECAO, linha),
+            valor(Coluna.NR_LOCAL_VOTACAO, linha),
+            texto(Coluna.NM_LOCAL_VOTACAO, linha),
+            valor(Coluna.CD_GENERO, linha),
+            texto(Coluna.DS_GENERO, linha),
+            valor(Coluna.CD_ESTADO_CIVIL, linha),
+            texto(Coluna.DS_ESTADO_CIVIL, linha),
+            valor(Coluna.CD_FAIXA_ETARIA, linha),
+            texto(Coluna.DS_FAIXA_ETARIA, linha),
+            valor(Coluna.CD_GRAU_ESCOLARIDADE, linha),
+            texto(Coluna.DS_GRAU_ESCOLARIDADE, linha),
+            valor(Coluna.CD_RACA_COR, linha),
+            texto(Coluna.DS_RACA_COR, linha),
+            valor(Coluna.CD_IDENTIDADE_GENERO, linha),
+            texto(Coluna.DS_IDENTIDADE_GENERO, linha),
+            valor(Coluna.CD_QUILOMBOLA, linha),
+            texto(Coluna.DS_QUILOMBOLA, linha),
+            valor(Coluna.CD_INTERPRETE_LIBRAS, linha),
+            texto(Coluna.DS_INTERPRETE_LIBRAS, linha),
+            texto(Coluna.TP_OBRIGATORIEDADE_VOTO, linha),
+            valor(Coluna.QT_ELEITORES_PERFIL, linha),
+            valor(Coluna.QT_ELEITORES_BIOMETRIA, linha),
+            valor(Coluna.QT_ELEITORES_DEFICIENCIA, linha),
+            valor(Coluna.QT_ELEITORES_INC_NM_SOCIAL, linha)
+        );
+    }
+
+    /**
+     * Estimativa do heap que as colunas de texto ocupariam sem dicionário,
+     * com uma String própria por linha (como fazia a leitura antiga, com split).
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesTextoSemDicionario() {
+        long total = 0;
+        for (Coluna c : carregadas) {
+            if (!c.texto()) {
+                continue;
+            }
+            // Ocorrências de cada código, para não percorrer as Strings por linha
+            Dicionario d = dicionarios[c.ordinal()];
+            int[] ocorrencias = new int[d.tamanho()];
+            int[] codigos = colunas[c.ordinal()];
+            for (int i = 0; i < quantidade; i++) {
+                ocorrencias[codigos[i]]++;
+            }
+            for (int k = 0; k < ocorrencias.length; k++) {
+                // Referência + String + byte[] (Latin-1)
+                total += ocorrencias[k] * (4L + 40 + d.valor(k).length());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Estimativa do heap ocupado pelos dicionários (códigos por linha + textos).
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesTextoComDicionario() {
+        long total = 0;
+        for (Coluna c : carregadas) {
+            if (c.texto()) {
+                total += 4L * quantidade + bytesDicionario(dicionarios[c.ordinal()]);
+            }
+        }
+        return total;
+    }
+
+    private static long bytesDicionario(Dicionario d) {
+        long total = 0;
+        for (int i = 0; i < d.tamanho(); i++) {
+            // String + byte[] (Latin-1) + entrada no mapa
+            total += 40 + d.valor(i).length() + 48;
+        }
+        return total;
+    }
+
+    /**
+     * Estimativa do heap ocupado pelas colunas e dicionários.
+     *
+     * @return Bytes aproximados
+     */
+    public long bytesEstimados() {
+        long total = 0;
+        for (int c = 0; c < colunas.length; c++) {
+            if (colunas[c] == null) {
+                continue;
+            }
+            total += 16 + 4L * colunas[c].length;
+            if (dicionarios[c] != null) {
+                total += bytesDicionario(dicionarios[c]);
+            }
+        }
+        return total;
+    }
+}
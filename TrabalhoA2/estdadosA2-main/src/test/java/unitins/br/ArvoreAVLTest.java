@@ -0,0 +1,61 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A ArvoreAVL deve manter altura O(log n) mesmo com as chaves chegando em
+ * ordem, como os códigos de município no CSV do TSE (numa BST comum a
+ * árvore viraria uma lista com altura n).
+ */
+class ArvoreAVLTest {
+
+    private static final int N = 100_000;
+
+    /** Limite de altura de uma AVL com n nós: 1,44 log2(n + 2). */
+    private static double limiteAltura(int n) {
+        return 1.44 * Math.log(n + 2) / Math.log(2);
+    }
+
+    @Test
+    void alturaLogaritmicaComChavesCrescentes() {
+        ArvoreAVL<Integer> arvore = new ArvoreAVL<>(Integer.class);
+        for (int chave = 1; chave <= N; chave++) {
+            arvore.inserir(chave, Registros.perfil(chave, 1));
+        }
+
+        assertEquals(N, arvore.tamanho());
+        assertTrue(arvore.altura() <= limiteAltura(N),
+                "altura " + arvore.altura() + " acima de " + limiteAltura(N));
+    }
+
+    @Test
+    void alturaLogaritmicaComChavesDecrescentes() {
+        ArvoreAVL<Integer> arvore = new ArvoreAVL<>(Integer.class);
+        for (int chave = N; chave >= 1; chave--) {
+            arvore.inserir(chave, Registros.perfil(chave, 1));
+        }
+
+        assertEquals(N, arvore.tamanho());
+        assertTrue(arvore.altura() <= limiteAltura(N),
+                "altura " + arvore.altura() + " acima de " + limiteAltura(N));
+    }
+
+    @Test
+    void rotacoesNaoPerdemRegistros() {
+        ArvoreAVL<Integer> arvore = new ArvoreAVL<>(Integer.class);
+        for (int chave = 1; chave <= 1000; chave++) {
+            arvore.inserir(chave, Registros.perfil(chave, chave));
+            arvore.inserir(chave, Registros.perfil(chave, 1));
+        }
+
+        assertEquals(1000, arvore.tamanho());
+        assertEquals(2000, arvore.totalRegistros());
+        for (int chave = 1; chave <= 1000; chave++) {
+            assertEquals(2, arvore.buscar(chave).length);
+            assertEquals(chave + 1, arvore.somar(chave, PerfilEleitor::qtEleitoresPerfil));
+        }
+    }
+}
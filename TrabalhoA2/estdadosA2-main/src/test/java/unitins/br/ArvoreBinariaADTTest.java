@@ -0,0 +1,106 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Operações do TAD em ArvoreBinaria e ArvoreAVL (as implementações de
+ * ArvoreBinariaADT do trabalho): busca, intervalo, piso/teto, iteração em
+ * ordem e contadores pré-agregados. As duas devem dar os mesmos resultados.
+ */
+class ArvoreBinariaADTTest {
+
+    // Cidades com códigos pares de 10 a 200, inseridas fora de ordem
+    private static List<ArvoreBinariaADT<Integer>> arvores() {
+        List<ArvoreBinariaADT<Integer>> arvores = List.of(new ArvoreBinaria(), new ArvoreAVL<>(Integer.class));
+        for (ArvoreBinariaADT<Integer> arvore : arvores) {
+            for (int i = 0; i < 96; i++) {
+                int cidade = 10 + 2 * ((i * 37) % 96);
+                arvore.inserir(cidade, Registros.perfil(cidade, cidade));
+                arvore.inserir(cidade, Registros.perfil(cidade, 1));
+            }
+        }
+        return arvores;
+    }
+
+    @Test
+    void buscaEContagem() {
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            assertEquals(96, arvore.tamanho());
+            assertEquals(192, arvore.totalRegistros());
+            assertFalse(arvore.estaVazia());
+            assertTrue(arvore.contem(100));
+            assertFalse(arvore.contem(101));
+            assertEquals(2, arvore.buscar(100).length);
+            assertEquals(0, arvore.buscar(101).length);
+            assertEquals(101, arvore.somar(100, PerfilEleitor::qtEleitoresPerfil));
+            assertEquals(0, arvore.somar(101, PerfilEleitor::qtEleitoresPerfil));
+        }
+    }
+
+    @Test
+    void emOrdemEIterador() {
+        Integer[] esperadas = new Integer[96];
+        for (int i = 0; i < 96; i++) {
+            esperadas[i] = 10 + 2 * i;
+        }
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            assertArrayEquals(esperadas, arvore.emOrdem());
+
+            List<Integer> iteradas = new ArrayList<>();
+            for (Iterator<Integer> it = arvore.iteradorEmOrdem(); it.hasNext(); ) {
+                iteradas.add(it.next());
+            }
+            assertArrayEquals(esperadas, iteradas.toArray(new Integer[0]));
+        }
+    }
+
+    @Test
+    void intervaloPisoETeto() {
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            assertArrayEquals(new Integer[] {20, 22, 24}, arvore.chavesNoIntervalo(19, 25));
+            assertEquals(6, arvore.buscarIntervalo(19, 25).length);
+            assertEquals(20 + 22 + 24 + 3, arvore.somarIntervalo(19, 25, PerfilEleitor::qtEleitoresPerfil));
+            assertEquals(0, arvore.chavesNoIntervalo(25, 19).length);
+
+            assertEquals(Integer.valueOf(20), arvore.piso(21));
+            assertEquals(Integer.valueOf(22), arvore.teto(21));
+            assertEquals(Integer.valueOf(20), arvore.piso(20));
+            assertEquals(Integer.valueOf(20), arvore.teto(20));
+            assertNull(arvore.piso(9));
+            assertNull(arvore.teto(201));
+        }
+    }
+
+    @Test
+    void contadoresSomamOsRegistrosDaChave() {
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            ContadoresPerfil contadores = arvore.contadores(100);
+            assertEquals(101, contadores.totalEleitores());
+            assertEquals(101, contadores.porGenero("masculino"));
+            assertEquals(0, contadores.porGenero("FEMININO"));
+            assertEquals(101, contadores.porFaixaEtaria(2100));
+            assertEquals(101, contadores.porEscolaridade(6));
+            assertNull(arvore.contadores(101));
+        }
+    }
+
+    @Test
+    void limparEsvaziaAArvore() {
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            arvore.limpar();
+            assertTrue(arvore.estaVazia());
+            assertEquals(0, arvore.altura());
+            assertFalse(arvore.iteradorEmOrdem().hasNext());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * ArvoreEytzinger contra as árvores de ponteiros (ArvoreBinaria e ArvoreAVL)
+ * com os mesmos registros: mesmas respostas por cidade, e mais consultas por
+ * segundo que as duas. As chaves são int primitivos: consultar não aloca.
+ */
+class ArvoreEytzingerTest {
+
+    private static final int LINHAS = 200_000;
+    // Quantidade de municípios do Brasil
+    private static final int CIDADES = 5_570;
+    private static final int CONSULTAS = 1_000_000;
+    // Folga para o que a própria medição aloca
+    private static final long LIMITE_BYTES = 1024;
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static ArvoreEytzinger eytzinger() throws IOException {
+        return ArvoreEytzinger.construir(DadosTse.tabela(DadosTse.csv("AC", LINHAS, CIDADES), Coluna.indices()));
+    }
+
+    /** Os mesmos registros, inseridos em ordem aleatória (árvore sem degenerar). */
+    private static void preencher(ArvoreBinariaADT<Integer> arvore) {
+        int[] ordem = new int[LINHAS];
+        for (int i = 0; i < LINHAS; i++) {
+            ordem[i] = i;
+        }
+        Random aleatorio = new Random(7);
+        for (int i = LINHAS - 1; i > 0; i--) {
+            int j = aleatorio.nextInt(i + 1);
+            int t = ordem[i];
+            ordem[i] = ordem[j];
+            ordem[j] = t;
+        }
+        for (int i : ordem) {
+            int cidade = DadosTse.cidade(i, CIDADES);
+            arvore.inserir(cidade, Registros.perfil(cidade, DadosTse.quantidade(i)));
+        }
+    }
+
+    /** Cidades existentes em ordem aleatória, com 1 em cada 10 inexistente. */
+    private static int[] chavesConsultadas() {
+        Random aleatorio = new Random(11);
+        int[] chaves = new int[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            int cidade = DadosTse.cidade(aleatorio.nextInt(CIDADES), CIDADES);
+            chaves[i] = i % 10 == 0 ? cidade + 3 : cidade;
+        }
+        return chaves;
+    }
+
+    @Test
+    void mesmasRespostasQueArvoreBinaria() throws IOException {
+        ArvoreEytzinger eytzinger = eytzinger();
+        ArvoreBinaria binaria = new ArvoreBinaria();
+        preencher(binaria);
+
+        assertEquals(binaria.tamanho(), eytzinger.tamanho());
+        assertEquals(binaria.totalRegistros(), eytzinger.totalRegistros());
+        Integer[] emOrdem = binaria.emOrdem();
+        int[] chaves = eytzinger.chavesEmOrdem();
+        assertEquals(emOrdem.length, chaves.length);
+        for (int k = 0; k < chaves.length; k++) {
+            assertEquals((int) emOrdem[k], chaves[k]);
+            assertEquals(binaria.contadores(chaves[k]).totalEleitores(), eytzinger.contadores(chaves[k]).totalEleitores());
+            assertTrue(eytzinger.contem(chaves[k]));
+            assertFalse(eytzinger.contem(chaves[k] + 3));
+            assertNull(eytzinger.contadores(chaves[k] + 3));
+        }
+        assertArrayEquals(new int[] {chaves[1], chaves[2]}, eytzinger.chavesNoIntervalo(chaves[1], chaves[2]));
+        // Árvore completa: altura = piso(log2(n)) + 1
+        assertEquals(32 - Integer.numberOfLeadingZeros(CIDADES), eytzinger.altura());
+    }
+
+    @Test
+    void consultaMaisRapidaQueAsArvoresDePonteiros() throws Exception {
+        ArvoreEytzinger eytzinger = eytzinger();
+        ArvoreBinaria binaria = new ArvoreBinaria();
+        preencher(binaria);
+        ArvoreAVL<Integer> avl = new ArvoreAVL<>(Integer.class);
+        preencher(avl);
+        int[] chaves = chavesConsultadas();
+        long[] soma = new long[3];
+
+        long tempoEytzinger = Medicao.melhorTempo(3, 5, () -> {
+            long s = 0;
+            for (int chave : chaves) {
+                ContadoresPerfil c = eytzinger.contadores(chave);
+                s += c == null ? 0 : c.totalEleitores();
+            }
+            soma[0] = s;
+        });
+        long tempoBinaria = Medicao.melhorTempo(3, 5, () -> {
+            long s = 0;
+            for (int chave : chaves) {
+                ContadoresPerfil c = binaria.contadores(chave);
+                s += c == null ? 0 : c.totalEleitores();
+            }
+            soma[1] = s;
+        });
+        long tempoAvl = Medicao.melhorTempo(3, 5, () -> {
+            long s = 0;
+            for (int chave : chaves) {
+                ContadoresPerfil c = avl.contadores(chave);
+                s += c == null ? 0 : c.totalEleitores();
+            }
+            soma[2] = s;
+        });
+        Medicao.relatar(String.format("%,d consultas por cidade (%,d cidades)", CONSULTAS, CIDADES),
+                new String[] {"ArvoreEytzinger", "ArvoreBinaria", "ArvoreAVL"},
+                new long[] {tempoEytzinger, tempoBinaria, tempoAvl});
+
+        assertEquals(soma[1], soma[0]);
+        assertEquals(soma[2], soma[0]);
+        assertTrue(tempoEytzinger < tempoBinaria, "Eytzinger não foi mais rápida que ArvoreBinaria");
+        assertTrue(tempoEytzinger < tempoAvl, "Eytzinger não foi mais rápida que ArvoreAVL");
+    }
+
+    @Test
+    void consultaPorChaveIntNaoAloca() throws IOException {
+        ArvoreEytzinger eytzinger = eytzinger();
+        // Códigos acima de 127, fora do cache de Integer: cada Integer seria um objeto novo
+        int[] chaves = chavesConsultadas();
+        long soma = 0;
+        for (int chave : chaves) {
+            soma += eytzinger.contem(chave) ? eytzinger.primeiraLinha(chave) : 0; // Aquecer o JIT
+        }
+
+        long antes = THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        for (int chave : chaves) {
+            ContadoresPerfil c = eytzinger.contadores(chave);
+            soma += c == null ? 0 : c.totalEleitores();
+            soma += eytzinger.contem(chave) ? eytzinger.primeiraLinha(chave) : 0;
+        }
+        long alocado = THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId()) - antes;
+
+        assertTrue(soma > 0);
+        assertTrue(alocado < LIMITE_BYTES, CONSULTAS + " consultas alocaram " + alocado + " bytes");
+    }
+}
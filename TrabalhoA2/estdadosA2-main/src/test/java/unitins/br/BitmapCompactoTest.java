@@ -0,0 +1,183 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BitmapCompacto contra um boolean[] percorrido linha a linha: mesmas linhas
+ * em paraCada(), mesma cardinalidade e mesmas somas, com blocos esparsos,
+ * densos (inclusive na conversão em LIMITE_ESPARSO) e misturados, dos dois
+ * lados da divisa de 65.536 linhas.
+ */
+class BitmapCompactoTest {
+
+    private static final int BLOCO = 1 << 16;
+    private static final int LIMITE_ESPARSO = 4096;
+
+    /** Bitmap com as linhas marcadas, adicionadas em ordem. */
+    static BitmapCompacto construir(boolean[] presentes) {
+        BitmapCompacto.Construtor construtor = new BitmapCompacto.Construtor();
+        for (int i = 0; i < presentes.length; i++) {
+            if (presentes[i]) {
+                construtor.adicionar(i);
+            }
+        }
+        return construtor.construir();
+    }
+
+    /** Linhas visitadas por paraCada(), na ordem da visita. */
+    static int[] linhas(BitmapCompacto bitmap) {
+        int[][] linhas = {new int[16]};
+        int[] qtd = {0};
+        bitmap.paraCada(i -> {
+            if (qtd[0] == linhas[0].length) {
+                linhas[0] = Arrays.copyOf(linhas[0], qtd[0] * 2);
+            }
+            linhas[0][qtd[0]++] = i;
+        });
+        return Arrays.copyOf(linhas[0], qtd[0]);
+    }
+
+    /**
+     * O bitmap tem exatamente as linhas marcadas, e somar() (inteiro e por
+     * intervalo de blocos) dá a soma de valores[] nessas linhas.
+     */
+    static void assertMesmasLinhas(boolean[] presentes, int[] valores, BitmapCompacto bitmap) {
+        int[] esperadas = new int[presentes.length];
+        int qtd = 0;
+        long soma = 0;
+        // Soma acumulada por bloco existente, para conferir somar(de, ate)
+        long[] somaAteBloco = new long[presentes.length / BLOCO + 2];
+        int blocos = 0;
+        int ultimoBloco = -1;
+        for (int i = 0; i < presentes.length; i++) {
+            if (presentes[i]) {
+                esperadas[qtd++] = i;
+                if (i / BLOCO != ultimoBloco) {
+                    ultimoBloco = i / BLOCO;
+                    blocos++;
+                    somaAteBloco[blocos] = somaAteBloco[blocos - 1];
+                }
+                somaAteBloco[blocos] += valores[i];
+                soma += valores[i];
+            }
+        }
+
+        assertArrayEquals(Arrays.copyOf(esperadas, qtd), linhas(bitmap));
+        assertEquals(qtd, bitmap.cardinalidade());
+        assertEquals(blocos, bitmap.blocos());
+        assertEquals(soma, bitmap.somar(valores));
+        for (int de = 0; de <= blocos; de++) {
+            for (int ate = de; ate <= blocos; ate++) {
+                assertEquals(somaAteBloco[ate] - somaAteBloco[de], bitmap.somar(valores, de, ate),
+                        "blocos " + de + " a " + ate);
+            }
+        }
+    }
+
+    /** Valores de uma coluna de contagem, alguns perto de Integer.MAX_VALUE. */
+    private static int[] valores(int n, Random aleatorio) {
+        int[] valores = new int[n];
+        for (int i = 0; i < n; i++) {
+            valores[i] = aleatorio.nextInt(50) == 0 ? Integer.MAX_VALUE - aleatorio.nextInt(100) : aleatorio.nextInt(500);
+        }
+        return valores;
+    }
+
+    /** Marca "quantidade" linhas sorteadas do bloco b. */
+    private static void marcar(boolean[] presentes, int b, int quantidade, Random aleatorio) {
+        int inicio = b * BLOCO;
+        int fim = Math.min(presentes.length, inicio + BLOCO);
+        int marcadas = 0;
+        for (int i = inicio; i < fim; i++) {
+            marcadas += presentes[i] ? 1 : 0;
+        }
+        while (marcadas < Math.min(quantidade, fim - inicio)) {
+            int i = inicio + aleatorio.nextInt(fim - inicio);
+            if (!presentes[i]) {
+                presentes[i] = true;
+                marcadas++;
+            }
+        }
+    }
+
+    @Test
+    void conversaoParaDensoNoLimite() {
+        Random aleatorio = new Random(1);
+        int[] valores = valores(BLOCO, aleatorio);
+        for (int quantidade : new int[] {0, 1, 2, LIMITE_ESPARSO - 1, LIMITE_ESPARSO, LIMITE_ESPARSO + 1,
+                LIMITE_ESPARSO + 2, 2 * LIMITE_ESPARSO, BLOCO - 1, BLOCO}) {
+            boolean[] presentes = new boolean[BLOCO];
+            marcar(presentes, 0, quantidade, aleatorio);
+            BitmapCompacto bitmap = construir(presentes);
+            assertMesmasLinhas(presentes, valores, bitmap);
+
+            // Até o limite o bloco é um array de char; acima, o mapa de 8 KB
+            long bloco = quantidade == 0 ? 0 : 16 + (quantidade <= LIMITE_ESPARSO ? 2L * quantidade : 8192);
+            assertEquals(construir(new boolean[0]).bytesEstimados() + (quantidade == 0 ? 0 : 2 + 16) + bloco,
+                    bitmap.bytesEstimados(), quantidade + " linhas");
+        }
+    }
+
+    @Test
+    void blocosNaDivisaDe65536() {
+        int n = 4 * BLOCO + 100;
+        int[] valores = valores(n, new Random(2));
+        int[][] casos = {
+            {BLOCO - 1},
+            {BLOCO},
+            {BLOCO - 1, BLOCO},
+            {0, BLOCO - 1, BLOCO, 2 * BLOCO - 1, 2 * BLOCO, 4 * BLOCO, n - 1},
+            {3 * BLOCO - 1, 4 * BLOCO + 99}
+        };
+        for (int[] caso : casos) {
+            boolean[] presentes = new boolean[n];
+            for (int linha : caso) {
+                presentes[linha] = true;
+            }
+            assertMesmasLinhas(presentes, valores, construir(presentes));
+        }
+
+        // Bloco denso terminando na última linha e o seguinte começando na primeira
+        boolean[] presentes = new boolean[n];
+        Arrays.fill(presentes, BLOCO - LIMITE_ESPARSO - 10, BLOCO + 3, true);
+        Arrays.fill(presentes, 2 * BLOCO - 5, 2 * BLOCO + LIMITE_ESPARSO + 10, true);
+        assertMesmasLinhas(presentes, valores, construir(presentes));
+    }
+
+    @Test
+    void esparsosDensosEMisturados() {
+        Random aleatorio = new Random(3);
+        int n = 6 * BLOCO + 12_345;
+        int[] valores = valores(n, aleatorio);
+        // Quantidade por bloco: esparsos, densos, vazios e os dois lados do limite
+        int[][] casos = {
+            {10, 100, 1000, 3000, 4000, 1, 500},
+            {30_000, BLOCO, 50_000, 20_000, 60_000, 10_000, 12_345},
+            {5, 40_000, 0, LIMITE_ESPARSO + 1, LIMITE_ESPARSO, 0, 7},
+            {0, 0, 0, BLOCO, 0, 0, 0},
+            {0, 0, 0, 0, 0, 0, 0}
+        };
+        for (int[] caso : casos) {
+            boolean[] presentes = new boolean[n];
+            for (int b = 0; b < caso.length; b++) {
+                marcar(presentes, b, caso[b], aleatorio);
+            }
+            assertMesmasLinhas(presentes, valores, construir(presentes));
+        }
+
+        // Densidade sorteada linha a linha
+        for (double densidade : new double[] {0.001, 0.05, 0.2, 0.9}) {
+            boolean[] presentes = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                presentes[i] = aleatorio.nextDouble() < densidade;
+            }
+            assertMesmasLinhas(presentes, valores, construir(presentes));
+        }
+    }
+}
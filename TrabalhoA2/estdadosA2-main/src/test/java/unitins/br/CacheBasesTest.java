@@ -0,0 +1,155 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CacheBases com bases pequenas de tamanhos conhecidos: ordem de descarte
+ * (LRU), bases fixadas, redução do orçamento e a conta de ocupado() ao
+ * substituir e descartar bases.
+ */
+class CacheBasesTest {
+
+    private static final BaseEstado PEQUENA = base(200);
+    private static final BaseEstado GRANDE = base(2_000);
+    private static final long P = PEQUENA.bytesEstimados();
+    private static final long G = GRANDE.bytesEstimados();
+
+    /** Base com as primeiras linhas de DadosTse, indexada como na leitura. */
+    private static BaseEstado base(int linhas) {
+        try {
+            return DadosTse.base(DadosTse.csv("AC", linhas));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CacheBases cache(long orcamento, String... ufs) {
+        CacheBases cache = new CacheBases(orcamento);
+        for (String uf : ufs) {
+            cache.guardar(uf, PEQUENA);
+        }
+        return cache;
+    }
+
+    @Test
+    void descartaAMenosUsada() {
+        assertTrue(P < G);
+        CacheBases cache = cache(3 * P, "AC", "BA", "CE");
+        assertEquals(List.of("AC", "BA", "CE"), cache.ufs());
+        assertEquals(3 * P, cache.ocupado());
+
+        // obter() conta como uso: a menos usada passa a ser BA
+        assertTrue(cache.obter("AC") == PEQUENA);
+        cache.guardar("DF", PEQUENA);
+        assertEquals(List.of("AC", "CE", "DF"), cache.ufs());
+        assertFalse(cache.contem("BA"));
+        assertNull(cache.obter("BA"));
+        assertEquals(3 * P, cache.ocupado());
+
+        // contem(), ufs() e bases() não contam como uso: CE continua a menos usada
+        assertTrue(cache.contem("CE"));
+        assertEquals(3, cache.bases().size());
+        cache.guardar("ES", PEQUENA);
+        assertEquals(List.of("AC", "DF", "ES"), cache.ufs());
+
+        // Reduzir o orçamento descarta a menos usada; uma base maior, as
+        // menos usadas que forem preciso
+        cache.setOrcamento(2 * P);
+        assertEquals(List.of("DF", "ES"), cache.ufs());
+        cache.setOrcamento(G + P);
+        cache.guardar("GO", GRANDE);
+        assertEquals(List.of("ES", "GO"), cache.ufs());
+        assertEquals(G + P, cache.ocupado());
+    }
+
+    @Test
+    void fixadasNaoSaoDescartadas() {
+        CacheBases cache = cache(2 * P, "AC", "BA");
+        cache.fixar(List.of("AC", "BA"));
+
+        // Acima do orçamento, mas todas estão fixadas ou acabaram de entrar
+        cache.guardar("CE", PEQUENA);
+        assertEquals(List.of("AC", "BA", "CE"), cache.ufs());
+        assertEquals(3 * P, cache.ocupado());
+
+        // A recém-guardada fica mesmo sozinha acima do orçamento
+        cache.guardar("DF", GRANDE);
+        assertEquals(List.of("AC", "BA", "DF"), cache.ufs());
+        assertEquals(2 * P + G, cache.ocupado());
+
+        // Ao soltar AC, saem as não fixadas até caber: AC e DF
+        cache.fixar(List.of("BA"));
+        assertEquals(List.of("BA"), cache.ufs());
+        assertEquals(P, cache.ocupado());
+
+        // Sem fixadas, nada acima do orçamento fica
+        cache.fixar(List.of());
+        assertEquals(List.of("BA"), cache.ufs());
+        cache.setOrcamento(0);
+        assertEquals(List.of(), cache.ufs());
+        assertEquals(0, cache.ocupado());
+    }
+
+    @Test
+    void reduzirOrcamentoDescarta() {
+        CacheBases cache = cache(4 * P, "AC", "BA", "CE", "DF");
+        cache.obter("BA");
+        cache.fixar(List.of("CE"));
+
+        cache.setOrcamento(4 * P);
+        assertEquals(4, cache.ufs().size());
+
+        cache.setOrcamento(2 * P);
+        assertEquals(List.of("BA", "CE"), cache.ufs());
+        assertEquals(2 * P, cache.ocupado());
+        assertEquals(2 * P, cache.orcamento());
+
+        cache.setOrcamento(0);
+        assertEquals(List.of("CE"), cache.ufs());
+        assertEquals(P, cache.ocupado());
+
+        // Aumentar não traz nada de volta nem descarta
+        cache.setOrcamento(10 * G);
+        assertEquals(List.of("CE"), cache.ufs());
+        assertEquals(P, cache.ocupado());
+    }
+
+    @Test
+    void ocupadoAcompanhaSubstituicoesEDescartes() {
+        CacheBases cache = cache(10 * G, "AC", "BA");
+        assertEquals(2 * P, cache.ocupado());
+
+        // Substituir desconta o tamanho da base anterior
+        cache.guardar("AC", GRANDE);
+        assertEquals(P + G, cache.ocupado());
+        assertTrue(cache.obter("AC") == GRANDE);
+        cache.guardar("AC", PEQUENA);
+        assertEquals(2 * P, cache.ocupado());
+        cache.guardar("AC", PEQUENA);
+        assertEquals(2 * P, cache.ocupado());
+
+        // Substituir conta como uso: BA deixa de ser a menos usada
+        cache.guardar("CE", GRANDE);
+        cache.guardar("BA", GRANDE);
+        assertEquals(P + 2 * G, cache.ocupado());
+        cache.setOrcamento(2 * G);
+        assertEquals(List.of("BA", "CE"), cache.ufs());
+        assertEquals(2 * G, cache.ocupado());
+
+        // Descartar tudo e guardar de novo volta ao mesmo total
+        cache.setOrcamento(0);
+        assertEquals(0, cache.ocupado());
+        cache.setOrcamento(10 * G);
+        cache.guardar("AC", PEQUENA);
+        cache.guardar("BA", PEQUENA);
+        assertEquals(2 * P, cache.ocupado());
+    }
+}
@@ -0,0 +1,133 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Carga em pipeline de um ZIP no formato do TSE servido por HTTP local: a
+ * tabela e os índices devem sair iguais aos da leitura SEQUENCIAL do mesmo CSV,
+ * com a tabela reservada uma única vez pelo tamanho do CSV no ZIP.
+ */
+class CargaEmPipelineTest {
+
+    // Mais linhas que um lote do pipeline (65.536), para os índices serem
+    // acumulados em várias partes enquanto a leitura continua
+    private static final int LINHAS = 150_000;
+    private static final int CIDADE_CONSULTADA = DadosTse.PRIMEIRA_CIDADE;
+    private static final String CSV = "perfil_eleitor_secao_ATUAL_AC.csv";
+    private static final String ZIP = "/perfil_eleitor_secao_ATUAL_AC.zip";
+
+    /** Carrega em pipeline o ZIP servido localmente, aceitando ou não Range. */
+    private static BaseEstado pipeline(byte[] zip, boolean aceitaRange, Path arquivoZip) throws IOException {
+        try (ServidorHttp servidor = ServidorHttp.iniciar(ZIP, zip)) {
+            if (!aceitaRange) {
+                servidor.ignorarRange();
+            }
+            BaseEstado base = CargaEmPipeline.carregar(servidor.url(), arquivoZip.toString(), Coluna.todas());
+            // Além do download, só o fim do ZIP foi pedido (diretório central)
+            assertTrue(servidor.requisicoes().stream().anyMatch(r -> "bytes=-65536".equals(r.range())));
+            return base;
+        }
+    }
+
+    @Test
+    void mesmaBaseQueALeituraSequencial() throws IOException {
+        Path diretorio = Files.createTempDirectory("pipeline");
+        try {
+            byte[] csv = DadosTse.csv("AC", LINHAS);
+            byte[] zip = DadosTse.zip(CSV, csv);
+            Path arquivoCsv = Files.write(diretorio.resolve(CSV), csv);
+            Path arquivoZip = diretorio.resolve("perfil_eleitor_secao_AC.zip");
+
+            BaseEstado pipeline = pipeline(zip, true, arquivoZip);
+            AppService servico = new AppService();
+            servico.setModoCarga(ModoCarga.SEQUENCIAL);
+            BaseEstado sequencial = servico.lerArquivoCsv(arquivoCsv.toString());
+
+            // O ZIP baixado também fica no disco
+            assertArrayEquals(zip, Files.readAllBytes(arquivoZip));
+
+            assertEquals(LINHAS, sequencial.tabela().quantidade());
+            assertEquals(sequencial.tabela().quantidade(), pipeline.tabela().quantidade());
+            // O ZIP não traz o tamanho no cabeçalho local: veio do diretório central
+            assertEquals(0, pipeline.tabela().expansoes());
+            assertEquals(sequencial.porCidade().tamanho(), pipeline.porCidade().tamanho());
+            assertEquals(sequencial.porSecao().tamanho(), pipeline.porSecao().tamanho());
+
+            long esperado = 0;
+            int linhaEsperada = -1;
+            for (int i = 0; i < LINHAS; i++) {
+                if (DadosTse.cidade(i) == CIDADE_CONSULTADA) {
+                    esperado += DadosTse.quantidade(i);
+                    linhaEsperada = linhaEsperada < 0 ? i : linhaEsperada;
+                }
+            }
+            ContadoresPerfil porCidade = pipeline.porCidade().contadores(CIDADE_CONSULTADA);
+            assertEquals(esperado, porCidade.totalEleitores());
+            assertEquals(sequencial.porCidade().contadores(CIDADE_CONSULTADA).totalEleitores(), porCidade.totalEleitores());
+            assertEquals(sequencial.porCidade().primeiraLinha(CIDADE_CONSULTADA),
+                    pipeline.porCidade().primeiraLinha(CIDADE_CONSULTADA));
+            assertEquals(linhaEsperada, pipeline.porCidade().primeiraLinha(CIDADE_CONSULTADA));
+
+            int ultima = LINHAS - 1;
+            ChaveComposta secao = new ChaveComposta(DadosTse.cidade(ultima), DadosTse.zona(ultima), DadosTse.secao(ultima));
+            assertEquals(sequencial.porSecao().contadores(secao).totalEleitores(),
+                    pipeline.porSecao().contadores(secao).totalEleitores());
+            assertEquals("SÃO CIDADE " + DadosTse.cidade(ultima),
+                    pipeline.tabela().texto(Coluna.NM_MUNICIPIO, ultima));
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void tamanhoDoCabecalhoLocalSemRange() throws IOException {
+        Path diretorio = Files.createTempDirectory("pipeline");
+        try {
+            byte[] csv = DadosTse.csv("AC", LINHAS);
+            BaseEstado base = pipeline(DadosTse.zipArmazenado(CSV, csv), false,
+                    diretorio.resolve("perfil_eleitor_secao_AC.zip"));
+
+            assertEquals(LINHAS, base.tabela().quantidade());
+            assertEquals(0, base.tabela().expansoes());
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void semTamanhoNenhumATabelaCresce() throws IOException {
+        Path diretorio = Files.createTempDirectory("pipeline");
+        try {
+            byte[] csv = DadosTse.csv("AC", LINHAS);
+            BaseEstado base = pipeline(DadosTse.zip(CSV, csv), false,
+                    diretorio.resolve("perfil_eleitor_secao_AC.zip"));
+
+            // Sem Range e sem tamanho no cabeçalho local: capacidade inicial fixa
+            assertEquals(LINHAS, base.tabela().quantidade());
+            assertTrue(base.tabela().expansoes() > 0);
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void tamanhoDoCsvPeloFimDoZip() throws IOException {
+        byte[] csv = DadosTse.csv("AC", 1000);
+        byte[] zip = DadosTse.zip(CSV, csv);
+
+        assertEquals(csv.length, Arquivo.tamanhoCsvNoFimDoZip(Arrays.copyOfRange(zip, zip.length - 200, zip.length)));
+        assertEquals(csv.length, Arquivo.tamanhoCsvNoFimDoZip(zip));
+        // Fim curto demais para o diretório central inteiro
+        assertEquals(-1, Arquivo.tamanhoCsvNoFimDoZip(Arrays.copyOfRange(zip, zip.length - 40, zip.length)));
+        assertEquals(-1, Arquivo.tamanhoCsvNoFimDoZip(new byte[10]));
+    }
+}
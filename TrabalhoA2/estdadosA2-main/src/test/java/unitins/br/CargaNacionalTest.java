@@ -0,0 +1,204 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Carga nacional ("BR"): cada consulta sobre todas as bases dá a soma da
+ * mesma consulta em cada UF, e uma UF que falha (404 ou ZIP inválido) fica
+ * de fora sem alterar as bases das outras.
+ */
+class CargaNacionalTest {
+
+    private static final String[] UFS = new AppService().getEstados();
+    private static final String SEM_ARQUIVO = "MG";
+    private static final String ZIP_INVALIDO = "RJ";
+
+    private static String zip(String uf) {
+        return "perfil_eleitor_secao_ATUAL_" + uf + ".zip";
+    }
+
+    /** Linhas do CSV da k-ésima UF (tamanhos diferentes em cada uma). */
+    private static int linhas(int k) {
+        return 150 + 23 * k;
+    }
+
+    /** Cidades de DadosTse deslocadas: códigos únicos no país, crescentes com a UF. */
+    private static int cidade(int k, int i) {
+        return DadosTse.cidade(i) + 1000 * k;
+    }
+
+    private static byte[] csv(String uf, int k) {
+        StringBuilder sb = new StringBuilder(DadosTse.CABECALHO).append("\r\n");
+        for (int i = 0; i < linhas(k); i++) {
+            sb.append(DadosTse.linha(uf, i, cidade(k, i))).append("\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static ServidorHttp servidor() throws IOException {
+        ServidorHttp servidor = ServidorHttp.iniciar("/" + zip(UFS[0]),
+                DadosTse.zip("perfil_eleitor_secao_ATUAL_" + UFS[0] + ".csv", csv(UFS[0], 0)));
+        for (int k = 1; k < UFS.length; k++) {
+            if (UFS[k].equals(ZIP_INVALIDO)) {
+                servidor.publicar("/" + zip(UFS[k]), "não é um ZIP".getBytes(StandardCharsets.UTF_8));
+            } else if (!UFS[k].equals(SEM_ARQUIVO)) {
+                publicar(servidor, k);
+            }
+        }
+        return servidor;
+    }
+
+    private static void publicar(ServidorHttp servidor, int k) throws IOException {
+        servidor.publicar("/" + zip(UFS[k]),
+                DadosTse.zip("perfil_eleitor_secao_ATUAL_" + UFS[k] + ".csv", csv(UFS[k], k)));
+    }
+
+    /**
+     * Resultados das consultas do menu sobre as bases selecionadas, por
+     * descrição: filtros de perfil no estado, uma cidade e uma seção de cada
+     * UF, Consulta com várias condições, histograma e estatísticas.
+     */
+    private static Map<String, Long> resultados(AppService servico) {
+        Map<String, Long> r = new TreeMap<>();
+        String[][] filtros = {
+            {"TODOS", ""}, {"GENERO", "FEMININO"}, {"ESCOLARIDADE", "3"}, {"OBRIGATORIEDADE", "Facultativo"},
+            {"ESTADO_CIVIL", "2"}, {"BIOMETRIA", ""}, {"DEFICIENCIA", ""}
+        };
+        for (String[] f : filtros) {
+            r.put("ESTADO " + f[0] + " " + f[1], servico.calcularEleitores("ESTADO", 0, 0, 0, 0, f[0], f[1]));
+        }
+        for (int k = 0; k < UFS.length; k++) {
+            int c = cidade(k, 0);
+            r.put("CIDADE " + c, servico.calcularEleitores("CIDADE", c, 0, 0, 0, "TODOS", ""));
+            r.put("CIDADE " + c + " FEMININO", servico.calcularEleitores("CIDADE", c, 0, 0, 0, "GENERO", "FEMININO"));
+            r.put("SECAO " + c, servico.calcularEleitores("SECAO", c, DadosTse.zona(0), DadosTse.secao(0), 0,
+                    "TODOS", ""));
+        }
+        Consulta consulta = Consulta.estado().onde(Dimensao.GENERO, "feminino").ondeCodigo(Dimensao.ESCOLARIDADE, 2, 5);
+        r.put(consulta.toString(), servico.calcularEleitores(consulta));
+        TabelaCruzada faixas = servico.agrupar(Consulta.estado(), Dimensao.FAIXA_ETARIA);
+        for (int i = 0; i < faixas.linhas(); i++) {
+            r.put("FAIXA_ETARIA " + faixas.rotuloLinha(i), faixas.eleitores(i, 0));
+        }
+        long[] estatisticas = servico.calcularEstatisticas();
+        for (int k = 0; k < estatisticas.length; k++) {
+            r.put("estatisticas " + k, estatisticas[k]);
+        }
+        return r;
+    }
+
+    private static void somar(Map<String, Long> total, Map<String, Long> parcial) {
+        parcial.forEach((chave, valor) -> total.merge(chave, valor, Long::sum));
+    }
+
+    private static long eleitores(int k) {
+        long total = 0;
+        for (int i = 0; i < linhas(k); i++) {
+            total += DadosTse.quantidade(i);
+        }
+        return total;
+    }
+
+    @Test
+    void consultaNacionalIgualASomaDasUfs() throws IOException {
+        Path diretorio = Files.createTempDirectory("nacional");
+        try (ServidorHttp servidor = servidor()) {
+            AppService servico = new AppService();
+            String url = servidor.url();
+            servico.setOrigem(url.substring(0, url.length() - zip(UFS[0]).length()), diretorio.toString());
+
+            // Duas UFs falham: a carga devolve false, as outras ficam carregadas
+            assertFalse(servico.carregarDados("BR"));
+            List<String> carregadas = new ArrayList<>(Arrays.asList(UFS));
+            carregadas.removeAll(List.of(SEM_ARQUIVO, ZIP_INVALIDO));
+            assertEquals(carregadas, List.of(servico.getEstadosCarregados()));
+            assertEquals("BR", servico.getEstadoCarregado());
+            Map<String, Long> nacional = resultados(servico);
+            List<String> cidadesNacional = new ArrayList<>();
+            for (String[] cidade : servico.getCidadesDisponiveis()) {
+                cidadesNacional.add(cidade[0] + " " + cidade[1]);
+            }
+
+            // Cada UF sozinha: a base tem as linhas do seu CSV, e as somas
+            // (e as cidades, em ordem de código) batem com a carga nacional
+            Map<String, Long> soma = new TreeMap<>();
+            List<String> cidadesPorUf = new ArrayList<>();
+            int registros = 0;
+            for (int k = 0; k < UFS.length; k++) {
+                if (!carregadas.contains(UFS[k])) {
+                    continue;
+                }
+                assertTrue(servico.carregarDados(UFS[k]), UFS[k]);
+                assertEquals(linhas(k), servico.getTotalRegistros(), UFS[k]);
+                assertEquals(eleitores(k), servico.calcularEleitores("ESTADO", 0, 0, 0, 0, "TODOS", ""), UFS[k]);
+                registros += linhas(k);
+                somar(soma, resultados(servico));
+                for (String[] cidade : servico.getCidadesDisponiveis()) {
+                    cidadesPorUf.add(cidade[0] + " " + cidade[1]);
+                }
+            }
+            assertEquals(soma, nacional);
+            assertEquals(cidadesPorUf, cidadesNacional);
+
+            assertFalse(servico.carregarDados("BR"));
+            assertEquals(registros, servico.getTotalRegistros());
+            assertEquals(nacional, resultados(servico));
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void ufComFalhaNaoAlteraAsOutras() throws IOException {
+        Path diretorio = Files.createTempDirectory("nacional");
+        try (ServidorHttp servidor = servidor()) {
+            AppService servico = new AppService();
+            String url = servidor.url();
+            servico.setOrigem(url.substring(0, url.length() - zip(UFS[0]).length()), diretorio.toString());
+
+            assertFalse(servico.carregarDados("BR"));
+            Map<String, Long> antes = resultados(servico);
+            String[] carregadasAntes = servico.getEstadosCarregados();
+
+            // Cargas isoladas que falham não trocam a seleção nem as bases
+            assertFalse(servico.carregarDados(SEM_ARQUIVO));
+            assertFalse(servico.carregarDados(ZIP_INVALIDO));
+            assertEquals("BR", servico.getEstadoCarregado());
+            assertArrayEquals(carregadasAntes, servico.getEstadosCarregados());
+            assertEquals(antes, resultados(servico));
+
+            // A UF sem arquivo é publicada: a nova carga nacional só carrega
+            // ela (a do ZIP inválido falha de novo) e soma o que ela tem
+            int k = Arrays.asList(UFS).indexOf(SEM_ARQUIVO);
+            publicar(servidor, k);
+            assertFalse(servico.carregarDados("BR"));
+            assertEquals(carregadasAntes.length + 1, servico.getEstadosCarregados().length);
+            assertTrue(Arrays.asList(servico.getEstadosCarregados()).contains(SEM_ARQUIVO));
+            Map<String, Long> depois = resultados(servico);
+
+            assertTrue(servico.carregarDados(SEM_ARQUIVO));
+            assertEquals(linhas(k), servico.getTotalRegistros());
+            assertEquals(eleitores(k), servico.calcularEleitores("ESTADO", 0, 0, 0, 0, "TODOS", ""));
+            Map<String, Long> esperado = new TreeMap<>(antes);
+            somar(esperado, resultados(servico));
+            assertEquals(esperado, depois);
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Carga PARALELA (blocos mapeados lidos por várias threads) contra a leitura
+ * SEQUENCIAL do mesmo CSV: mesma quantidade de linhas, mesma ordem, mesmos
+ * códigos nos dicionários e mesmos índices. Mede também o tempo da carga
+ * com 1, 2, 4... threads.
+ */
+class CargaParalelaTest {
+
+    // ~28 MB: 4 blocos de pelo menos 8 MB (TAMANHO_MINIMO_BLOCO)
+    private static final int LINHAS = 120_000;
+
+    private static Path escreverCsv(Path diretorio) throws IOException {
+        return Files.write(diretorio.resolve("perfil_eleitor_secao_ATUAL_AC.csv"), DadosTse.csv("AC", LINHAS));
+    }
+
+    private static BaseEstado sequencial(Path csv) {
+        AppService servico = new AppService();
+        servico.setModoCarga(ModoCarga.SEQUENCIAL);
+        return servico.lerArquivoCsv(csv.toString());
+    }
+
+    @Test
+    void mesmaBaseQueALeituraSequencial() throws IOException {
+        Path diretorio = Files.createTempDirectory("paralela");
+        try {
+            Path csv = escreverCsv(diretorio);
+            BaseEstado esperada = sequencial(csv);
+            assertEquals(LINHAS, esperada.tabela().quantidade());
+
+            for (int threads : new int[] {1, 3, Runtime.getRuntime().availableProcessors()}) {
+                BaseEstado base = CargaParalela.carregar(csv.toString(), Coluna.todas(), threads);
+                Tabelas.assertMesmaTabela(esperada.tabela(), base.tabela());
+
+                ArvoreEytzinger porCidade = base.porCidade();
+                int[] cidades = esperada.porCidade().chavesEmOrdem();
+                assertEquals(cidades.length, porCidade.chavesEmOrdem().length);
+                for (int cidade : cidades) {
+                    assertEquals(esperada.porCidade().contadores(cidade).totalEleitores(),
+                            porCidade.contadores(cidade).totalEleitores());
+                    assertEquals(esperada.porCidade().primeiraLinha(cidade), porCidade.primeiraLinha(cidade));
+                }
+                assertEquals(esperada.porLocal().tamanho(), base.porLocal().tamanho());
+                assertEquals(esperada.porSecao().tamanho(), base.porSecao().tamanho());
+            }
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void tempoDaCargaPorThreads() throws Exception {
+        Path diretorio = Files.createTempDirectory("paralela");
+        try {
+            Path csv = escreverCsv(diretorio);
+            List<Integer> quantidades = new ArrayList<>();
+            for (int t = 1; t < Runtime.getRuntime().availableProcessors(); t *= 2) {
+                quantidades.add(t);
+            }
+            quantidades.add(Runtime.getRuntime().availableProcessors());
+
+            String[] nomes = new String[quantidades.size() + 1];
+            long[] tempos = new long[nomes.length];
+            nomes[0] = "SEQUENCIAL";
+            tempos[0] = Medicao.melhorTempo(1, 3, () -> sequencial(csv));
+            for (int k = 0; k < quantidades.size(); k++) {
+                int threads = quantidades.get(k);
+                nomes[k + 1] = "PARALELA, " + threads + (threads == 1 ? " thread" : " threads");
+                tempos[k + 1] = Medicao.melhorTempo(1, 3, () -> {
+                    BaseEstado base = CargaParalela.carregar(csv.toString(), Coluna.todas(), threads);
+                    assertEquals(LINHAS, base.tabela().quantidade());
+                });
+            }
+            Medicao.relatar(String.format("Carga de %,d linhas (%,d KB)", LINHAS, Files.size(csv) / 1024),
+                    nomes, tempos);
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+}
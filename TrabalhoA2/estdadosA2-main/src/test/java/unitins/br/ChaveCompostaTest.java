@@ -0,0 +1,170 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Limites de ChaveComposta.empacotar(): dentro deles a ordem de compareTo()
+ * é preservada; fora deles (ex.: número 1015 + 2^20, que empacotado cairia
+ * no local 1015) a chave não existe nos índices e as consultas dão 0.
+ */
+class ChaveCompostaTest {
+
+    private static final int LINHAS = 2_000;
+    private static final int FORA = 1 << 20;
+    private static final String ZIP = "perfil_eleitor_secao_ATUAL_AC.zip";
+
+    // Linha de DadosTse copiada com o local/seção deslocado para fora dos limites
+    private static final int LINHA_LOCAL = 15;
+    private static final int LINHA_SECAO = 16;
+
+    private static final int[] VALORES = {
+        Integer.MIN_VALUE, -(1 << 23), -(1 << 23) + 1, -(1 << 19) - 1, -(1 << 19), -3, -1, 0, 1, 1015,
+        (1 << 19) - 1, 1 << 19, 1015 + FORA, (1 << 23) - 1, 1 << 23, Integer.MAX_VALUE
+    };
+
+    /** CSV de DadosTse com duas linhas a mais, de local e de seção fora dos limites. */
+    private static byte[] csvComChavesForaDoIntervalo() {
+        StringBuilder sb = new StringBuilder(new String(DadosTse.csv("AC", LINHAS), StandardCharsets.ISO_8859_1));
+        String[] local = DadosTse.linha("AC", LINHA_LOCAL).split(";", -1);
+        local[8] = String.valueOf(Integer.parseInt(local[8]) + FORA);
+        String[] secao = DadosTse.linha("AC", LINHA_SECAO).split(";", -1);
+        secao[7] = String.valueOf(Integer.parseInt(secao[7]) + FORA);
+        sb.append(String.join(";", local)).append("\r\n");
+        sb.append(String.join(";", secao)).append("\r\n");
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /** Total de eleitores das linhas com exatamente essa chave, percorrendo a tabela. */
+    private static long varrer(TabelaEleitores tabela, Coluna numero, ChaveComposta chave) {
+        long total = 0;
+        for (int i = 0; i < tabela.quantidade(); i++) {
+            if (tabela.valor(Coluna.CD_MUNICIPIO, i) == chave.codCidade()
+                    && tabela.valor(Coluna.NR_ZONA, i) == chave.nrZona()
+                    && tabela.valor(numero, i) == chave.numero()) {
+                total += tabela.valor(Coluna.QT_ELEITORES_PERFIL, i);
+            }
+        }
+        return total;
+    }
+
+    /** A chave de dentro tem só as suas linhas; a de fora não existe. */
+    private static void assertSemColisao(TabelaEleitores tabela, IndiceComposto indice, Coluna numero,
+            ChaveComposta dentro) {
+        ChaveComposta fora = new ChaveComposta(dentro.codCidade(), dentro.nrZona(), dentro.numero() + FORA);
+        assertTrue(varrer(tabela, numero, fora) > 0, "a tabela deveria ter a linha " + fora);
+
+        assertNotNull(indice.contadores(dentro));
+        assertEquals(varrer(tabela, numero, dentro), indice.contadores(dentro).totalEleitores());
+        assertEquals(varrer(tabela, numero, dentro),
+                indice.somarLinhas(dentro, i -> tabela.valor(Coluna.QT_ELEITORES_PERFIL, i)));
+
+        assertFalse(indice.contem(fora));
+        assertNull(indice.contadores(fora));
+        assertEquals(0, indice.somarLinhas(fora, i -> 1));
+        int[] visitadas = {0};
+        indice.paraCadaLinha(fora, i -> visitadas[0]++);
+        assertEquals(0, visitadas[0]);
+    }
+
+    @Test
+    void limitesDeEmpacotar() {
+        assertTrue(ChaveComposta.representavel(-(1 << 23) + 1, -(1 << 19), -(1 << 19)));
+        assertTrue(ChaveComposta.representavel((1 << 23) - 1, (1 << 19) - 1, (1 << 19) - 1));
+        assertFalse(ChaveComposta.representavel(-(1 << 23), 0, 0));
+        assertFalse(ChaveComposta.representavel(1 << 23, 0, 0));
+        assertFalse(ChaveComposta.representavel(0, 1 << 19, 0));
+        assertFalse(ChaveComposta.representavel(0, -(1 << 19) - 1, 0));
+        assertFalse(ChaveComposta.representavel(0, 0, 1015 + FORA));
+        assertEquals(ChaveComposta.FORA_DO_INTERVALO, ChaveComposta.empacotar(0, 0, 1015 + FORA));
+
+        for (int cidade : VALORES) {
+            for (int zona : VALORES) {
+                for (int numero : VALORES) {
+                    ChaveComposta a = new ChaveComposta(cidade, zona, numero);
+                    if (!a.representavel()) {
+                        assertEquals(ChaveComposta.FORA_DO_INTERVALO, a.empacotada());
+                        continue;
+                    }
+                    assertEquals(a, ChaveComposta.desempacotar(a.empacotada()));
+                    assertTrue(a.empacotada() != ChaveComposta.FORA_DO_INTERVALO);
+                    for (int outroNumero : VALORES) {
+                        ChaveComposta b = new ChaveComposta(cidade, zona, outroNumero);
+                        if (b.representavel()) {
+                            assertEquals(Integer.signum(a.compareTo(b)),
+                                    Long.signum(Long.compare(a.empacotada(), b.empacotada())), a + " " + b);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void chaveForaDoIntervaloNaoExisteNosIndices() throws IOException {
+        Path diretorio = Files.createTempDirectory("chave");
+        try {
+            Path csv = Files.write(diretorio.resolve("perfil_eleitor_secao_ATUAL_AC.csv"),
+                    csvComChavesForaDoIntervalo());
+            AppService servico = new AppService();
+            servico.setModoCarga(ModoCarga.SEQUENCIAL);
+            BaseEstado base = servico.lerArquivoCsv(csv.toString());
+            TabelaEleitores tabela = base.tabela();
+            assertEquals(LINHAS + 2, tabela.quantidade());
+
+            ChaveComposta local = new ChaveComposta(DadosTse.cidade(LINHA_LOCAL), DadosTse.zona(LINHA_LOCAL),
+                    tabela.valor(Coluna.NR_LOCAL_VOTACAO, LINHA_LOCAL));
+            ChaveComposta secao = new ChaveComposta(DadosTse.cidade(LINHA_SECAO), DadosTse.zona(LINHA_SECAO),
+                    DadosTse.secao(LINHA_SECAO));
+
+            // Índices do ConstrutorIndices (durante a leitura) e de IndiceComposto.construir()
+            assertSemColisao(tabela, base.porLocal(), Coluna.NR_LOCAL_VOTACAO, local);
+            assertSemColisao(tabela, base.porSecao(), Coluna.NR_SECAO, secao);
+            assertSemColisao(tabela, IndiceComposto.construir(tabela, Coluna.NR_LOCAL_VOTACAO),
+                    Coluna.NR_LOCAL_VOTACAO, local);
+            assertSemColisao(tabela, IndiceComposto.construir(tabela, Coluna.NR_SECAO), Coluna.NR_SECAO, secao);
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void consultaForaDoIntervaloDaZero() throws IOException {
+        Path diretorio = Files.createTempDirectory("chave");
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/" + ZIP,
+                DadosTse.zip("perfil_eleitor_secao_ATUAL_AC.csv", DadosTse.csv("AC", LINHAS)))) {
+            AppService servico = new AppService();
+            String url = servidor.url();
+            servico.setOrigem(url.substring(0, url.length() - ZIP.length()), diretorio.toString());
+            assertTrue(servico.carregarDados("AC"));
+
+            int cidade = DadosTse.cidade(LINHA_LOCAL);
+            int zona = DadosTse.zona(LINHA_LOCAL);
+            int secao = DadosTse.secao(LINHA_LOCAL);
+            int local = 1000 + secao % 40;
+
+            assertTrue(servico.calcularEleitores("LOCAL", cidade, zona, 0, local, "TODOS", "") > 0);
+            assertTrue(servico.calcularEleitores("SECAO", cidade, zona, secao, 0, "TODOS", "") > 0);
+            assertTrue(servico.calcularEleitores(Consulta.local(cidade, zona, local)) > 0);
+            assertTrue(servico.calcularEleitores(Consulta.secao(cidade, zona, secao)) > 0);
+
+            assertEquals(0, servico.calcularEleitores("LOCAL", cidade, zona, 0, local + FORA, "TODOS", ""));
+            assertEquals(0, servico.calcularEleitores("SECAO", cidade, zona, secao + FORA, 0, "TODOS", ""));
+            assertEquals(0, servico.calcularEleitores("LOCAL", cidade, zona + FORA, 0, local, "TODOS", ""));
+            assertEquals(0, servico.calcularEleitores(Consulta.local(cidade, zona, local + FORA)));
+            assertEquals(0, servico.calcularEleitores(Consulta.secao(cidade, zona, secao - FORA)));
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+}
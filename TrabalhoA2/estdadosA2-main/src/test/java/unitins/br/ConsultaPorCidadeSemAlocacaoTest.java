@@ -0,0 +1,108 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * calcularEleitores() na abrangência CIDADE, pelo caminho do menu: filtro
+ * resolvido, árvore por cidade e registro da consulta no log. Depois de uma
+ * consulta igual, as seguintes não devem alocar nada (o log só conta as
+ * consultas rápidas, sem montar mensagem).
+ */
+class ConsultaPorCidadeSemAlocacaoTest {
+
+    private static final int LINHAS = 20_000;
+    private static final int CONSULTAS = 20_000;
+    // Folga para a medição e para a linha de log de alguma consulta que
+    // passe de 1 ms (pausa do GC); antes eram ~3.400 bytes por consulta
+    private static final long LIMITE_BYTES_POR_CONSULTA = 16;
+    private static final String ZIP = "perfil_eleitor_secao_ATUAL_AC.zip";
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Filtros de perfil do menu: nome e opção. */
+    private static final String[][] FILTROS = {
+        {"TODOS", ""},
+        {"BIOMETRIA", ""},
+        {"DEFICIENCIA", ""},
+        {"GENERO", "FEMININO"},
+        {"OBRIGATORIEDADE", "Facultativo"},
+        {"FAIXA_ETARIA", "5"},
+        {"ESCOLARIDADE", "3"},
+        {"ESTADO_CIVIL", "2"},
+        {"FAIXA_ETARIA", "99"} // Opção inválida: 0 eleitores
+    };
+
+    private static long alocadoPelaThread() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    /** Total esperado do filtro na cidade, calculado pelas regras de DadosTse. */
+    private static long esperado(int cidade, String filtro) {
+        long total = 0;
+        for (int i = 0; i < LINHAS; i++) {
+            if (DadosTse.cidade(i) != cidade) {
+                continue;
+            }
+            int q = DadosTse.quantidade(i);
+            total += switch (filtro) {
+                case "TODOS" -> q;
+                case "BIOMETRIA" -> q / 2;
+                case "DEFICIENCIA" -> i % 2;
+                case "GENERO" -> i % 2 == 1 ? q : 0;
+                case "OBRIGATORIEDADE" -> i % 7 == 0 ? q : 0;
+                case "FAIXA_ETARIA" -> 0; // Nenhuma linha tem o código das opções 5 e 99
+                case "ESCOLARIDADE" -> 1 + i % 8 == 3 ? q : 0;
+                case "ESTADO_CIVIL" -> 1 + i % 3 == 3 ? q : 0; // Opção 2 = código 3
+                default -> throw new IllegalArgumentException(filtro);
+            };
+        }
+        return total;
+    }
+
+    @Test
+    void consultaPorCidadeNaoAloca() throws IOException {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        Path diretorio = Files.createTempDirectory("consulta");
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/" + ZIP,
+                DadosTse.zip("perfil_eleitor_secao_ATUAL_AC.csv", DadosTse.csv("AC", LINHAS)))) {
+            AppService servico = new AppService();
+            String url = servidor.url();
+            servico.setOrigem(url.substring(0, url.length() - ZIP.length()), diretorio.toString());
+            assertTrue(servico.carregarDados("AC"));
+            int cidade = DadosTse.cidade(5);
+
+            for (String[] filtro : FILTROS) {
+                long total = servico.calcularEleitores("CIDADE", cidade, 0, 0, 0, filtro[0], filtro[1]);
+                assertEquals(esperado(cidade, filtro[0]), total, filtro[0] + " " + filtro[1]);
+                for (int i = 0; i < CONSULTAS; i++) {
+                    servico.calcularEleitores("CIDADE", cidade, 0, 0, 0, filtro[0], filtro[1]); // Aquecer o JIT
+                }
+
+                long soma = 0;
+                long antes = alocadoPelaThread();
+                for (int i = 0; i < CONSULTAS; i++) {
+                    soma += servico.calcularEleitores("CIDADE", cidade, 0, 0, 0, filtro[0], filtro[1]);
+                }
+                long alocado = alocadoPelaThread() - antes;
+
+                assertEquals(total * CONSULTAS, soma);
+                assertTrue(alocado < LIMITE_BYTES_POR_CONSULTA * CONSULTAS,
+                        CONSULTAS + " consultas " + filtro[0] + " " + filtro[1] + " alocaram " + alocado + " bytes");
+            }
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * A agregação por cidade (somar/paraCada) percorre os registros direto no
+ * nó, sem copiar o array como buscar(): o lixo gerado por consulta deve ser
+ * praticamente zero, mesmo numa chave com muitos registros.
+ */
+class ConsultaSemAlocacaoTest {
+
+    private static final int CIDADE = 1392;
+    private static final int REGISTROS_DA_CIDADE = 200_000;
+    private static final int CONSULTAS = 100;
+    // Folga para o que a própria medição aloca (muito menos que um array da chave)
+    private static final long LIMITE_BYTES_POR_CONSULTA = 64;
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long alocadoPelaThread() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static List<ArvoreBinariaADT<Integer>> arvores() {
+        ArvoreBinaria binaria = new ArvoreBinaria();
+        ArvoreAVL<Integer> avl = new ArvoreAVL<>(Integer.class);
+        for (int i = 0; i < REGISTROS_DA_CIDADE; i++) {
+            PerfilEleitor registro = Registros.perfil(CIDADE, 1);
+            binaria.inserir(CIDADE, registro);
+            avl.inserir(CIDADE, registro);
+        }
+        for (int cidade = 1; cidade <= 1000; cidade++) {
+            binaria.inserir(cidade, Registros.perfil(cidade, 1));
+            avl.inserir(cidade, Registros.perfil(cidade, 1));
+        }
+        return List.of(binaria, avl);
+    }
+
+    @Test
+    void somarNaoAlocaPorConsulta() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        Integer chave = CIDADE; // Boxing feito uma vez, fora da medição
+        ToLongFunction<PerfilEleitor> funcao = PerfilEleitor::qtEleitoresPerfil;
+
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            for (int i = 0; i < 50; i++) {
+                arvore.somar(chave, funcao); // Aquecer o JIT
+            }
+
+            long total = 0;
+            long antes = alocadoPelaThread();
+            for (int i = 0; i < CONSULTAS; i++) {
+                total += arvore.somar(chave, funcao);
+            }
+            long alocado = alocadoPelaThread() - antes;
+
+            assertEquals((long) CONSULTAS * REGISTROS_DA_CIDADE, total);
+            assertTrue(alocado <= CONSULTAS * LIMITE_BYTES_POR_CONSULTA,
+                    arvore.getClass().getSimpleName() + ".somar alocou " + alocado + " bytes em " + CONSULTAS + " consultas");
+        }
+    }
+
+    @Test
+    void paraCadaNaoAlocaPorConsulta() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        Integer chave = CIDADE;
+        long[] total = new long[1];
+        Consumer<PerfilEleitor> acao = registro -> total[0] += registro.qtEleitoresPerfil();
+
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            for (int i = 0; i < 50; i++) {
+                arvore.paraCada(chave, acao);
+            }
+
+            total[0] = 0;
+            long antes = alocadoPelaThread();
+            for (int i = 0; i < CONSULTAS; i++) {
+                arvore.paraCada(chave, acao);
+            }
+            long alocado = alocadoPelaThread() - antes;
+
+            assertEquals((long) CONSULTAS * REGISTROS_DA_CIDADE, total[0]);
+            assertTrue(alocado <= CONSULTAS * LIMITE_BYTES_POR_CONSULTA,
+                    arvore.getClass().getSimpleName() + ".paraCada alocou " + alocado + " bytes em " + CONSULTAS + " consultas");
+        }
+    }
+
+    @Test
+    void buscarCopiaOsRegistros() {
+        // Controle: buscar() copia o array da chave, e a medição precisa enxergar isso
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        Integer chave = CIDADE;
+
+        for (ArvoreBinariaADT<Integer> arvore : arvores()) {
+            long antes = alocadoPelaThread();
+            PerfilEleitor[] registros = arvore.buscar(chave);
+            long alocado = alocadoPelaThread() - antes;
+
+            assertEquals(REGISTROS_DA_CIDADE, registros.length);
+            assertTrue(alocado >= 4L * REGISTROS_DA_CIDADE,
+                    "buscar alocou só " + alocado + " bytes");
+        }
+    }
+}
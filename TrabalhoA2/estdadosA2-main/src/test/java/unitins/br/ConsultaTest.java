@@ -0,0 +1,206 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Consulta (índices, bitmaps e tabelas de valores aceitos) contra uma
+ * varredura de todas as linhas que testa cada condição pelo valor da linha:
+ * mesmas linhas e mesmas somas em todas as abrangências, com várias
+ * condições, listas de valores, opções inválidas e textos com maiúsculas
+ * e minúsculas misturadas.
+ */
+class ConsultaTest {
+
+    private static final int LINHAS = 6_000;
+
+    /** Condição como o menu a recebe: opções, ou códigos do TSE (ondeCodigo). */
+    private record Condicao(Dimensao dimensao, String[] opcoes, int[] codigos) {
+
+        static Condicao opcoes(Dimensao dimensao, String... opcoes) {
+            return new Condicao(dimensao, opcoes, null);
+        }
+
+        static Condicao codigos(Dimensao dimensao, int... codigos) {
+            return new Condicao(dimensao, null, codigos);
+        }
+
+        /** A linha atende, testando o valor da linha (texto sem dicionário). */
+        boolean aceita(TabelaEleitores tabela, int linha) {
+            Coluna coluna = dimensao.coluna();
+            if (codigos != null) {
+                return Arrays.stream(codigos).anyMatch(c -> c == tabela.valor(coluna, linha));
+            }
+            for (String opcao : opcoes) {
+                boolean igual = dimensao.texto()
+                        ? tabela.texto(coluna, linha).equalsIgnoreCase(opcao)
+                        : dimensao.codigo(opcao) == tabela.valor(coluna, linha);
+                if (igual) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Combinações de condições (E entre elas); a primeira é nenhuma condição
+    private static final Condicao[][] FILTROS = {
+        {},
+        {Condicao.opcoes(Dimensao.GENERO, "FEMININO")},
+        {Condicao.opcoes(Dimensao.GENERO, "feminino", "Masculino")},
+        {Condicao.opcoes(Dimensao.GENERO, "NÃO EXISTE")},
+        {Condicao.opcoes(Dimensao.OBRIGATORIEDADE, "facultativo")},
+        {Condicao.opcoes(Dimensao.OBRIGATORIEDADE, "OBRIGATÓRIO")},
+        {Condicao.opcoes(Dimensao.FAIXA_ETARIA, "5")},
+        {Condicao.opcoes(Dimensao.FAIXA_ETARIA, "99", "abc")},
+        {Condicao.codigos(Dimensao.FAIXA_ETARIA, 2529, 2729, 2529)},
+        {Condicao.opcoes(Dimensao.ESCOLARIDADE, "3")},
+        {Condicao.opcoes(Dimensao.ESCOLARIDADE, "5", "3", "5", "x")},
+        {Condicao.opcoes(Dimensao.ESTADO_CIVIL, "2")},
+        {Condicao.opcoes(Dimensao.ESTADO_CIVIL, "1", "2", "-1", "6")},
+        {Condicao.codigos(Dimensao.RACA_COR, -1)},
+        {Condicao.opcoes(Dimensao.GENERO, "FEMININO"), Condicao.opcoes(Dimensao.ESCOLARIDADE, "3", "5"),
+            Condicao.opcoes(Dimensao.ESTADO_CIVIL, "2")},
+        // A mais seletiva é uma lista (ESCOLARIDADE 1 ou 4, 1/4 das linhas)
+        {Condicao.opcoes(Dimensao.GENERO, "feminino"), Condicao.opcoes(Dimensao.ESTADO_CIVIL, "1", "2"),
+            Condicao.codigos(Dimensao.ESCOLARIDADE, 4, 1)},
+        // A mais seletiva é a última (OBRIGATORIEDADE, 1/7 das linhas)
+        {Condicao.codigos(Dimensao.FAIXA_ETARIA, 2529, 2629, 2729), Condicao.opcoes(Dimensao.GENERO, "Masculino"),
+            Condicao.opcoes(Dimensao.OBRIGATORIEDADE, "FACULTATIVO")},
+        // Duas condições na mesma dimensão
+        {Condicao.opcoes(Dimensao.ESCOLARIDADE, "1", "2", "3"), Condicao.opcoes(Dimensao.ESCOLARIDADE, "3", "4")},
+        // Uma condição sem nenhuma linha anula as outras
+        {Condicao.opcoes(Dimensao.GENERO, "FEMININO"), Condicao.opcoes(Dimensao.ESTADO_CIVIL, "x")}
+    };
+
+    /**
+     * CSV de DadosTse com gênero e obrigatoriedade escritos de jeitos
+     * diferentes em algumas linhas (vários códigos no dicionário para o
+     * mesmo texto ignorando maiúsculas).
+     */
+    private static BaseEstado base() throws IOException {
+        StringBuilder sb = new StringBuilder(DadosTse.CABECALHO).append("\r\n");
+        for (int i = 0; i < LINHAS; i++) {
+            String[] c = DadosTse.linha("AC", i).split(";", -1);
+            if (i % 10 == 3) {
+                c[11] = c[11].toLowerCase();
+            } else if (i % 10 == 7) {
+                c[11] = c[11].substring(0, 2) + c[11].substring(2).toLowerCase(); // "Feminino"
+            }
+            if (i % 21 == 0) {
+                c[26] = c[26].toUpperCase();
+            }
+            sb.append(String.join(";", c)).append("\r\n");
+        }
+        return DadosTse.base(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static Consulta consulta(Consulta consulta, Condicao[] condicoes) {
+        for (Condicao c : condicoes) {
+            if (c.codigos() != null) {
+                consulta.ondeCodigo(c.dimensao(), c.codigos());
+            } else {
+                consulta.onde(c.dimensao(), c.opcoes());
+            }
+        }
+        return consulta;
+    }
+
+    /** Linhas que a Consulta visita, em ordem crescente. */
+    private static int[] visitadas(Consulta consulta, BaseEstado base) {
+        List<Integer> linhas = new ArrayList<>();
+        consulta.paraCadaLinha(base, linhas::add);
+        return linhas.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Compara a Consulta com a varredura, para uma abrangência dada pela
+     * condição sobre (cidade, zona, local, seção) e todos os FILTROS.
+     */
+    private static void assertIgualAVarredura(BaseEstado base, String abrangencia,
+            IntPredicate naAbrangencia, Supplier<Consulta> nova) {
+        TabelaEleitores tabela = base.tabela();
+        for (Condicao[] filtro : FILTROS) {
+            int[] esperadas = new int[tabela.quantidade()];
+            int qtd = 0;
+            long eleitores = 0;
+            long biometria = 0;
+            for (int i = 0; i < tabela.quantidade(); i++) {
+                final int linha = i;
+                if (naAbrangencia.test(i) && Arrays.stream(filtro).allMatch(c -> c.aceita(tabela, linha))) {
+                    esperadas[qtd++] = i;
+                    eleitores += tabela.valor(Coluna.QT_ELEITORES_PERFIL, i);
+                    biometria += tabela.valor(Coluna.QT_ELEITORES_BIOMETRIA, i);
+                }
+            }
+            esperadas = Arrays.copyOf(esperadas, qtd);
+            String nome = abrangencia + " " + consulta(nova.get(), filtro);
+
+            assertArrayEquals(esperadas, visitadas(consulta(nova.get(), filtro), base), nome);
+            assertEquals(eleitores, consulta(nova.get(), filtro).somar(base), nome);
+            assertEquals(biometria, consulta(nova.get(), filtro).somando(Coluna.QT_ELEITORES_BIOMETRIA).somar(base),
+                    nome);
+            int[] linhas = consulta(nova.get(), filtro).linhas(base);
+            if (linhas == null) {
+                assertEquals(tabela.quantidade(), qtd, nome); // Estado sem condições: todas
+            } else {
+                Arrays.sort(linhas);
+                assertArrayEquals(esperadas, linhas, nome);
+            }
+        }
+    }
+
+    @Test
+    void mesmasLinhasQueAVarredura() throws IOException {
+        BaseEstado base = base();
+        TabelaEleitores tabela = base.tabela();
+        int[] cidade = tabela.coluna(Coluna.CD_MUNICIPIO);
+        int[] zona = tabela.coluna(Coluna.NR_ZONA);
+        int[] local = tabela.coluna(Coluna.NR_LOCAL_VOTACAO);
+        int[] secao = tabela.coluna(Coluna.NR_SECAO);
+
+        // Textos com mais de um código no dicionário
+        assertTrue(tabela.dicionario(Coluna.DS_GENERO).tamanho() >= 4);
+        assertTrue(tabela.dicionario(Coluna.TP_OBRIGATORIEDADE_VOTO).tamanho() >= 3);
+
+        assertIgualAVarredura(base, "ESTADO", i -> true, Consulta::estado);
+        for (int linha : new int[] {0, 5, 1234, LINHAS - 1}) {
+            int c = cidade[linha];
+            int z = zona[linha];
+            int l = local[linha];
+            int s = secao[linha];
+            assertIgualAVarredura(base, "CIDADE", i -> cidade[i] == c, () -> Consulta.cidade(c));
+            assertIgualAVarredura(base, "LOCAL", i -> cidade[i] == c && zona[i] == z && local[i] == l,
+                    () -> Consulta.local(c, z, l));
+            assertIgualAVarredura(base, "SECAO", i -> cidade[i] == c && zona[i] == z && secao[i] == s,
+                    () -> Consulta.secao(c, z, s));
+        }
+        // Abrangências sem nenhuma linha
+        assertIgualAVarredura(base, "CIDADE", i -> false, () -> Consulta.cidade(-7));
+        assertIgualAVarredura(base, "LOCAL", i -> false, () -> Consulta.local(cidade[0], zona[0], -7));
+        assertIgualAVarredura(base, "SECAO", i -> false, () -> Consulta.secao(cidade[0], -7, secao[0]));
+    }
+
+    @Test
+    void estadoSemCondicoesNaoCopiaAsLinhas() throws IOException {
+        BaseEstado base = base();
+        assertNull(Consulta.estado().linhas(base));
+        long total = 0;
+        for (int i = 0; i < LINHAS; i++) {
+            total += DadosTse.quantidade(i);
+        }
+        assertEquals(total, Consulta.estado().somar(base));
+    }
+}
@@ -0,0 +1,177 @@
+package unitins.br;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Arquivos no formato do TSE gerados para os testes de carga: CSV em
+ * Latin-1, campos de texto entre aspas, ";" como separador e CRLF.
+ *
+ * A linha i tem cidade(i), zona(i), secao(i) e quantidade(i) eleitores,
+ * então os testes calculam os totais esperados sem reler o arquivo.
+ */
+final class DadosTse {
+
+    static final int CIDADES = 37;
+    static final int PRIMEIRA_CIDADE = 1000;
+    static final String CABECALHO = "\"DT_GERACAO\";\"HH_GERACAO\";\"ANO_ELEICAO\";\"SG_UF\";"
+            + "\"CD_MUNICIPIO\";\"NM_MUNICIPIO\";\"NR_ZONA\";\"NR_SECAO\";\"NR_LOCAL_VOTACAO\";\"NM_LOCAL_VOTACAO\";"
+            + "\"CD_GENERO\";\"DS_GENERO\";\"CD_ESTADO_CIVIL\";\"DS_ESTADO_CIVIL\";\"CD_FAIXA_ETARIA\";\"DS_FAIXA_ETARIA\";"
+            + "\"CD_GRAU_ESCOLARIDADE\";\"DS_GRAU_ESCOLARIDADE\";\"CD_RACA_COR\";\"DS_RACA_COR\";"
+            + "\"CD_IDENTIDADE_GENERO\";\"DS_IDENTIDADE_GENERO\";\"CD_QUILOMBOLA\";\"DS_QUILOMBOLA\";"
+            + "\"CD_INTERPRETE_LIBRAS\";\"DS_INTERPRETE_LIBRAS\";\"TP_OBRIGATORIEDADE_VOTO\";\"QT_ELEITORES_PERFIL\";"
+            + "\"QT_ELEITORES_BIOMETRIA\";\"QT_ELEITORES_DEFICIENCIA\";\"QT_ELEITORES_INC_NM_SOCIAL\"";
+
+    private DadosTse() {
+    }
+
+    static int cidade(int i) {
+        return cidade(i, CIDADES);
+    }
+
+    /** Cidade da linha i num arquivo com "cidades" municípios distintos. */
+    static int cidade(int i, int cidades) {
+        return PRIMEIRA_CIDADE + 7 * (int) ((i * 31L) % cidades);
+    }
+
+    static int zona(int i) {
+        return 1 + i % 9;
+    }
+
+    static int secao(int i) {
+        return 1 + (i / 9) % 300;
+    }
+
+    static int quantidade(int i) {
+        return 1 + i % 13;
+    }
+
+    /**
+     * Linha i do CSV, sem o fim de linha.
+     */
+    static String linha(String uf, int i) {
+        return linha(uf, i, cidade(i));
+    }
+
+    /**
+     * Linha i do CSV com outro código de cidade, sem o fim de linha.
+     */
+    static String linha(String uf, int i, int cidade) {
+        boolean feminino = i % 2 == 1;
+        int secao = secao(i);
+        return "\"01/11/2025\";\"05:56:43\";9999;\"" + uf + "\";"
+                + "\"" + cidade + "\";\"SÃO CIDADE " + cidade + "\";"
+                + zona(i) + ";" + secao + ";" + (1000 + secao % 40)
+                + ";\"ESCOLA Nº " + secao % 40 + "\";"
+                + (feminino ? "4;\"FEMININO\";" : "2;\"MASCULINO\";")
+                + (1 + i % 3) + ";\"" + (i % 3 == 0 ? "SOLTEIRO" : i % 3 == 1 ? "CASADO" : "VIÚVO") + "\";"
+                + (2529 + 100 * (i % 5)) + ";\"FAIXA " + i % 5 + "\";"
+                + (1 + i % 8) + ";\"ESCOLARIDADE " + i % 8 + "\";"
+                + "-1;\"NÃO INFORMADO\";-1;\"NÃO INFORMADO\";-1;\"NÃO INFORMADO\";-1;\"NÃO INFORMADO\";"
+                + (i % 7 == 0 ? "\"Facultativo\";" : "\"Obrigatório\";")
+                + quantidade(i) + ";" + quantidade(i) / 2 + ";" + i % 2 + ";0";
+    }
+
+    /**
+     * CSV completo (cabeçalho e linhas) de uma UF.
+     */
+    static byte[] csv(String uf, int linhas) {
+        return csv(uf, linhas, CIDADES);
+    }
+
+    /**
+     * CSV de uma UF com "cidades" municípios distintos (cidade(i, cidades)).
+     */
+    static byte[] csv(String uf, int linhas, int cidades) {
+        StringBuilder sb = new StringBuilder(linhas * 280);
+        sb.append(CABECALHO).append("\r\n");
+        for (int i = 0; i < linhas; i++) {
+            sb.append(linha(uf, i, cidade(i, cidades))).append("\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Lê um CSV gerado aqui para uma tabela, como a carga SEQUENCIAL.
+     */
+    static TabelaEleitores tabela(byte[] csv, Set<Coluna> projecao) throws IOException {
+        TabelaEleitores tabela = new TabelaEleitores(1024, projecao);
+        try (LeitorCsv leitor = new LeitorCsv(new ByteArrayInputStream(csv))) {
+            leitor.proximaLinha(); // Pular cabeçalho
+            while (leitor.proximaLinha()) {
+                leitor.adicionarEm(tabela);
+            }
+        }
+        return tabela;
+    }
+
+    /**
+     * Lê um CSV gerado aqui (todas as colunas) e monta os índices, como a
+     * carga SEQUENCIAL, sem passar pelo disco.
+     */
+    static BaseEstado base(byte[] csv) throws IOException {
+        TabelaEleitores tabela = tabela(csv, Coluna.todas());
+        ConstrutorIndices indices = new ConstrutorIndices();
+        indices.acumular(tabela);
+        indices.construir(tabela);
+        return indices.base(tabela);
+    }
+
+    /**
+     * ZIP com um PDF vazio antes do CSV, como os publicados pelo TSE.
+     */
+    static byte[] zip(String nome, byte[] conteudo) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("leiame.pdf"));
+            zip.write(new byte[1024]);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry(nome));
+            zip.write(conteudo);
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * ZIP com o CSV sem compressão (STORED): o cabeçalho local da entrada já
+     * traz o tamanho, ao contrário de zip(), que o deixa para depois dos dados.
+     */
+    static byte[] zipArmazenado(String nome, byte[] conteudo) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            ZipEntry entrada = new ZipEntry(nome);
+            CRC32 crc = new CRC32();
+            crc.update(conteudo);
+            entrada.setMethod(ZipEntry.STORED);
+            entrada.setSize(conteudo.length);
+            entrada.setCompressedSize(conteudo.length);
+            entrada.setCrc(crc.getValue());
+            zip.putNextEntry(entrada);
+            zip.write(conteudo);
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Apaga um diretório temporário e tudo dentro dele.
+     */
+    static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> caminhos = Files.walk(diretorio)) {
+            for (Path p : caminhos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
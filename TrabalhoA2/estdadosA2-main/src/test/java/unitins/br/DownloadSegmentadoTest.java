@@ -0,0 +1,115 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Download com Range, retomada e requisição condicional contra um servidor
+ * HTTP local (ServidorHttp), com um arquivo de três segmentos de 4 MB.
+ */
+class DownloadSegmentadoTest {
+
+    private static final int SEGMENTO = 4 << 20;
+    private static final int TAMANHO = 2 * SEGMENTO + 123_457;
+    private static final int SEGMENTOS = 3;
+
+    private static byte[] conteudo() {
+        byte[] bytes = new byte[TAMANHO];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static List<ServidorHttp.Requisicao> gets(ServidorHttp servidor) {
+        return servidor.requisicoes().stream().filter(r -> r.metodo().equals("GET")).toList();
+    }
+
+    /** Início do intervalo pedido em "bytes=inicio-fim". */
+    private static long inicioDoRange(String range) {
+        return Long.parseLong(range.substring("bytes=".length(), range.indexOf('-')));
+    }
+
+    @Test
+    void baixaOsSegmentosComRange() throws Exception {
+        byte[] conteudo = conteudo();
+        Path diretorio = Files.createTempDirectory("download");
+        Path destino = diretorio.resolve("perfil.zip");
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/perfil.zip", conteudo)) {
+            assertTrue(DownloadSegmentado.baixar(servidor.url(), destino.toString()));
+
+            assertArrayEquals(conteudo, Files.readAllBytes(destino));
+            assertFalse(Files.exists(diretorio.resolve("perfil.zip.parte")));
+            assertEquals("HEAD", servidor.requisicoes().get(0).metodo());
+            List<ServidorHttp.Requisicao> gets = gets(servidor);
+            assertEquals(SEGMENTOS, gets.size());
+            for (ServidorHttp.Requisicao r : gets) {
+                assertEquals(206, r.status());
+                assertEquals(0, inicioDoRange(r.range()) % SEGMENTO);
+            }
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void retomaDeOndeParou() throws Exception {
+        byte[] conteudo = conteudo();
+        Path diretorio = Files.createTempDirectory("download");
+        Path destino = diretorio.resolve("perfil.zip");
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/perfil.zip", conteudo)) {
+            // Cada resposta cai depois de 1 MB: o download falha com o progresso salvo
+            servidor.cortarApos(1 << 20);
+            assertThrows(IOException.class, () -> DownloadSegmentado.baixar(servidor.url(), destino.toString()));
+            assertFalse(Files.exists(destino));
+            assertTrue(Files.exists(diretorio.resolve("perfil.zip.parte")));
+
+            servidor.cortarApos(-1);
+            servidor.limparRequisicoes();
+            assertTrue(DownloadSegmentado.baixar(servidor.url(), destino.toString()));
+            assertArrayEquals(conteudo, Files.readAllBytes(destino));
+
+            // Só o que faltava foi pedido, a partir do meio de algum segmento
+            long baixadosNaRetomada = 0;
+            boolean continuouNoMeio = false;
+            for (ServidorHttp.Requisicao r : gets(servidor)) {
+                assertEquals(206, r.status());
+                baixadosNaRetomada += r.bytes();
+                continuouNoMeio |= inicioDoRange(r.range()) % SEGMENTO != 0;
+            }
+            assertTrue(baixadosNaRetomada < TAMANHO, "retomada baixou " + baixadosNaRetomada + " bytes");
+            assertTrue(continuouNoMeio);
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void arquivoSemMudancaRespondido304() throws Exception {
+        byte[] conteudo = conteudo();
+        Path diretorio = Files.createTempDirectory("download");
+        Path destino = diretorio.resolve("perfil.zip");
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/perfil.zip", conteudo)) {
+            assertTrue(DownloadSegmentado.baixar(servidor.url(), destino.toString()));
+            servidor.limparRequisicoes();
+
+            assertFalse(DownloadSegmentado.baixar(servidor.url(), destino.toString()));
+            List<ServidorHttp.Requisicao> requisicoes = servidor.requisicoes();
+            assertEquals(1, requisicoes.size());
+            assertEquals("HEAD", requisicoes.get(0).metodo());
+            assertEquals(304, requisicoes.get(0).status());
+            assertArrayEquals(conteudo, Files.readAllBytes(destino));
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+}
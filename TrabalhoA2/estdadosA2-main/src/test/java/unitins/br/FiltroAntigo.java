@@ -0,0 +1,125 @@
+package unitins.br;
+
+import java.util.function.IntPredicate;
+
+/**
+ * O filtro de perfil de calcularEleitores() de antes do FiltroCompilado
+ * (switch pelo nome do filtro e conversão da opção a cada registro),
+ * guardado como referência: o FiltroCompilado deve dar os mesmos totais.
+ */
+final class FiltroAntigo {
+
+    // Códigos das faixas etárias conforme padrão do TSE
+    // Índice 0 = opção 1 (16 anos), índice 1 = opção 2 (17 anos), etc.
+    private static final int[] CODIGOS_FAIXA_ETARIA = {
+        1600, 1700, 1800, 2100, 2500, 3000, 3500, 4000, 4500,
+        5000, 5500, 6000, 6500, 7000, 7500, 8000, 8500, 9000, 9500, 10000
+    };
+
+    private FiltroAntigo() {
+    }
+
+    /**
+     * Soma dos registros da abrangência que passam no filtro de perfil, como
+     * o laço antigo fazia com cada PerfilEleitor.
+     */
+    static long somar(TabelaEleitores tabela, IntPredicate abrangencia, String filtroPerfil, String valorPerfil) {
+        long total = 0;
+        for (int i = 0; i < tabela.quantidade(); i++) {
+            if (!abrangencia.test(i)) continue;
+            PerfilEleitor e = tabela.materializar(i);
+
+            // Verificar perfil e somar eleitores
+            switch (filtroPerfil) {
+                case "TODOS":
+                    total += e.qtEleitoresPerfil();
+                    break;
+
+                case "OBRIGATORIEDADE":
+                    if (e.tpObrigatoriedadeVoto().equalsIgnoreCase(valorPerfil)) {
+                        total += e.qtEleitoresPerfil();
+                    }
+                    break;
+
+                case "GENERO":
+                    if (e.dsGenero().equalsIgnoreCase(valorPerfil)) {
+                        total += e.qtEleitoresPerfil();
+                    }
+                    break;
+
+                case "FAIXA_ETARIA":
+                    if (verificarFaixaEtaria(e.cdFaixaEtaria(), valorPerfil)) {
+                        total += e.qtEleitoresPerfil();
+                    }
+                    break;
+
+                case "ESCOLARIDADE":
+                    if (verificarEscolaridade(e.cdGrauEscolaridade(), valorPerfil)) {
+                        total += e.qtEleitoresPerfil();
+                    }
+                    break;
+
+                case "ESTADO_CIVIL":
+                    if (verificarEstadoCivil(e.cdEstadoCivil(), valorPerfil)) {
+                        total += e.qtEleitoresPerfil();
+                    }
+                    break;
+
+                case "RACA_COR":
+                    if (verificarRacaCor(e.cdRacaCor(), valorPerfil)) {
+                        total += e.qtEleitoresPerfil();
+                    }
+                    break;
+
+                case "DEFICIENCIA":
+                    total += e.qtEleitoresDeficiencia();
+                    break;
+
+                case "BIOMETRIA":
+                    total += e.qtEleitoresBiometria();
+                    break;
+            }
+        }
+        return total;
+    }
+
+    private static boolean verificarFaixaEtaria(int codigo, String opcao) {
+        try {
+            int opcaoNum = Integer.parseInt(opcao);
+            if (opcaoNum < 1 || opcaoNum > CODIGOS_FAIXA_ETARIA.length) {
+                return false;
+            }
+            return codigo == CODIGOS_FAIXA_ETARIA[opcaoNum - 1];
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean verificarEscolaridade(int codigo, String opcao) {
+        try {
+            int opcaoNum = Integer.parseInt(opcao);
+            return codigo == opcaoNum;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean verificarEstadoCivil(int codigo, String opcao) {
+        try {
+            int opcaoNum = Integer.parseInt(opcao);
+            int[] mapa = {0, 1, 3, 9, 5, 7};
+            return codigo == mapa[opcaoNum];
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean verificarRacaCor(int codigo, String opcao) {
+        try {
+            int opcaoNum = Integer.parseInt(opcao);
+            return codigo == opcaoNum;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FiltroCompilado (bitmaps no estado, contadores em cidade, local e seção)
+ * contra o filtro antigo, que convertia a opção e comparava registro a
+ * registro (FiltroAntigo): mesmos totais para todas as opções do menu de
+ * cada filtro, inclusive opções inválidas (SEM_CODIGO), textos com outra
+ * caixa e nomes de filtro desconhecidos.
+ */
+class FiltroCompiladoTest {
+
+    private static final int LINHAS = 4_000;
+
+    private static final int[] FAIXAS = {
+        1600, 1700, 1800, 2100, 2500, 3000, 3500, 4000, 4500, 5000,
+        5500, 6000, 6500, 7000, 7500, 8000, 8500, 9000, 9500, 10000, 2529, -1
+    };
+    private static final int[] ESTADOS_CIVIS = {0, 1, 3, 9, 5, 7, 2, -3};
+    private static final int[] RACAS = {-1, 1, 2, 3, 4, 6};
+
+    /** Filtros do menu e as opções testadas de cada um. */
+    private static final Object[][] OPCOES = {
+        {"TODOS", new String[] {"", "qualquer"}},
+        {"DEFICIENCIA", new String[] {""}},
+        {"BIOMETRIA", new String[] {""}},
+        {"GENERO", new String[] {"FEMININO", "feminino", "Feminino", "MASCULINO", "masculino",
+            "NÃO INFORMADO", "", "FEM", " FEMININO", null}},
+        {"OBRIGATORIEDADE", new String[] {"Facultativo", "FACULTATIVO", "obrigatório", "Obrigatório",
+            "OBRIGATORIO", "", null}},
+        {"FAIXA_ETARIA", opcoesNumericas(-1, 21, "abc", "", " 1", "1.0", "+3", "2147483648", null)},
+        {"ESCOLARIDADE", opcoesNumericas(-2, 10, "x", "", "-2147483648", "+4", null)},
+        {"ESTADO_CIVIL", opcoesNumericas(-2, 7, "x", "", "-0", null)},
+        {"RACA_COR", opcoesNumericas(-2, 10, "x", "", "-1 ", null)},
+        {"IDADE", new String[] {"1"}},
+        {"genero", new String[] {"FEMININO"}},
+        {"", new String[] {""}}
+    };
+
+    private static String[] opcoesNumericas(int de, int ate, String... outras) {
+        List<String> opcoes = new ArrayList<>();
+        for (int k = de; k <= ate; k++) {
+            opcoes.add(String.valueOf(k));
+        }
+        opcoes.addAll(Arrays.asList(outras));
+        return opcoes.toArray(new String[0]);
+    }
+
+    /**
+     * CSV de DadosTse com todos os códigos do menu presentes e textos em
+     * maiúsculas e minúsculas.
+     */
+    private static BaseEstado base() throws IOException {
+        StringBuilder sb = new StringBuilder(DadosTse.CABECALHO).append("\r\n");
+        for (int i = 0; i < LINHAS; i++) {
+            String[] c = DadosTse.linha("AC", i).split(";", -1);
+            c[12] = String.valueOf(ESTADOS_CIVIS[i % ESTADOS_CIVIS.length]);
+            c[14] = String.valueOf(FAIXAS[i % FAIXAS.length]);
+            c[18] = String.valueOf(RACAS[i % RACAS.length]);
+            if (i % 10 == 3) {
+                c[11] = c[11].toLowerCase();
+            }
+            if (i % 9 == 0) {
+                c[26] = c[26].toUpperCase();
+            }
+            sb.append(String.join(";", c)).append("\r\n");
+        }
+        return DadosTse.base(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /** Total pelo filtro compilado, como calcularEleitores() (0 se o nome é desconhecido). */
+    private static long compilado(BaseEstado base, String abrangencia, ChaveComposta chave,
+            String filtroPerfil, String valorPerfil) {
+        FiltroCompilado filtro = FiltroCompilado.compilar(filtroPerfil, valorPerfil);
+        if (filtro == null) {
+            return 0;
+        }
+        return switch (abrangencia) {
+            case "ESTADO" -> filtro.somar(base);
+            case "CIDADE" -> filtro.somar(base.porCidade().contadores(chave.codCidade()));
+            case "LOCAL" -> filtro.somar(base.porLocal().contadores(chave));
+            default -> filtro.somar(base.porSecao().contadores(chave));
+        };
+    }
+
+    private static void assertIgualAoAntigo(BaseEstado base, String abrangencia, ChaveComposta chave,
+            IntPredicate naAbrangencia, List<Object[]> opcoes) {
+        for (Object[] filtro : opcoes) {
+            String nome = (String) filtro[0];
+            for (String opcao : (String[]) filtro[1]) {
+                assertEquals(FiltroAntigo.somar(base.tabela(), naAbrangencia, nome, opcao),
+                        compilado(base, abrangencia, chave, nome, opcao),
+                        abrangencia + " " + chave + " " + nome + " \"" + opcao + "\"");
+            }
+        }
+    }
+
+    @Test
+    void mesmosTotaisQueOFiltroAntigo() throws IOException {
+        BaseEstado base = base();
+        TabelaEleitores tabela = base.tabela();
+        int[] cidade = tabela.coluna(Coluna.CD_MUNICIPIO);
+        int[] zona = tabela.coluna(Coluna.NR_ZONA);
+        int[] local = tabela.coluna(Coluna.NR_LOCAL_VOTACAO);
+        int[] secao = tabela.coluna(Coluna.NR_SECAO);
+
+        // Na ordem e na ordem inversa: o último filtro de cada dimensão é
+        // reaproveitado, e a troca de opção não pode devolver o anterior
+        List<Object[]> opcoes = new ArrayList<>(Arrays.asList(OPCOES));
+        List<Object[]> invertidas = new ArrayList<>();
+        for (Object[] filtro : OPCOES) {
+            List<String> valores = new ArrayList<>(Arrays.asList((String[]) filtro[1]));
+            Collections.reverse(valores);
+            invertidas.add(new Object[] {filtro[0], valores.toArray(new String[0])});
+        }
+        Collections.reverse(invertidas);
+
+        for (List<Object[]> ordem : List.of(opcoes, invertidas)) {
+            assertIgualAoAntigo(base, "ESTADO", null, i -> true, ordem);
+            for (int linha : new int[] {0, 7, 2_222, LINHAS - 1}) {
+                int c = cidade[linha];
+                int z = zona[linha];
+                ChaveComposta porLocal = new ChaveComposta(c, z, local[linha]);
+                ChaveComposta porSecao = new ChaveComposta(c, z, secao[linha]);
+                assertIgualAoAntigo(base, "CIDADE", porLocal, i -> cidade[i] == c, ordem);
+                assertIgualAoAntigo(base, "LOCAL", porLocal,
+                        i -> cidade[i] == c && zona[i] == z && local[i] == porLocal.numero(), ordem);
+                assertIgualAoAntigo(base, "SECAO", porSecao,
+                        i -> cidade[i] == c && zona[i] == z && secao[i] == porSecao.numero(), ordem);
+            }
+            ChaveComposta inexistente = new ChaveComposta(-7, 1, 1);
+            assertIgualAoAntigo(base, "CIDADE", inexistente, i -> false, ordem);
+            assertIgualAoAntigo(base, "LOCAL", inexistente, i -> false, ordem);
+            assertIgualAoAntigo(base, "SECAO", inexistente, i -> false, ordem);
+        }
+    }
+
+    @Test
+    void opcoesInvalidasNaoTemCodigo() {
+        for (String opcao : new String[] {"0", "21", "-1", "abc", "", " 1", "2147483648", null}) {
+            assertEquals(Dimensao.SEM_CODIGO, Dimensao.FAIXA_ETARIA.codigo(opcao), "FAIXA_ETARIA " + opcao);
+        }
+        for (String opcao : new String[] {"6", "-1", "x", null}) {
+            assertEquals(Dimensao.SEM_CODIGO, Dimensao.ESTADO_CIVIL.codigo(opcao), "ESTADO_CIVIL " + opcao);
+        }
+        assertEquals(1600, Dimensao.FAIXA_ETARIA.codigo("1"));
+        assertEquals(10000, Dimensao.FAIXA_ETARIA.codigo("20"));
+        assertEquals(3, Dimensao.ESTADO_CIVIL.codigo("2"));
+        assertEquals(-1, Dimensao.RACA_COR.codigo("-1"));
+        assertEquals(Dimensao.SEM_CODIGO, Dimensao.GENERO.codigo("1"));
+
+        assertNull(FiltroCompilado.compilar("IDADE", "1"));
+        assertTrue(FiltroCompilado.compilar("TODOS", "") == FiltroCompilado.compilar("TODOS", "x"));
+        // A mesma opção repetida reaproveita o filtro; outra opção não
+        FiltroCompilado feminino = FiltroCompilado.compilar("GENERO", "FEMININO");
+        assertTrue(feminino == FiltroCompilado.compilar("GENERO", "FEMININO"));
+        assertTrue(feminino != FiltroCompilado.compilar("GENERO", "feminino"));
+    }
+}
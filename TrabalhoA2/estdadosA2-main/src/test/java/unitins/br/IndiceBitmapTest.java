@@ -0,0 +1,97 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * IndiceBitmap contra a coluna percorrida linha a linha: para cada dimensão,
+ * os valores distintos em ordem e, para cada valor, o bitmap com exatamente
+ * as linhas que o têm. Uma dimensão tem valores espalhados por todo o
+ * intervalo de int, o que desliga a tabela de posição direta (indiceDe).
+ */
+class IndiceBitmapTest {
+
+    private static final int BLOCO = 1 << 16;
+    private static final int LINHAS = 3 * BLOCO + 777;
+
+    // Valores da dimensão sem acesso direto (max - min >= 2^16)
+    private static final int[] ESPALHADOS = {
+        Integer.MIN_VALUE, -70_000, -3, -1, 0, 1, 2, 9, 65_535, 65_536, 100_000, 1 << 24, Integer.MAX_VALUE
+    };
+
+    /** Tabela só com as colunas das dimensões e a quantidade de eleitores. */
+    private static TabelaEleitores tabela(Random aleatorio) {
+        EnumSet<Coluna> projecao = EnumSet.of(Coluna.QT_ELEITORES_PERFIL);
+        for (Dimensao d : Dimensao.values()) {
+            projecao.add(d.coluna());
+        }
+        TabelaEleitores tabela = new TabelaEleitores(16, projecao);
+        int[] linha = new int[Coluna.values().length];
+        for (int i = 0; i < LINHAS; i++) {
+            int bloco = i / BLOCO;
+            // Texto (códigos de dicionário): um valor raro, só no bloco 1, e um perto da divisa
+            linha[Coluna.DS_GENERO.ordinal()] = bloco == 1 && aleatorio.nextInt(100) == 0 ? 1 : 0;
+            linha[Coluna.TP_OBRIGATORIEDADE_VOTO.ordinal()] = Math.abs(i - BLOCO) < 3 ? 1 : 2;
+            linha[Coluna.CD_FAIXA_ETARIA.ordinal()] = ESPALHADOS[aleatorio.nextInt(ESPALHADOS.length)];
+            // 7 em LIMITE_ESPARSO (4096) linhas do bloco 0, 4097 do bloco 1, todas do 2, nenhuma do 3
+            int j = i % BLOCO;
+            boolean sete = switch (bloco) {
+                case 0 -> j < 4096;
+                case 1 -> j >= BLOCO - 4097;
+                case 2 -> true;
+                default -> false;
+            };
+            linha[Coluna.CD_GRAU_ESCOLARIDADE.ordinal()] = sete ? 7 : 1 + aleatorio.nextInt(6);
+            linha[Coluna.CD_ESTADO_CIVIL.ordinal()] = new int[] {1, 3, 9}[aleatorio.nextInt(3)];
+            linha[Coluna.CD_RACA_COR.ordinal()] = -1;
+            linha[Coluna.QT_ELEITORES_PERFIL.ordinal()] =
+                    aleatorio.nextInt(100) == 0 ? Integer.MAX_VALUE : aleatorio.nextInt(20);
+            tabela.adicionarCodificada(linha);
+        }
+        return tabela;
+    }
+
+    @Test
+    void bitmapsIguaisAColuna() {
+        TabelaEleitores tabela = tabela(new Random(5));
+        IndiceBitmap indice = IndiceBitmap.construir(tabela);
+        int[] quantidades = tabela.coluna(Coluna.QT_ELEITORES_PERFIL);
+
+        for (Dimensao d : Dimensao.values()) {
+            int[] coluna = tabela.coluna(d.coluna());
+            int[] distintos = Arrays.stream(coluna, 0, LINHAS).distinct().sorted().toArray();
+            assertArrayEquals(distintos, indice.valores(d), d.name());
+
+            int total = 0;
+            for (int v : distintos) {
+                boolean[] presentes = new boolean[LINHAS];
+                for (int i = 0; i < LINHAS; i++) {
+                    presentes[i] = coluna[i] == v;
+                }
+                BitmapCompacto bitmap = indice.bitmap(d, v);
+                BitmapCompactoTest.assertMesmasLinhas(presentes, quantidades, bitmap);
+                total += bitmap.cardinalidade();
+            }
+            assertEquals(LINHAS, total, d.name());
+            assertNull(indice.bitmap(d, 42), d.name());
+        }
+        assertArrayEquals(ESPALHADOS, indice.valores(Dimensao.FAIXA_ETARIA));
+        assertArrayEquals(new int[] {-1}, indice.valores(Dimensao.RACA_COR));
+    }
+
+    @Test
+    void tabelaVazia() {
+        IndiceBitmap indice = IndiceBitmap.construir(new TabelaEleitores(1));
+        for (Dimensao d : Dimensao.values()) {
+            assertEquals(0, indice.valores(d).length);
+            assertNull(indice.bitmap(d, 0));
+        }
+    }
+}
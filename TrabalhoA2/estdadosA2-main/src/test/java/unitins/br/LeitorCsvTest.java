@@ -0,0 +1,175 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * LeitorCsv contra a leitura antiga (LeituraAntiga: readLine + split +
+ * fromCsv): os mesmos registros, campo a campo, nos casos difíceis do
+ * formato, e a leitura mais rápida.
+ */
+class LeitorCsvTest {
+
+    private static final int LINHAS_SORTEADAS = 20_000;
+    private static final int LINHAS_MEDICAO = 200_000;
+
+    // Valores que exercitam a limpeza e a conversão dos campos
+    private static final String[] VALORES = {
+        "", " ", "\"\"", "0", "7", "\"42\"", " 13 ", "\" 8 \"", "+5", "-5", "-", "+", "1\"2",
+        "#NULO", "\"#NULO\"", "#NE", "\"#NE\"", "#N", "#NEX", "1e3", "12a",
+        "2147483647", "2147483648", "-2147483648", "-2147483649", "99999999999", "00000000000000000012",
+        "\"MASCULINO\"", "masculino", "\"SÃO JOSÉ\"", "\"ESCOLA Nº 5\"", " \"A\" ", "\"A\"B\"", "\t\"TAB\"\t"
+    };
+
+    /** Campos da linha i de DadosTse, para trocar alguns. */
+    private static String[] campos(int i) {
+        return DadosTse.linha("AC", i).split(";", -1);
+    }
+
+    private static String juntar(String[] campos) {
+        return String.join(";", campos);
+    }
+
+    private static final class Csv {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Csv() {
+            latin1(DadosTse.CABECALHO + "\r\n");
+        }
+
+        Csv latin1(String texto) {
+            bytes.writeBytes(texto.getBytes(StandardCharsets.ISO_8859_1));
+            return this;
+        }
+
+        Csv utf8(String texto) {
+            bytes.writeBytes(texto.getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        byte[] bytes() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /** Como lerSequencial(): tabela reservada pela estimativa do tamanho. */
+    private static TabelaEleitores lerComLeitorCsv(byte[] csv) throws IOException {
+        try (LeitorCsv leitor = new LeitorCsv(new ByteArrayInputStream(csv))) {
+            leitor.proximaLinha(); // Pular cabeçalho
+            TabelaEleitores tabela = new TabelaEleitores(Math.max(leitor.estimarLinhas(csv.length), 1), Coluna.todas());
+            while (leitor.proximaLinha()) {
+                leitor.adicionarEm(tabela);
+            }
+            return tabela;
+        }
+    }
+
+    /** Mesmos registros, na mesma ordem, que a leitura antiga. */
+    private static void assertMesmosRegistros(byte[] csv) throws IOException {
+        List<PerfilEleitor> esperados = LeituraAntiga.ler(csv);
+        TabelaEleitores tabela = lerComLeitorCsv(csv);
+        assertEquals(esperados.size(), tabela.quantidade());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.get(i), tabela.materializar(i), "linha " + i);
+        }
+    }
+
+    @Test
+    void casosDoFormato() throws IOException {
+        Csv csv = new Csv();
+        csv.latin1(DadosTse.linha("AC", 0) + "\r\n");           // CRLF
+        csv.latin1(DadosTse.linha("AC", 1) + "\n");             // LF
+        csv.latin1(DadosTse.linha("AC", 2) + "\r");             // CR sozinho
+        csv.latin1("\r\n\n");                                   // Linhas vazias
+
+        String[] c = campos(3);
+        c[2] = "\"2024\"";
+        c[6] = " 12 ";
+        c[8] = "\"#NULO\"";
+        c[14] = "#NE";
+        c[16] = "\"#NE\"";
+        c[18] = "";
+        c[27] = "\" 25 \"";
+        csv.latin1(juntar(c) + "\r\n");                         // Aspas, espaços, #NULO, #NE, vazio
+
+        c = campos(4);
+        c[27] = "2147483648";
+        c[28] = "99999999999";
+        c[29] = "-2147483648";
+        c[30] = "+7";
+        csv.latin1(juntar(c) + "\r\n");                         // Estouro de int
+
+        c = campos(5);
+        c[30] = "";
+        csv.latin1(juntar(c) + "\r\n");                         // Último campo vazio: split descarta, linha curta
+        csv.latin1(juntar(c) + ";;\r\n");                       // Campos vazios depois do 31º: idem
+        csv.latin1(juntar(c) + ";;x\r\n");                      // Campo extra não vazio: linha vale
+        csv.latin1(juntar(campos(6)) + ";\r\n");                // 31 campos e um ';' no fim
+
+        c = campos(7);
+        csv.latin1(juntar(Arrays.copyOf(c, 20)) + "\r\n");      // Linha curta
+
+        c = campos(8);
+        c[5] = "\"SÃO JOSÉ DO RIO PRETO\"";
+        c[9] = "\"ESCOLA Nº 8 – ANEXO\"";
+        csv.utf8(juntar(c) + "\r\n");                           // Texto em UTF-8 num arquivo Latin-1
+
+        c = campos(9);
+        c[9] = "\"" + "LOCAL ".repeat(300_000) + "\"";          // Linha maior que o buffer (1 MB)
+        csv.latin1(juntar(c) + "\r\n");
+
+        csv.latin1(DadosTse.linha("AC", 10));                   // Última linha sem fim de linha
+
+        byte[] bytes = csv.bytes();
+        assertMesmosRegistros(bytes);
+        assertEquals(10, LeituraAntiga.ler(bytes).size());
+    }
+
+    @Test
+    void linhasSorteadas() throws IOException {
+        Random aleatorio = new Random(3);
+        String[] fins = {"\r\n", "\n", "\r"};
+        Csv csv = new Csv();
+        for (int i = 0; i < LINHAS_SORTEADAS; i++) {
+            String[] c = campos(i);
+            int trocas = aleatorio.nextInt(4);
+            for (int t = 0; t < trocas; t++) {
+                c[aleatorio.nextInt(c.length)] = VALORES[aleatorio.nextInt(VALORES.length)];
+            }
+            String linha = juntar(c) + ";".repeat(aleatorio.nextInt(10) == 0 ? 1 + aleatorio.nextInt(2) : 0);
+            if (aleatorio.nextInt(8) == 0) {
+                csv.utf8(linha);
+            } else {
+                csv.latin1(linha);
+            }
+            csv.latin1(fins[aleatorio.nextInt(fins.length)]);
+        }
+        assertMesmosRegistros(csv.bytes());
+    }
+
+    @Test
+    void leituraMaisRapidaQueAAntiga() throws Exception {
+        byte[] csv = DadosTse.csv("AC", LINHAS_MEDICAO);
+        int[] quantidades = new int[2];
+
+        long tempoLeitor = Medicao.melhorTempo(1, 3, () -> quantidades[0] = lerComLeitorCsv(csv).quantidade());
+        long tempoAntiga = Medicao.melhorTempo(1, 3, () -> quantidades[1] = LeituraAntiga.ler(csv).size());
+        Medicao.relatar(String.format("Leitura de %,d linhas (%,d KB)", LINHAS_MEDICAO, csv.length / 1024),
+                new String[] {"LeitorCsv", "readLine + split + fromCsv"},
+                new long[] {tempoLeitor, tempoAntiga});
+
+        assertEquals(LINHAS_MEDICAO, quantidades[0]);
+        assertEquals(LINHAS_MEDICAO, quantidades[1]);
+        assertTrue(tempoLeitor < tempoAntiga, "LeitorCsv não foi mais rápido que a leitura antiga");
+    }
+}
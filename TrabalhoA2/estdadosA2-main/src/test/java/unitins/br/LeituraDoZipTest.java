@@ -0,0 +1,93 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Modo DIRETO_DO_ZIP (Arquivo.abrirCsvDoZip) contra extrair o ZIP e ler o
+ * CSV extraído: mesmos bytes, mesmas linhas, e o tempo dos dois caminhos.
+ * Com o CSV extraído ainda no cache do sistema, os tempos ficam próximos; o
+ * ganho garantido é não gravar (nem ocupar no disco) o CSV descompactado.
+ */
+class LeituraDoZipTest {
+
+    private static final int LINHAS = 150_000;
+    private static final String CSV = "perfil_eleitor_secao_ATUAL_AC.csv";
+
+    private static AppService servico(ModoCarga modo) {
+        AppService servico = new AppService();
+        servico.setModoCarga(modo);
+        return servico;
+    }
+
+    /** Caminho antigo: extrair para o disco e ler o arquivo extraído. */
+    private static BaseEstado extrairELer(Path zip, Path destino) {
+        assertTrue(Arquivo.extrairZip(zip.toString(), destino.toString()));
+        return servico(ModoCarga.SEQUENCIAL).lerArquivoCsv(destino.resolve(CSV).toString());
+    }
+
+    @Test
+    void mesmasLinhasQueOArquivoExtraido() throws IOException {
+        Path diretorio = Files.createTempDirectory("zip");
+        try {
+            byte[] csv = DadosTse.csv("AC", LINHAS);
+            Path zip = Files.write(diretorio.resolve("perfil_eleitor_secao_AC.zip"), DadosTse.zip(CSV, csv));
+
+            // O fluxo começa no CSV (o PDF antes dele é pulado) e tem os mesmos bytes
+            try (InputStream entrada = Arquivo.abrirCsvDoZip(zip.toString())) {
+                assertArrayEquals(csv, entrada.readAllBytes());
+            }
+            assertEquals(csv.length, Arquivo.tamanhoCsvNoZip(zip.toString()));
+
+            BaseEstado extraida = extrairELer(zip, diretorio.resolve("extraido"));
+            assertArrayEquals(csv, Files.readAllBytes(diretorio.resolve("extraido").resolve(CSV)));
+            BaseEstado direta = servico(ModoCarga.DIRETO_DO_ZIP).lerArquivoCsv(zip.toString());
+
+            assertEquals(LINHAS, extraida.tabela().quantidade());
+            Tabelas.assertMesmaTabela(extraida.tabela(), direta.tabela());
+            assertEquals(extraida.porCidade().tamanho(), direta.porCidade().tamanho());
+            assertEquals(extraida.porSecao().tamanho(), direta.porSecao().tamanho());
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void tempoDiretoDoZipContraExtrairELer() throws Exception {
+        Path diretorio = Files.createTempDirectory("zip");
+        try {
+            byte[] csv = DadosTse.csv("AC", LINHAS);
+            Path zip = Files.write(diretorio.resolve("perfil_eleitor_secao_AC.zip"), DadosTse.zip(CSV, csv));
+            int[] quantidades = new int[2];
+
+            long tempoExtrair = Medicao.melhorTempo(1, 3, () ->
+                    quantidades[0] = extrairELer(zip, diretorio.resolve("extraido")).tabela().quantidade());
+            DadosTse.apagar(diretorio.resolve("extraido"));
+            long tempoDireto = Medicao.melhorTempo(1, 3, () ->
+                    quantidades[1] = servico(ModoCarga.DIRETO_DO_ZIP).lerArquivoCsv(zip.toString()).tabela().quantidade());
+            Medicao.relatar(String.format("Carga de um ZIP com %,d linhas (%,d KB descompactados)",
+                    LINHAS, csv.length / 1024),
+                    new String[] {"extrair + SEQUENCIAL", "DIRETO_DO_ZIP"},
+                    new long[] {tempoExtrair, tempoDireto});
+
+            assertEquals(LINHAS, quantidades[0]);
+            assertEquals(LINHAS, quantidades[1]);
+            // Nada foi gravado além do próprio ZIP
+            try (Stream<Path> arquivos = Files.list(diretorio)) {
+                assertEquals(List.of(zip), arquivos.toList());
+            }
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+}
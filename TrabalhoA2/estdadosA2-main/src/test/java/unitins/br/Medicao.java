@@ -0,0 +1,43 @@
+package unitins.br;
+
+/**
+ * Cronometragem simples para os testes que comparam duas implementações:
+ * algumas execuções de aquecimento (JIT) e o menor tempo das seguintes.
+ */
+final class Medicao {
+
+    /** Trecho medido; pode lançar exceções de E/S. */
+    @FunctionalInterface
+    interface Trecho {
+        void executar() throws Exception;
+    }
+
+    private Medicao() {
+    }
+
+    /**
+     * @return Menor tempo, em nanossegundos, entre as execuções medidas
+     */
+    static long melhorTempo(int aquecimento, int repeticoes, Trecho trecho) throws Exception {
+        for (int i = 0; i < aquecimento; i++) {
+            trecho.executar();
+        }
+        long melhor = Long.MAX_VALUE;
+        for (int i = 0; i < repeticoes; i++) {
+            long inicio = System.nanoTime();
+            trecho.executar();
+            melhor = Math.min(melhor, System.nanoTime() - inicio);
+        }
+        return melhor;
+    }
+
+    /**
+     * Mostra o tempo de cada alternativa na saída do teste.
+     */
+    static void relatar(String titulo, String[] nomes, long[] nanos) {
+        System.out.println(titulo);
+        for (int i = 0; i < nomes.length; i++) {
+            System.out.printf("  %-28s %,10.2f ms%n", nomes[i], nanos[i] / 1e6);
+        }
+    }
+}
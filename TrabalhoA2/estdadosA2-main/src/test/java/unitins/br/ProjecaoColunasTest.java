@@ -0,0 +1,176 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Carga com projeção (setColunasCarga, ex.: Coluna.consultas()): em todos
+ * os caminhos de carga, as colunas declaradas saem iguais às da carga
+ * completa, as outras ficam sem array nem dicionário, e ler uma delas lança
+ * IllegalStateException. As consultas do AppService dão os mesmos totais.
+ */
+class ProjecaoColunasTest {
+
+    private static final int LINHAS = 20_000;
+    private static final String CSV = "perfil_eleitor_secao_ATUAL_AC.csv";
+    private static final String ZIP = "perfil_eleitor_secao_ATUAL_AC.zip";
+
+    /**
+     * A tabela guarda exatamente a projeção: colunas declaradas iguais às
+     * da leitura de referência, e as outras inacessíveis.
+     */
+    private static void assertSoAProjecao(TabelaEleitores esperada, TabelaEleitores tabela, String nome) {
+        Tabelas.assertMesmaTabela(esperada, tabela);
+        for (Coluna c : Coluna.values()) {
+            if (esperada.carregada(c)) {
+                assertTrue(tabela.carregada(c), nome + " " + c);
+                continue;
+            }
+            assertFalse(tabela.carregada(c), nome + " " + c);
+            assertThrows(IllegalStateException.class, () -> tabela.coluna(c));
+            assertThrows(IllegalStateException.class, () -> tabela.valor(c, 0));
+            assertThrows(IllegalStateException.class, () -> tabela.dicionario(c));
+            if (c.texto()) {
+                assertThrows(IllegalStateException.class, () -> tabela.texto(c, 0));
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> tabela.materializar(0));
+    }
+
+    @Test
+    void cargasGuardamSoAsColunasDeclaradas() throws IOException {
+        Path diretorio = Files.createTempDirectory("projecao");
+        byte[] csv = DadosTse.csv("AC", LINHAS);
+        byte[] zip = DadosTse.zip(CSV, csv);
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/" + ZIP, zip)) {
+            Path arquivoCsv = Files.write(diretorio.resolve(CSV), csv);
+            // Sem colunas além dos índices, e com uma coluna de fora dos índices
+            EnumSet<Coluna> soNome = Coluna.indices();
+            soNome.add(Coluna.NM_LOCAL_VOTACAO);
+            for (EnumSet<Coluna> projecao : List.of(Coluna.consultas(), Coluna.indices(), soNome)) {
+                TabelaEleitores esperada = DadosTse.tabela(csv, projecao);
+                assertEquals(projecao, esperada.colunasCarregadas());
+                assertSoAProjecao(esperada, DadosTse.tabela(csv, projecao), "sequencial " + projecao);
+
+                BaseEstado paralela = CargaParalela.carregar(arquivoCsv.toString(), projecao);
+                assertSoAProjecao(esperada, paralela.tabela(), "paralela " + projecao);
+
+                Path arquivoZip = diretorio.resolve("perfil_eleitor_secao_AC.zip");
+                Files.deleteIfExists(arquivoZip);
+                BaseEstado pipeline = CargaEmPipeline.carregar(servidor.url(), arquivoZip.toString(), projecao);
+                assertSoAProjecao(esperada, pipeline.tabela(), "pipeline " + projecao);
+
+                // O snapshot grava só as colunas carregadas e as lê de volta assim
+                Path snapshot = diretorio.resolve("AC.snap");
+                Snapshot.gravar(snapshot.toString(), paralela);
+                assertSoAProjecao(esperada, Snapshot.ler(snapshot.toString()).tabela(), "snapshot " + projecao);
+            }
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    /** Totais das consultas do menu, na ordem (nenhuma lê colunas fora de Coluna.consultas()). */
+    private static List<String> consultas(AppService servico) {
+        List<String> r = new ArrayList<>();
+        for (String[] f : new String[][] {{"TODOS", ""}, {"GENERO", "FEMININO"}, {"ESCOLARIDADE", "3"},
+                {"OBRIGATORIEDADE", "Facultativo"}, {"BIOMETRIA", ""}, {"DEFICIENCIA", ""}}) {
+            r.add("ESTADO " + servico.calcularEleitores("ESTADO", 0, 0, 0, 0, f[0], f[1]));
+            r.add("CIDADE " + servico.calcularEleitores("CIDADE", DadosTse.PRIMEIRA_CIDADE, 0, 0, 0, f[0], f[1]));
+            r.add("SECAO " + servico.calcularEleitores("SECAO", DadosTse.cidade(0), DadosTse.zona(0),
+                    DadosTse.secao(0), 0, f[0], f[1]));
+        }
+        r.add("Consulta " + servico.calcularEleitores(Consulta.estado().onde(Dimensao.GENERO, "feminino")
+                .ondeCodigo(Dimensao.ESCOLARIDADE, 2, 5)));
+        TabelaCruzada tabela = servico.agrupar(Consulta.estado(), Dimensao.FAIXA_ETARIA, Dimensao.GENERO);
+        for (int i = 0; i < tabela.linhas(); i++) {
+            for (int j = 0; j < tabela.colunas(); j++) {
+                r.add(tabela.rotuloLinha(i) + " " + tabela.rotuloColuna(j) + " " + tabela.eleitores(i, j));
+            }
+        }
+        r.add(Arrays.toString(servico.calcularEstatisticas()));
+        for (String[] cidade : servico.getCidadesDisponiveis()) {
+            r.add(cidade[0] + " " + cidade[1]);
+        }
+        return r;
+    }
+
+    private static AppService servico(ServidorHttp servidor, Path diretorio, ModoCarga modo) {
+        AppService servico = new AppService();
+        String url = servidor.url();
+        servico.setOrigem(url.substring(0, url.length() - ZIP.length()), diretorio.toString());
+        servico.setModoCarga(modo);
+        return servico;
+    }
+
+    @Test
+    void servicoComProjecaoDaOsMesmosTotais() throws IOException {
+        byte[] zip = DadosTse.zip(CSV, DadosTse.csv("AC", LINHAS));
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/" + ZIP, zip)) {
+            Path referencia = Files.createTempDirectory("projecao");
+            List<String> esperado;
+            PerfilEleitor[] registros;
+            try {
+                AppService completo = servico(servidor, referencia, ModoCarga.SEQUENCIAL);
+                assertTrue(completo.carregarDados("AC"));
+                esperado = consultas(completo);
+                registros = completo.listarRegistros(5);
+            } finally {
+                DadosTse.apagar(referencia);
+            }
+
+            for (ModoCarga modo : ModoCarga.values()) {
+                Path diretorio = Files.createTempDirectory("projecao");
+                try {
+                    AppService servico = servico(servidor, diretorio, modo);
+                    servico.setColunasCarga(Coluna.consultas());
+                    assertEquals(Coluna.consultas(), servico.getColunasCarga());
+                    assertTrue(servico.carregarDados("AC"), modo.toString());
+                    assertEquals(esperado, consultas(servico), modo.toString());
+                    assertThrows(IllegalStateException.class, () -> servico.listarRegistros(5));
+
+                    // O snapshot gravado com a projeção também serve a ela
+                    AppService outro = servico(servidor, diretorio, modo);
+                    outro.setColunasCarga(Coluna.consultas());
+                    assertTrue(outro.carregarDados("AC"), modo.toString());
+                    assertEquals(esperado, consultas(outro), modo.toString());
+                    assertThrows(IllegalStateException.class, () -> outro.listarRegistros(5));
+
+                    // Pedir todas as colunas recarrega a UF, em memória e no snapshot
+                    servico.setColunasCarga(Coluna.todas());
+                    assertTrue(servico.carregarDados("AC"), modo.toString());
+                    assertArrayEquals(registros, servico.listarRegistros(5), modo.toString());
+                    assertEquals(esperado, consultas(servico), modo.toString());
+                } finally {
+                    DadosTse.apagar(diretorio);
+                }
+            }
+        }
+    }
+
+    @Test
+    void colunasDosIndicesSempreIncluidas() {
+        AppService servico = new AppService();
+        assertEquals(Coluna.todas(), servico.getColunasCarga());
+        servico.setColunasCarga(Set.of());
+        assertEquals(Coluna.indices(), servico.getColunasCarga());
+        servico.setColunasCarga(Set.of(Coluna.NM_LOCAL_VOTACAO, Coluna.NR_SECAO));
+        EnumSet<Coluna> esperado = Coluna.indices();
+        esperado.add(Coluna.NM_LOCAL_VOTACAO);
+        assertEquals(esperado, servico.getColunasCarga());
+    }
+}
@@ -0,0 +1,25 @@
+package unitins.br;
+
+/**
+ * Registros de eleitores para os testes, com só os campos usados pelas
+ * árvores preenchidos (código da cidade e quantidades).
+ */
+final class Registros {
+
+    private Registros() {
+    }
+
+    /**
+     * Perfil de uma cidade com qtEleitoresPerfil = quantidade (biometria,
+     * deficiência e nome social zerados).
+     */
+    static PerfilEleitor perfil(int codCidade, int quantidade) {
+        return new PerfilEleitor(
+                "01/01/2024", "00:00:00", 2024, "AC",
+                codCidade, "CIDADE " + codCidade, 1, 1, 1, "LOCAL",
+                2, "MASCULINO", 1, "SOLTEIRO", 2100, "21 A 24 ANOS",
+                6, "ENSINO MÉDIO COMPLETO", 1, "BRANCA",
+                0, "#NULO", 0, "#NULO", 0, "#NULO",
+                "OBRIGATÓRIO", quantidade, 0, 0, 0);
+    }
+}
@@ -0,0 +1,182 @@
+package unitins.br;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor HTTP local (porta livre do loopback) que entrega um ou mais
+ * arquivos, no lugar do servidor do TSE nos testes de download. Caminhos sem
+ * arquivo publicado recebem 404.
+ *
+ * Responde HEAD e GET com ETag e Last-Modified fixos, atende Range (206,
+ * inclusive "bytes=-N", o fim do arquivo) e requisições condicionais (304),
+ * e pode cortar as respostas no meio para simular uma conexão perdida. Cada
+ * requisição fica registrada.
+ */
+final class ServidorHttp implements AutoCloseable {
+
+    static final String ETAG = "\"v1\"";
+    static final String ULTIMA_MODIFICACAO = "Sat, 01 Nov 2025 05:56:43 GMT";
+
+    /** Uma requisição recebida: método, cabeçalho Range (ou null), status e bytes do corpo enviados. */
+    record Requisicao(String metodo, String range, int status, long bytes) {
+    }
+
+    private final HttpServer servidor;
+    private final String caminho;
+    private final Map<String, byte[]> arquivos = new ConcurrentHashMap<>();
+    private final List<Requisicao> requisicoes = new ArrayList<>();
+    private volatile long cortarApos = -1;
+    private volatile boolean aceitaRange = true;
+
+    private ServidorHttp(String caminho, byte[] conteudo) throws IOException {
+        this.caminho = caminho;
+        arquivos.put(caminho, conteudo);
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        servidor.createContext("/", this::responder);
+        servidor.start();
+    }
+
+    /**
+     * Inicia o servidor.
+     *
+     * @param caminho Caminho do arquivo na URL (ex.: "/perfil.zip")
+     * @param conteudo Bytes entregues em GET
+     */
+    static ServidorHttp iniciar(String caminho, byte[] conteudo) throws IOException {
+        return new ServidorHttp(caminho, conteudo);
+    }
+
+    /** @return URL completa do arquivo passado a iniciar() */
+    String url() {
+        return "http://" + servidor.getAddress().getHostString() + ":" + servidor.getAddress().getPort() + caminho;
+    }
+
+    /**
+     * Passa a entregar outro arquivo (ou troca o conteúdo de um já publicado).
+     *
+     * @param caminho Caminho do arquivo na URL
+     * @param conteudo Bytes entregues em GET
+     */
+    void publicar(String caminho, byte[] conteudo) {
+        arquivos.put(caminho, conteudo);
+    }
+
+    /**
+     * Faz as próximas respostas fecharem a conexão depois de enviar bytes do corpo.
+     *
+     * @param bytes Bytes enviados antes do corte, ou -1 para respostas completas
+     */
+    void cortarApos(long bytes) {
+        this.cortarApos = bytes;
+    }
+
+    /**
+     * Faz o servidor ignorar Range, como um servidor sem suporte: responde 200
+     * com o arquivo inteiro.
+     */
+    void ignorarRange() {
+        this.aceitaRange = false;
+    }
+
+    /** @return Cópia das requisições recebidas até agora, na ordem de chegada */
+    synchronized List<Requisicao> requisicoes() {
+        return new ArrayList<>(requisicoes);
+    }
+
+    synchronized void limparRequisicoes() {
+        requisicoes.clear();
+    }
+
+    private synchronized void registrar(Requisicao r) {
+        requisicoes.add(r);
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        try (troca) {
+            String metodo = troca.getRequestMethod();
+            Headers pedido = troca.getRequestHeaders();
+            String range = pedido.getFirst("Range");
+            Headers resposta = troca.getResponseHeaders();
+
+            if (!"GET".equals(metodo) && !"HEAD".equals(metodo)) {
+                responderSemCorpo(troca, new Requisicao(metodo, range, 405, 0));
+                return;
+            }
+            byte[] conteudo = arquivos.get(troca.getRequestURI().getPath());
+            if (conteudo == null) {
+                responderSemCorpo(troca, new Requisicao(metodo, range, 404, 0));
+                return;
+            }
+            resposta.set("ETag", ETAG);
+            resposta.set("Last-Modified", ULTIMA_MODIFICACAO);
+            if (aceitaRange) {
+                resposta.set("Accept-Ranges", "bytes");
+            }
+
+            if (ETAG.equals(pedido.getFirst("If-None-Match"))
+                    || ULTIMA_MODIFICACAO.equals(pedido.getFirst("If-Modified-Since"))) {
+                responderSemCorpo(troca, new Requisicao(metodo, range, 304, 0));
+                return;
+            }
+
+            // Range só vale se o If-Range (quando enviado) confere com a versão atual
+            String seRange = pedido.getFirst("If-Range");
+            boolean parcial = aceitaRange && range != null && (seRange == null || seRange.equals(ETAG) || seRange.equals(ULTIMA_MODIFICACAO));
+            int inicio = 0;
+            int fim = conteudo.length - 1;
+            if (parcial) {
+                String[] limites = range.substring("bytes=".length()).split("-", -1);
+                if (limites[0].isEmpty()) {
+                    // "bytes=-N": os últimos N bytes
+                    inicio = Math.max(0, conteudo.length - Integer.parseInt(limites[1]));
+                } else {
+                    inicio = Integer.parseInt(limites[0]);
+                    fim = limites[1].isEmpty() ? fim : Math.min(fim, Integer.parseInt(limites[1]));
+                }
+                resposta.set("Content-Range", "bytes " + inicio + "-" + fim + "/" + conteudo.length);
+            }
+            int status = parcial ? 206 : 200;
+            int tamanho = fim - inicio + 1;
+
+            if ("HEAD".equals(metodo)) {
+                resposta.set("Content-Length", String.valueOf(tamanho));
+                responderSemCorpo(troca, new Requisicao(metodo, range, status, 0));
+                return;
+            }
+
+            long corte = cortarApos;
+            int enviar = corte >= 0 && corte < tamanho ? (int) corte : tamanho;
+            registrar(new Requisicao(metodo, range, status, enviar));
+            troca.sendResponseHeaders(status, tamanho);
+            OutputStream out = troca.getResponseBody();
+            out.write(conteudo, inicio, enviar);
+            out.flush();
+            if (enviar < tamanho) {
+                // Fecha a conexão com o corpo pela metade
+                throw new IOException("Resposta cortada pelo teste");
+            }
+            out.close();
+        }
+    }
+
+    private void responderSemCorpo(HttpExchange troca, Requisicao r) throws IOException {
+        registrar(r);
+        troca.sendResponseHeaders(r.status(), -1);
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+    }
+}
@@ -0,0 +1,140 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Snapshots corrompidos, truncados ou de outra versão são rejeitados por
+ * Snapshot.ler() com IOException (nunca OutOfMemoryError), e a carga do
+ * estado volta para o ZIP e grava um snapshot novo.
+ */
+class SnapshotTest {
+
+    private static final int LINHAS = 20_000;
+    private static final int CABECALHO = 24;
+    private static final String ZIP = "perfil_eleitor_secao_ATUAL_AC.zip";
+
+    /** Posição do campo "quantidade" (primeiro int do conteúdo). */
+    private static final int POSICAO_QUANTIDADE = CABECALHO;
+
+    private static void escrever(Path arquivo, long posicao, ByteBuffer bytes) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                posicao += canal.write(bytes, posicao);
+            }
+        }
+    }
+
+    private static ByteBuffer inteiro(int valor) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, valor);
+    }
+
+    /** Regrava o CRC do cabeçalho para o conteúdo atual (corrupção "bem feita"). */
+    private static void recalcularCrc(Path arquivo) throws IOException {
+        byte[] bytes = Files.readAllBytes(arquivo);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, CABECALHO, bytes.length - CABECALHO);
+        escrever(arquivo, 16, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, crc.getValue()));
+    }
+
+    private static void inverterByte(Path arquivo, long posicao) throws IOException {
+        byte[] bytes = Files.readAllBytes(arquivo);
+        escrever(arquivo, posicao, ByteBuffer.wrap(new byte[] {(byte) ~bytes[(int) posicao]}));
+    }
+
+    private static void truncar(Path arquivo, long bytes) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - bytes);
+        }
+    }
+
+    private interface Corrupcao {
+        void aplicar(Path arquivo) throws IOException;
+    }
+
+    private static final List<Corrupcao> CORRUPCOES = List.of(
+            // Um byte trocado no meio do conteúdo
+            arquivo -> inverterByte(arquivo, Files.size(arquivo) / 2),
+            // Quantidade absurda: seria um new int[2^31] por coluna
+            arquivo -> escrever(arquivo, POSICAO_QUANTIDADE, inteiro(Integer.MAX_VALUE - 8)),
+            // A mesma, com o CRC refeito: barrada pelos bytes que restam
+            arquivo -> {
+                escrever(arquivo, POSICAO_QUANTIDADE, inteiro(Integer.MAX_VALUE - 8));
+                recalcularCrc(arquivo);
+            },
+            arquivo -> truncar(arquivo, 100),
+            // Versão 1 do formato
+            arquivo -> escrever(arquivo, 4, inteiro(1)));
+
+    /** Serviço que baixa do servidor local e grava os arquivos no diretório. */
+    private static AppService servico(ServidorHttp servidor, Path diretorio) {
+        AppService servico = new AppService();
+        String url = servidor.url();
+        servico.setOrigem(url.substring(0, url.length() - ZIP.length()), diretorio.toString());
+        return servico;
+    }
+
+    @Test
+    void snapshotDefeituosoLancaIOException() throws IOException {
+        Path diretorio = Files.createTempDirectory("snapshot");
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/" + ZIP,
+                DadosTse.zip("perfil_eleitor_secao_ATUAL_AC.csv", DadosTse.csv("AC", LINHAS)))) {
+            assertTrue(servico(servidor, diretorio).carregarDados("AC"));
+            Path snapshot = diretorio.resolve("perfil_eleitor_secao_AC.snap");
+            byte[] original = Files.readAllBytes(snapshot);
+            assertEquals(LINHAS, Snapshot.ler(snapshot.toString()).tabela().quantidade());
+
+            for (Corrupcao corrupcao : CORRUPCOES) {
+                Files.write(snapshot, original);
+                corrupcao.aplicar(snapshot);
+                assertThrows(IOException.class, () -> Snapshot.ler(snapshot.toString()));
+            }
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+
+    @Test
+    void snapshotDefeituosoEReconstruidoDoZip() throws IOException {
+        Path diretorio = Files.createTempDirectory("snapshot");
+        try (ServidorHttp servidor = ServidorHttp.iniciar("/" + ZIP,
+                DadosTse.zip("perfil_eleitor_secao_ATUAL_AC.csv", DadosTse.csv("AC", LINHAS)))) {
+            assertTrue(servico(servidor, diretorio).carregarDados("AC"));
+            Path snapshot = diretorio.resolve("perfil_eleitor_secao_AC.snap");
+            Path zip = diretorio.resolve("perfil_eleitor_secao_AC.zip");
+            byte[] original = Files.readAllBytes(snapshot);
+
+            for (Corrupcao corrupcao : CORRUPCOES) {
+                Files.write(snapshot, original);
+                corrupcao.aplicar(snapshot);
+                // Mais novo que o ZIP: a carga tenta o snapshot antes do ZIP
+                Files.setLastModifiedTime(snapshot,
+                        FileTime.fromMillis(Files.getLastModifiedTime(zip).toMillis() + 3_600_000));
+                servidor.limparRequisicoes();
+
+                AppService servico = servico(servidor, diretorio);
+                assertTrue(servico.carregarDados("AC"));
+                assertEquals(LINHAS, servico.getTotalRegistros());
+                // Voltou ao servidor (o ZIP não mudou: 304) e gravou um snapshot válido
+                assertEquals(304, servidor.requisicoes().get(0).status());
+                assertEquals(LINHAS, Snapshot.ler(snapshot.toString()).tabela().quantidade());
+            }
+        } finally {
+            DadosTse.apagar(diretorio);
+        }
+    }
+}
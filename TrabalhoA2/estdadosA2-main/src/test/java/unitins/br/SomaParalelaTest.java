@@ -0,0 +1,157 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * SomaVetorial (16 bits baixos e altos acumulados em int) e a divisão do
+ * ForkJoin em SomaParalela contra a soma escalar em long: tamanhos que não
+ * são múltiplos do vetor nem das 65.536 linhas por tarefa, mais de uma
+ * rodada de acumulação, valores perto de Integer.MAX_VALUE e MIN_VALUE, e
+ * uma JVM sem o módulo jdk.incubator.vector.
+ */
+class SomaParalelaTest {
+
+    private static final int LINHAS_POR_TAREFA = 1 << 16;
+    // Uma rodada de SomaVetorial são 32.768 vetores (524.288 linhas com 16
+    // lanes): o tamanho maior passa por mais de uma rodada
+    private static final int LINHAS = 2 * (1 << 19) + 37;
+
+    private static final int[] TAMANHOS = {
+        0, 1, 3, 7, 8, 9, 15, 16, 17, 31, 33, 63, 65, 1000,
+        LINHAS_POR_TAREFA - 1, LINHAS_POR_TAREFA, LINHAS_POR_TAREFA + 1, 3 * LINHAS_POR_TAREFA + 17,
+        (1 << 18) - 1, 1 << 18, (1 << 18) + 1, (1 << 19) - 5, (1 << 19) + 5, LINHAS
+    };
+
+    /** Colunas de teste: sorteada, extremos e valores perto dos limites. */
+    static int[][] colunas(int n) {
+        Random aleatorio = new Random(11);
+        int[][] colunas = new int[7][n];
+        for (int i = 0; i < n; i++) {
+            colunas[0][i] = aleatorio.nextInt();
+            colunas[1][i] = Integer.MAX_VALUE;
+            colunas[2][i] = Integer.MIN_VALUE;
+            colunas[3][i] = Integer.MAX_VALUE - aleatorio.nextInt(70_000);
+            colunas[4][i] = i % 2 == 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE + aleatorio.nextInt(3);
+            colunas[5][i] = -1;
+            colunas[6][i] = aleatorio.nextInt(500); // Como QT_ELEITORES_PERFIL
+        }
+        return colunas;
+    }
+
+    static long escalar(int[] coluna, int inicio, int fim) {
+        long total = 0;
+        for (int i = inicio; i < fim; i++) {
+            total += coluna[i];
+        }
+        return total;
+    }
+
+    @Test
+    void somaVetorialIgualAEscalar() {
+        assumeTrue(SomaParalela.vetorial());
+        for (int[] coluna : colunas(LINHAS)) {
+            for (int inicio : new int[] {0, 1, 5, 8, 13}) {
+                for (int tamanho : TAMANHOS) {
+                    int fim = Math.min(LINHAS, inicio + tamanho);
+                    assertEquals(escalar(coluna, inicio, fim), SomaVetorial.somar(coluna, inicio, fim),
+                            "coluna[" + inicio + ".." + fim + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void divisaoEntreTarefasIgualAEscalar() {
+        int[][] colunas = colunas(LINHAS);
+        for (int n : TAMANHOS) {
+            long[] esperados = new long[colunas.length];
+            for (int c = 0; c < colunas.length; c++) {
+                esperados[c] = escalar(colunas[c], 0, n);
+                assertEquals(esperados[c], SomaParalela.somar(colunas[c], n), "coluna " + c + ", n = " + n);
+            }
+            assertArrayEquals(esperados, SomaParalela.somar(colunas, n), "n = " + n);
+        }
+    }
+
+    @Test
+    void somaDeBitmapIgualAEscalar() {
+        Random aleatorio = new Random(12);
+        int n = 9 * LINHAS_POR_TAREFA + 321;
+        int[] valores = colunas(n)[3];
+        // Um bloco, vários blocos (alguns vazios) e todos os blocos cheios
+        for (double densidade : new double[] {0.0, 0.0005, 0.03, 0.5, 1.0}) {
+            for (int blocos : new int[] {1, 2, 9, 10}) {
+                boolean[] presentes = new boolean[Math.min(n, blocos * LINHAS_POR_TAREFA)];
+                long esperado = 0;
+                for (int i = 0; i < presentes.length; i++) {
+                    presentes[i] = (i / LINHAS_POR_TAREFA) % 3 != 1 && aleatorio.nextDouble() < densidade;
+                    esperado += presentes[i] ? valores[i] : 0;
+                }
+                BitmapCompacto bitmap = BitmapCompactoTest.construir(presentes);
+                assertEquals(esperado, SomaParalela.somar(bitmap, valores), densidade + " em " + blocos + " blocos");
+            }
+        }
+    }
+
+    @Test
+    void semOModuloDeVetores() throws IOException, InterruptedException {
+        // Outra JVM, sem --add-modules: SomaVetorial não pode nem ser carregada
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process processo = new ProcessBuilder(java, "-Xlog:class+load=info",
+                "-cp", System.getProperty("java.class.path"), SemVetores.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String saida = new String(processo.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(processo.waitFor(60, TimeUnit.SECONDS));
+        assertEquals(0, processo.exitValue(), saida);
+
+        assertTrue(saida.contains(" unitins.br.SomaParalela "), "a JVM filha não registrou as classes carregadas");
+        assertFalse(saida.contains("unitins.br.SomaVetorial"), "SomaVetorial foi carregada sem o módulo");
+        List<String> linhas = saida.lines().toList();
+        assertTrue(linhas.contains("vetorial=false"), saida);
+        int[][] colunas = colunas(LINHAS);
+        for (int n : TAMANHOS) {
+            for (int c = 0; c < colunas.length; c++) {
+                String esperada = SemVetores.linha(n, c, escalar(colunas[c], 0, n));
+                assertTrue(linhas.contains(esperada), esperada);
+            }
+        }
+    }
+
+    /**
+     * Executada na JVM sem o módulo de vetores: imprime as somas de
+     * SomaParalela para o teste comparar.
+     */
+    static final class SemVetores {
+
+        private SemVetores() {
+        }
+
+        static String linha(int n, int coluna, long soma) {
+            return "n=" + n + " coluna=" + coluna + " soma=" + soma;
+        }
+
+        public static void main(String[] args) {
+            System.out.println("vetorial=" + SomaParalela.vetorial());
+            int[][] colunas = colunas(LINHAS);
+            for (int n : TAMANHOS) {
+                for (int c = 0; c < colunas.length; c++) {
+                    System.out.println(linha(n, c, SomaParalela.somar(colunas[c], n)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TabelaCruzada contra uma varredura que soma cada linha na célula dos seus
+ * rótulos: histogramas e tabelas cruzadas de uma base (calcular) e de várias
+ * bases juntadas pelo rótulo (juntar), com rótulos que faltam em algumas
+ * bases e rótulos numéricos em ordem de código, não alfabética.
+ */
+class TabelaCruzadaTest {
+
+    private static final String TOTAL = "TOTAL";
+
+    // Pares de dimensões (linhas, colunas); colunas null = histograma
+    private static final Dimensao[][] AGRUPAMENTOS = {
+        {Dimensao.FAIXA_ETARIA, null},
+        {Dimensao.GENERO, null},
+        {Dimensao.ESCOLARIDADE, Dimensao.GENERO},
+        {Dimensao.GENERO, Dimensao.OBRIGATORIEDADE},
+        {Dimensao.ESTADO_CIVIL, Dimensao.FAIXA_ETARIA},
+        {Dimensao.RACA_COR, Dimensao.ESCOLARIDADE}
+    };
+
+    /** Consulta e a mesma seleção de linhas testada linha a linha. */
+    private record Caso(Consulta consulta, IntPredicate seleciona) {
+    }
+
+    private static String rotulo(Dimensao d, TabelaEleitores tabela, int i) {
+        if (d == null) {
+            return TOTAL;
+        }
+        return d.texto() ? tabela.texto(d.coluna(), i) : String.valueOf(tabela.valor(d.coluna(), i));
+    }
+
+    /** Totais (eleitores, biometria, deficiência) por par de rótulos, somados linha a linha. */
+    private static Map<List<String>, long[]> varrer(BaseEstado base, IntPredicate seleciona,
+            Dimensao linhas, Dimensao colunas, Map<List<String>, long[]> totais) {
+        TabelaEleitores tabela = base.tabela();
+        for (int i = 0; i < tabela.quantidade(); i++) {
+            if (seleciona.test(i)) {
+                long[] celula = totais.computeIfAbsent(
+                        List.of(rotulo(linhas, tabela, i), rotulo(colunas, tabela, i)), k -> new long[3]);
+                celula[0] += tabela.valor(Coluna.QT_ELEITORES_PERFIL, i);
+                celula[1] += tabela.valor(Coluna.QT_ELEITORES_BIOMETRIA, i);
+                celula[2] += tabela.valor(Coluna.QT_ELEITORES_DEFICIENCIA, i);
+            }
+        }
+        return totais;
+    }
+
+    /** Rótulos distintos de uma dimensão na base (com ou sem linhas selecionadas). */
+    private static Set<String> rotulos(BaseEstado base, Dimensao d) {
+        Set<String> rotulos = new LinkedHashSet<>();
+        for (int i = 0; i < base.tabela().quantidade(); i++) {
+            rotulos.add(rotulo(d, base.tabela(), i));
+        }
+        return rotulos;
+    }
+
+    /**
+     * Rótulos na ordem de calcular(): código do TSE nas dimensões numéricas,
+     * código do dicionário (ordem da primeira ocorrência) nas de texto.
+     */
+    private static List<String> emOrdemDeCodigo(BaseEstado base, Dimensao d) {
+        List<String> rotulos = new ArrayList<>(rotulos(base, d));
+        if (d != null && !d.texto()) {
+            rotulos.sort(Comparator.comparingInt(Integer::parseInt));
+        }
+        return rotulos;
+    }
+
+    /** Cada célula tem a soma da varredura (ou 0 se nenhuma linha caiu nela). */
+    private static void assertMesmasCelulas(Map<List<String>, long[]> esperado, TabelaCruzada tabela, String nome) {
+        int celulasComLinhas = 0;
+        for (int i = 0; i < tabela.linhas(); i++) {
+            for (int j = 0; j < tabela.colunas(); j++) {
+                long[] celula = esperado.get(List.of(tabela.rotuloLinha(i), tabela.rotuloColuna(j)));
+                celulasComLinhas += celula != null ? 1 : 0;
+                String onde = nome + " [" + tabela.rotuloLinha(i) + ", " + tabela.rotuloColuna(j) + "]";
+                assertEquals(celula != null ? celula[0] : 0, tabela.eleitores(i, j), onde);
+                assertEquals(celula != null ? celula[1] : 0, tabela.biometria(i, j), onde);
+                assertEquals(celula != null ? celula[2] : 0, tabela.deficiencia(i, j), onde);
+            }
+        }
+        // Nenhuma linha selecionada ficou fora da tabela
+        assertEquals(esperado.size(), celulasComLinhas, nome);
+    }
+
+    private static String[] rotulosLinhas(TabelaCruzada t) {
+        String[] r = new String[t.linhas()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = t.rotuloLinha(i);
+        }
+        return r;
+    }
+
+    private static String[] rotulosColunas(TabelaCruzada t) {
+        String[] r = new String[t.colunas()];
+        for (int j = 0; j < r.length; j++) {
+            r[j] = t.rotuloColuna(j);
+        }
+        return r;
+    }
+
+    /**
+     * CSV de DadosTse a partir da linha "primeira", com os códigos de faixa
+     * etária trocados por "faixas" e gênero em maiúsculas ou minúsculas.
+     */
+    private static BaseEstado base(int primeira, int linhas, int[] faixas, boolean generoMinusculo)
+            throws IOException {
+        StringBuilder sb = new StringBuilder(DadosTse.CABECALHO).append("\r\n");
+        for (int i = primeira; i < primeira + linhas; i++) {
+            String[] c = DadosTse.linha("AC", i).split(";", -1);
+            if (faixas != null) {
+                c[14] = String.valueOf(faixas[i % faixas.length]);
+            }
+            if (generoMinusculo && i % 4 == 1) {
+                c[11] = c[11].toLowerCase();
+            }
+            sb.append(String.join(";", c)).append("\r\n");
+        }
+        return DadosTse.base(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static List<Caso> casos(BaseEstado base) {
+        TabelaEleitores tabela = base.tabela();
+        int[] cidade = tabela.coluna(Coluna.CD_MUNICIPIO);
+        int[] zona = tabela.coluna(Coluna.NR_ZONA);
+        int[] secao = tabela.coluna(Coluna.NR_SECAO);
+        int[] escolaridade = tabela.coluna(Coluna.CD_GRAU_ESCOLARIDADE);
+        boolean vazia = tabela.quantidade() == 0;
+        int c = vazia ? 0 : cidade[0];
+        int z = vazia ? 0 : zona[0];
+        int s = vazia ? 0 : secao[0];
+        return List.of(
+                new Caso(Consulta.estado(), i -> true),
+                new Caso(Consulta.cidade(c), i -> cidade[i] == c),
+                new Caso(Consulta.secao(c, z, s), i -> cidade[i] == c && zona[i] == z && secao[i] == s),
+                new Caso(Consulta.estado().onde(Dimensao.GENERO, "feminino"),
+                        i -> tabela.texto(Coluna.DS_GENERO, i).equalsIgnoreCase("FEMININO")),
+                new Caso(Consulta.cidade(c).ondeCodigo(Dimensao.ESCOLARIDADE, 2, 5),
+                        i -> cidade[i] == c && (escolaridade[i] == 2 || escolaridade[i] == 5)),
+                new Caso(Consulta.estado().onde(Dimensao.ESTADO_CIVIL, "x"), i -> false));
+    }
+
+    @Test
+    void umaBaseIgualAVarredura() throws IOException {
+        BaseEstado base = base(0, 5_000, null, true);
+        for (Caso caso : casos(base)) {
+            for (Dimensao[] dimensoes : AGRUPAMENTOS) {
+                String nome = caso.consulta() + " por " + Arrays.toString(dimensoes);
+                TabelaCruzada tabela = TabelaCruzada.calcular(caso.consulta(), base, dimensoes[0], dimensoes[1]);
+
+                // Todos os valores da base viram rótulos, na ordem dos códigos
+                assertEquals(emOrdemDeCodigo(base, dimensoes[0]), List.of(rotulosLinhas(tabela)), nome);
+                assertEquals(emOrdemDeCodigo(base, dimensoes[1]), List.of(rotulosColunas(tabela)), nome);
+                assertMesmasCelulas(varrer(base, caso.seleciona(), dimensoes[0], dimensoes[1], new HashMap<>()),
+                        tabela, nome);
+            }
+        }
+    }
+
+    @Test
+    void juntarBasesComRotulosDiferentes() throws IOException {
+        // Faixas que só existem em uma das bases; "9", "10", "100" e "-1"
+        // ficam em ordem de código, não alfabética
+        List<BaseEstado> bases = List.of(
+                base(0, 3_000, new int[] {10, 2529, 9}, false),
+                base(3_000, 2_000, new int[] {100, 2529, -1, 1600}, true),
+                base(5_000, 1_000, null, false),
+                base(0, 0, null, false));
+        String[] faixasEsperadas = {"-1", "9", "10", "100", "1600", "2529", "2629", "2729", "2829", "2929"};
+
+        for (Dimensao[] dimensoes : AGRUPAMENTOS) {
+            for (int caso = 0; caso < casos(bases.get(0)).size(); caso++) {
+                Map<List<String>, long[]> esperado = new HashMap<>();
+                List<TabelaCruzada> parciais = new ArrayList<>();
+                Set<String> linhas = new TreeSet<>(ordem(dimensoes[0]));
+                Set<String> colunas = new TreeSet<>(ordem(dimensoes[1]));
+                String nome = null;
+                for (BaseEstado base : bases) {
+                    Caso c = casos(base).get(caso);
+                    nome = c.consulta() + " por " + Arrays.toString(dimensoes);
+                    parciais.add(TabelaCruzada.calcular(c.consulta(), base, dimensoes[0], dimensoes[1]));
+                    varrer(base, c.seleciona(), dimensoes[0], dimensoes[1], esperado);
+                    linhas.addAll(rotulos(base, dimensoes[0]));
+                    colunas.addAll(rotulos(base, dimensoes[1]));
+                }
+                TabelaCruzada total = TabelaCruzada.juntar(parciais, dimensoes[0], dimensoes[1]);
+
+                assertEquals(List.copyOf(linhas), List.of(rotulosLinhas(total)), nome);
+                assertEquals(List.copyOf(colunas), List.of(rotulosColunas(total)), nome);
+                assertMesmasCelulas(esperado, total, nome);
+                if (dimensoes[0] == Dimensao.FAIXA_ETARIA) {
+                    assertEquals(List.of(faixasEsperadas), List.of(rotulosLinhas(total)), nome);
+                }
+            }
+        }
+
+        // Sem nenhuma base: só a coluna TOTAL no histograma
+        TabelaCruzada vazia = TabelaCruzada.juntar(List.of(), Dimensao.GENERO, null);
+        assertEquals(0, vazia.linhas());
+        assertEquals(1, vazia.colunas());
+        assertTrue(TOTAL.equals(vazia.rotuloColuna(0)));
+    }
+
+    /** Ordem esperada dos rótulos juntados: código nas numéricas, alfabética nos textos. */
+    private static Comparator<String> ordem(Dimensao d) {
+        return d == null || d.texto() ? Comparator.naturalOrder() : Comparator.comparingInt(Integer::parseInt);
+    }
+}
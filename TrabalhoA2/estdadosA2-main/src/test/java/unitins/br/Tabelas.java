@@ -0,0 +1,32 @@
+package unitins.br;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+/**
+ * Comparação de tabelas lidas por caminhos de carga diferentes.
+ */
+final class Tabelas {
+
+    private Tabelas() {
+    }
+
+    /** Mesmas linhas, na mesma ordem, com os mesmos códigos de texto. */
+    static void assertMesmaTabela(TabelaEleitores esperada, TabelaEleitores tabela) {
+        assertEquals(esperada.quantidade(), tabela.quantidade());
+        assertEquals(esperada.colunasCarregadas(), tabela.colunasCarregadas());
+        for (Coluna c : esperada.colunasCarregadas()) {
+            int n = esperada.quantidade();
+            assertEquals(-1, Arrays.mismatch(esperada.coluna(c), 0, n, tabela.coluna(c), 0, n),
+                    "primeira linha diferente em " + c);
+            if (c.texto()) {
+                Dicionario d = esperada.dicionario(c);
+                assertEquals(d.tamanho(), tabela.dicionario(c).tamanho(), "dicionário de " + c);
+                for (int k = 0; k < d.tamanho(); k++) {
+                    assertEquals(d.valor(k), tabela.dicionario(c).valor(k), c + " código " + k);
+                }
+            }
+        }
+    }
+}